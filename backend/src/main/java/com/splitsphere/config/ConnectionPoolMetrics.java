@@ -0,0 +1,172 @@
+package com.splitsphere.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.IMetricsTracker;
+import com.zaxxer.hikari.metrics.MetricsTrackerFactory;
+import com.zaxxer.hikari.metrics.PoolStats;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Deque;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Connection pool metrics for every Hikari pool (the primary and any read replicas).
+ * <p>
+ * Besides the standard per-pool {@code hikaricp.connections.*} meters (active, idle, pending,
+ * acquire and usage times), connection acquire and usage times are recorded per caller as
+ * {@code db.connection.acquire} and {@code db.connection.usage} histograms, tagged with the pool and
+ * the application method that took the connection, e.g. {@code ReportService.generatePdfReport}.
+ * When an acquire waits longer than {@code datasource.metrics.slow-acquire-ms}, the wait is logged
+ * together with the methods holding the pool's connections at that moment.
+ */
+@Slf4j
+@Component
+public class ConnectionPoolMetrics implements MetricsTrackerFactory, BeanPostProcessor {
+    
+    private static final String APPLICATION_PACKAGE = "com.splitsphere.";
+    private static final String CONFIG_PACKAGE = "com.splitsphere.config.";
+    private static final StackWalker STACK_WALKER = StackWalker.getInstance();
+    
+    private final ObjectProvider<MeterRegistry> meterRegistry;
+    private final long slowAcquireNanos;
+    
+    public ConnectionPoolMetrics(ObjectProvider<MeterRegistry> meterRegistry,
+                                 @Value("${datasource.metrics.slow-acquire-ms:100}") long slowAcquireMs) {
+        this.meterRegistry = meterRegistry;
+        this.slowAcquireNanos = TimeUnit.MILLISECONDS.toNanos(slowAcquireMs);
+    }
+    
+    /**
+     * Installs this tracker on pools defined as beans, before Spring Boot's default Micrometer
+     * binding (which leaves pools that already have a tracker alone).
+     */
+    @Override
+    public Object postProcessBeforeInitialization(Object bean, String beanName) {
+        if (bean instanceof HikariDataSource pool && pool.getMetricsTrackerFactory() == null && pool.getMetricRegistry() == null) {
+            pool.setMetricsTrackerFactory(this);
+        }
+        return bean;
+    }
+    
+    @Override
+    public IMetricsTracker create(String poolName, PoolStats poolStats) {
+        MeterRegistry registry = meterRegistry.getIfAvailable();
+        if (registry == null) {
+            return new IMetricsTracker() {
+            };
+        }
+        return new PoolTracker(poolName, new MicrometerMetricsTrackerFactory(registry).create(poolName, poolStats), registry);
+    }
+    
+    /**
+     * The closest application method on the current call stack, as {@code SimpleClassName.method}.
+     */
+    static String caller() {
+        return STACK_WALKER.walk(frames -> frames
+                .filter(frame -> frame.getClassName().startsWith(APPLICATION_PACKAGE)
+                        && !frame.getClassName().startsWith(CONFIG_PACKAGE))
+                .findFirst()
+                .map(frame -> {
+                    String className = frame.getClassName();
+                    className = className.substring(className.lastIndexOf('.') + 1);
+                    int proxySuffix = className.indexOf("$$");
+                    return (proxySuffix < 0 ? className : className.substring(0, proxySuffix)) + "." + frame.getMethodName();
+                })
+                .orElse("other"));
+    }
+    
+    private final class PoolTracker implements IMetricsTracker {
+        
+        private final String poolName;
+        private final IMetricsTracker delegate;
+        private final MeterRegistry registry;
+        private final Map<String, Timer> acquireTimers = new ConcurrentHashMap<>();
+        private final Map<String, Timer> usageTimers = new ConcurrentHashMap<>();
+        // Connections currently handed out, per borrowing thread (innermost last)
+        private final Map<Thread, Deque<Lease>> leases = new ConcurrentHashMap<>();
+        
+        private PoolTracker(String poolName, IMetricsTracker delegate, MeterRegistry registry) {
+            this.poolName = poolName;
+            this.delegate = delegate;
+            this.registry = registry;
+        }
+        
+        @Override
+        public void recordConnectionCreatedMillis(long connectionCreatedMillis) {
+            delegate.recordConnectionCreatedMillis(connectionCreatedMillis);
+        }
+        
+        @Override
+        public void recordConnectionAcquiredNanos(long elapsedAcquiredNanos) {
+            delegate.recordConnectionAcquiredNanos(elapsedAcquiredNanos);
+            
+            String caller = caller();
+            timer(acquireTimers, "db.connection.acquire", "Time waited for a pool connection", caller)
+                    .record(elapsedAcquiredNanos, TimeUnit.NANOSECONDS);
+            if (elapsedAcquiredNanos >= slowAcquireNanos) {
+                log.warn("{} waited {} ms for a {} connection; held by {}", caller,
+                        TimeUnit.NANOSECONDS.toMillis(elapsedAcquiredNanos), poolName, holders());
+            }
+            leases.computeIfAbsent(Thread.currentThread(), thread -> new ConcurrentLinkedDeque<>())
+                    .addLast(new Lease(caller, System.nanoTime()));
+        }
+        
+        @Override
+        public void recordConnectionUsageMillis(long elapsedBorrowedMillis) {
+            delegate.recordConnectionUsageMillis(elapsedBorrowedMillis);
+            
+            Deque<Lease> held = leases.get(Thread.currentThread());
+            Lease lease = held == null ? null : held.pollLast();
+            if (held != null && held.isEmpty()) {
+                leases.remove(Thread.currentThread());
+            }
+            timer(usageTimers, "db.connection.usage", "Time a pool connection was held", lease == null ? "other" : lease.caller())
+                    .record(elapsedBorrowedMillis, TimeUnit.MILLISECONDS);
+        }
+        
+        @Override
+        public void recordConnectionTimeout() {
+            delegate.recordConnectionTimeout();
+            log.warn("{} timed out waiting for a {} connection; held by {}", caller(), poolName, holders());
+        }
+        
+        @Override
+        public void close() {
+            delegate.close();
+        }
+        
+        private String holders() {
+            long now = System.nanoTime();
+            String holders = leases.values().stream()
+                    .flatMap(Deque::stream)
+                    .map(lease -> lease.caller() + " (" + TimeUnit.NANOSECONDS.toMillis(now - lease.since()) + " ms)")
+                    .collect(Collectors.joining(", "));
+            return holders.isEmpty() ? "nobody" : holders;
+        }
+        
+        private Timer timer(Map<String, Timer> timers, String name, String description, String caller) {
+            return timers.computeIfAbsent(caller, c -> Timer.builder(name)
+                    .description(description)
+                    .tag("pool", poolName)
+                    .tag("caller", c)
+                    .publishPercentileHistogram()
+                    .maximumExpectedValue(Duration.ofSeconds(30))
+                    .register(registry));
+        }
+    }
+    
+    private record Lease(String caller, long since) {
+    }
+}
@@ -0,0 +1,71 @@
+package com.splitsphere.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Read replicas, enabled by listing their JDBC URLs in {@code datasource.replicas.urls}.
+ * The primary pool keeps the regular {@code spring.datasource.*} settings; read-only transactions
+ * are routed to the replicas by {@link ReplicaRoutingDataSource}.
+ */
+@Configuration
+@ConditionalOnExpression("!'${datasource.replicas.urls:}'.isBlank()")
+public class ReadReplicaConfig {
+    
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+    
+    @Bean
+    public ReplicaRoutingDataSource replicaRoutingDataSource(
+            HikariDataSource primaryDataSource,
+            DataSourceProperties properties,
+            ConnectionPoolMetrics connectionPoolMetrics,
+            @Value("${datasource.replicas.urls}") String urls,
+            @Value("${datasource.replicas.username:${spring.datasource.username:}}") String username,
+            @Value("${datasource.replicas.password:${spring.datasource.password:}}") String password,
+            @Value("${datasource.replicas.lag-query}") String lagQuery,
+            @Value("${datasource.replicas.max-lag-ms:1000}") long maxLagMs,
+            @Value("${datasource.replicas.lag-check-interval-ms:1000}") long lagCheckIntervalMs,
+            @Value("${datasource.replicas.stickiness-ms:5000}") long stickinessMs) {
+        List<DataSource> replicas = new ArrayList<>();
+        for (String url : urls.split(",")) {
+            HikariDataSource replica = DataSourceBuilder.create()
+                    .type(HikariDataSource.class)
+                    .driverClassName(properties.determineDriverClassName())
+                    .url(url.trim())
+                    .username(username)
+                    .password(password)
+                    .build();
+            replica.setPoolName("replica-" + replicas.size());
+            replica.setReadOnly(true);
+            replica.setMetricsTrackerFactory(connectionPoolMetrics);
+            replicas.add(replica);
+        }
+        return new ReplicaRoutingDataSource(primaryDataSource, replicas, lagQuery, maxLagMs, lagCheckIntervalMs, stickinessMs);
+    }
+    
+    /**
+     * The data source everything else (JPA, Flyway, health checks) uses: outside read-only
+     * transactions it always resolves to the primary.
+     */
+    @Bean
+    @Primary
+    public DataSource dataSource(ReplicaRoutingDataSource replicaRoutingDataSource) {
+        return new LazyConnectionDataSourceProxy(replicaRoutingDataSource);
+    }
+}
@@ -0,0 +1,169 @@
+package com.splitsphere.config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Sends read-only transactions to a read replica and everything else to the primary.
+ * <p>
+ * A background thread measures every replica's lag with {@code lagQuery}; replicas that lag more
+ * than {@code maxLagMs} (or can't be queried) are skipped until they catch up, and reads fall back
+ * to the primary when none is usable. After a user's write transaction commits, that user's reads
+ * stay on the primary for {@code stickinessMs}, so they see their own writes while the replicas
+ * catch up.
+ * <p>
+ * The routing decision is taken when a connection is fetched, so this must sit behind a
+ * {@link org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy}: the transaction
+ * manager opens the connection before the read-only flag of the transaction is published.
+ */
+@Slf4j
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource implements DisposableBean {
+    
+    static final String PRIMARY = "primary";
+    
+    private final List<Replica> replicas = new ArrayList<>();
+    private final String lagQuery;
+    private final long maxLagMs;
+    private final long lagCheckIntervalMs;
+    private final Cache<String, Boolean> recentWriters;
+    private final AtomicInteger next = new AtomicInteger();
+    private final ScheduledExecutorService lagMonitor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "replica-lag-monitor");
+        thread.setDaemon(true);
+        return thread;
+    });
+    
+    public ReplicaRoutingDataSource(DataSource primary, List<DataSource> replicas, String lagQuery,
+                                    long maxLagMs, long lagCheckIntervalMs, long stickinessMs) {
+        this.lagQuery = lagQuery;
+        this.maxLagMs = maxLagMs;
+        this.lagCheckIntervalMs = lagCheckIntervalMs;
+        this.recentWriters = Caffeine.newBuilder()
+                .maximumSize(100_000)
+                .expireAfterWrite(Duration.ofMillis(stickinessMs))
+                .build();
+        
+        Map<Object, Object> targets = new HashMap<>();
+        targets.put(PRIMARY, primary);
+        for (int i = 0; i < replicas.size(); i++) {
+            Replica replica = new Replica("replica-" + i, replicas.get(i));
+            this.replicas.add(replica);
+            targets.put(replica.key, replica.dataSource);
+        }
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+    }
+    
+    @Override
+    public void afterPropertiesSet() {
+        super.afterPropertiesSet();
+        checkReplicas();
+        lagMonitor.scheduleWithFixedDelay(this::checkReplicas, lagCheckIntervalMs, lagCheckIntervalMs, TimeUnit.MILLISECONDS);
+    }
+    
+    @Override
+    protected Object determineCurrentLookupKey() {
+        String userId = currentUserId();
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            if (userId != null && TransactionSynchronizationManager.isSynchronizationActive()) {
+                TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                    @Override
+                    public void afterCommit() {
+                        recentWriters.put(userId, Boolean.TRUE);
+                    }
+                });
+            }
+            return PRIMARY;
+        }
+        if (userId != null && recentWriters.getIfPresent(userId) != null) {
+            return PRIMARY;
+        }
+        
+        int start = Math.floorMod(next.getAndIncrement(), Math.max(replicas.size(), 1));
+        for (int i = 0; i < replicas.size(); i++) {
+            Replica replica = replicas.get((start + i) % replicas.size());
+            if (replica.usable) {
+                return replica.key;
+            }
+        }
+        return PRIMARY;
+    }
+    
+    /**
+     * Measures every replica's lag and marks the replicas that are close enough to be read from.
+     */
+    void checkReplicas() {
+        for (Replica replica : replicas) {
+            boolean usable;
+            try (Connection connection = replica.dataSource.getConnection();
+                 Statement statement = connection.createStatement();
+                 ResultSet result = statement.executeQuery(lagQuery)) {
+                double lagMs = result.next() ? result.getDouble(1) : Double.MAX_VALUE;
+                usable = lagMs <= maxLagMs;
+                if (!usable && replica.usable) {
+                    log.warn("Replica {} lags {} ms behind the primary, reading from the primary", replica.key, (long) lagMs);
+                }
+            } catch (SQLException | RuntimeException e) {
+                usable = false;
+                if (replica.usable) {
+                    log.warn("Replica {} cannot be checked, reading from the primary", replica.key, e);
+                }
+            }
+            if (usable && !replica.usable) {
+                log.info("Replica {} is in sync, routing read-only transactions to it", replica.key);
+            }
+            replica.usable = usable;
+        }
+    }
+    
+    @Override
+    public void destroy() throws IOException {
+        lagMonitor.shutdownNow();
+        for (Replica replica : replicas) {
+            if (replica.dataSource instanceof Closeable closeable) {
+                closeable.close();
+            }
+        }
+    }
+    
+    private static String currentUserId() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        return authentication != null && authentication.isAuthenticated() ? authentication.getName() : null;
+    }
+    
+    private static final class Replica {
+        
+        private final String key;
+        private final DataSource dataSource;
+        private volatile boolean usable;
+        
+        private Replica(String key, DataSource dataSource) {
+            this.key = key;
+            this.dataSource = dataSource;
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package com.splitsphere.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Runs the {@code @Scheduled} maintenance jobs, e.g. AuditLogPartitionMaintenance. Jobs that only
+ * apply to some deployments are conditional beans themselves.
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
@@ -1,13 +1,21 @@
 package com.splitsphere.controller;
 
 import com.splitsphere.dto.BalanceResponse;
+import com.splitsphere.dto.BalanceSummaryResponse;
+import com.splitsphere.dto.GroupArchive;
+import com.splitsphere.dto.TransferResponse;
 import com.splitsphere.service.BalanceService;
+import com.splitsphere.service.GroupArchiveService;
+import com.splitsphere.service.GroupVersionService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.util.List;
+import java.util.Optional;
 
 @RestController
 @RequestMapping("/api/balances")
@@ -15,12 +23,46 @@ import java.util.List;
 public class BalanceController {
     
     private final BalanceService balanceService;
+    private final GroupArchiveService groupArchiveService;
+    private final GroupVersionService groupVersionService;
     
     @GetMapping("/group/{groupId}")
     public ResponseEntity<List<BalanceResponse>> getGroupBalances(
             @PathVariable Long groupId,
-            Authentication authentication) {
+            Authentication authentication,
+            WebRequest request) {
         String userId = authentication.getName();
-        return ResponseEntity.ok(balanceService.getGroupBalances(groupId, userId));
+        return groupVersionService.ifModified(groupId, userId, request, () -> {
+            Optional<GroupArchive> archive = groupArchiveService.find(groupId);
+            if (archive.isPresent()) {
+                return ResponseEntity.ok().cacheControl(groupArchiveService.cacheControl())
+                        .varyBy(HttpHeaders.AUTHORIZATION)
+                        .body(groupArchiveService.balances(archive.get(), userId));
+            }
+            return ResponseEntity.ok(balanceService.getGroupBalances(groupId, userId));
+        });
+    }
+    
+    @GetMapping("/me")
+    public ResponseEntity<BalanceSummaryResponse> getMyBalances(Authentication authentication) {
+        String userId = authentication.getName();
+        return ResponseEntity.ok(balanceService.getUserBalanceSummary(userId));
+    }
+    
+    @GetMapping("/group/{groupId}/simplified")
+    public ResponseEntity<List<TransferResponse>> getSimplifiedTransfers(
+            @PathVariable Long groupId,
+            Authentication authentication,
+            WebRequest request) {
+        String userId = authentication.getName();
+        return groupVersionService.ifModified(groupId, userId, request, () -> {
+            Optional<GroupArchive> archive = groupArchiveService.find(groupId);
+            if (archive.isPresent()) {
+                return ResponseEntity.ok().cacheControl(groupArchiveService.cacheControl())
+                        .varyBy(HttpHeaders.AUTHORIZATION)
+                        .body(groupArchiveService.transfers(archive.get(), userId));
+            }
+            return ResponseEntity.ok(balanceService.getSimplifiedTransfers(groupId, userId));
+        });
     }
 }
@@ -1,15 +1,28 @@
 package com.splitsphere.controller;
 
+import com.splitsphere.dto.CursorPage;
+import com.splitsphere.dto.ExpenseBatchRequest;
 import com.splitsphere.dto.ExpenseRequest;
 import com.splitsphere.dto.ExpenseResponse;
+import com.splitsphere.dto.GroupArchive;
+import com.splitsphere.dto.ImportReport;
+import com.splitsphere.service.ExpenseImportService;
 import com.splitsphere.service.ExpenseService;
+import com.splitsphere.service.GroupArchiveService;
+import com.splitsphere.service.GroupVersionService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.List;
+import java.util.Optional;
 
 @RestController
 @RequestMapping("/api/expenses")
@@ -17,6 +30,9 @@ import java.util.List;
 public class ExpenseController {
     
     private final ExpenseService expenseService;
+    private final GroupArchiveService groupArchiveService;
+    private final GroupVersionService groupVersionService;
+    private final ExpenseImportService expenseImportService;
     
     @PostMapping
     public ResponseEntity<ExpenseResponse> createExpense(
@@ -26,8 +42,57 @@ public class ExpenseController {
         return ResponseEntity.ok(expenseService.createExpense(request, userId));
     }
     
+    /**
+     * Create several expenses paid by the caller in one transaction (all or nothing).
+     */
+    @PostMapping("/batch")
+    public ResponseEntity<List<ExpenseResponse>> createExpenses(
+            @Valid @RequestBody ExpenseBatchRequest request,
+            Authentication authentication) {
+        String userId = authentication.getName();
+        return ResponseEntity.ok(expenseService.createExpenses(request.getExpenses(), userId));
+    }
+    
+    /**
+     * Bulk import from a CSV or NDJSON body, read as a stream; see {@link ExpenseImportService}.
+     */
+    @PostMapping(value = "/import/{groupId}", consumes = {ExpenseImportService.CSV, ExpenseImportService.NDJSON})
+    public ResponseEntity<ImportReport> importExpenses(
+            @PathVariable Long groupId,
+            @RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType,
+            InputStream body,
+            Authentication authentication) throws IOException {
+        MediaType mediaType = MediaType.parseMediaType(contentType);
+        String format = mediaType.getType() + "/" + mediaType.getSubtype();
+        return ResponseEntity.ok(expenseImportService.importExpenses(groupId, body, format, authentication.getName()));
+    }
+    
     @GetMapping("/group/{groupId}")
-    public ResponseEntity<List<ExpenseResponse>> getGroupExpenses(@PathVariable Long groupId) {
-        return ResponseEntity.ok(expenseService.getGroupExpenses(groupId));
+    public ResponseEntity<List<ExpenseResponse>> getGroupExpenses(
+            @PathVariable Long groupId,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String cursor,
+            Authentication authentication,
+            WebRequest request) {
+        return groupVersionService.ifModified(groupId, authentication.getName(), request, () -> {
+            Optional<GroupArchive> archive = groupArchiveService.find(groupId);
+            if (limit == null && cursor == null) {
+                return archive.isPresent()
+                        ? ResponseEntity.ok().cacheControl(groupArchiveService.cacheControl()).varyBy(HttpHeaders.AUTHORIZATION)
+                                .body(archive.get().getExpenses())
+                        : ResponseEntity.ok(expenseService.getGroupExpenses(groupId));
+            }
+            CursorPage<ExpenseResponse> page = archive.isPresent()
+                    ? groupArchiveService.expensesPage(archive.get(), cursor, limit)
+                    : expenseService.getGroupExpensesPage(groupId, cursor, limit);
+            ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+            if (archive.isPresent()) {
+                response.cacheControl(groupArchiveService.cacheControl()).varyBy(HttpHeaders.AUTHORIZATION);
+            }
+            if (page.getNextCursor() != null) {
+                response.header(CursorPage.NEXT_CURSOR_HEADER, page.getNextCursor());
+            }
+            return response.body(page.getItems());
+        });
     }
 }
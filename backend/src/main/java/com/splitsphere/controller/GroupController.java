@@ -1,15 +1,25 @@
 package com.splitsphere.controller;
 
+import com.splitsphere.dto.GroupArchive;
+import com.splitsphere.dto.GroupChanges;
 import com.splitsphere.dto.GroupRequest;
 import com.splitsphere.dto.GroupResponse;
+import com.splitsphere.service.GroupArchiveService;
+import com.splitsphere.service.GroupVersionService;
+import com.splitsphere.service.GroupEventBroadcaster;
 import com.splitsphere.service.GroupService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.util.List;
+import java.util.Optional;
 
 @RestController
 @RequestMapping("/api/groups")
@@ -17,6 +27,9 @@ import java.util.List;
 public class GroupController {
     
     private final GroupService groupService;
+    private final GroupArchiveService groupArchiveService;
+    private final GroupVersionService groupVersionService;
+    private final GroupEventBroadcaster groupEventBroadcaster;
     
     @PostMapping
     public ResponseEntity<GroupResponse> createGroup(
@@ -41,8 +54,36 @@ public class GroupController {
     }
     
     @GetMapping("/{groupId}")
-    public ResponseEntity<GroupResponse> getGroup(@PathVariable Long groupId) {
-        return ResponseEntity.ok(groupService.getGroup(groupId));
+    public ResponseEntity<GroupResponse> getGroup(@PathVariable Long groupId, Authentication authentication,
+                                                  WebRequest request) {
+        return groupVersionService.ifModified(groupId, authentication.getName(), request, () -> {
+            Optional<GroupArchive> archive = groupArchiveService.find(groupId);
+            if (archive.isPresent()) {
+                return ResponseEntity.ok().cacheControl(groupArchiveService.cacheControl())
+                        .varyBy(HttpHeaders.AUTHORIZATION).body(archive.get().getGroup());
+            }
+            return ResponseEntity.ok(groupService.getGroup(groupId));
+        });
+    }
+    
+    /**
+     * Expenses, settlements and group changes committed after version {@code since}, and the
+     * version to pass next time; see {@link GroupService#getGroupChanges}.
+     */
+    @GetMapping("/{groupId}/changes")
+    public ResponseEntity<GroupChanges> getGroupChanges(@PathVariable Long groupId,
+                                                        @RequestParam(defaultValue = "0") long since,
+                                                        Authentication authentication, WebRequest request) {
+        return groupVersionService.ifModified(groupId, authentication.getName(), request,
+                () -> ResponseEntity.ok(groupService.getGroupChanges(groupId, authentication.getName(), since)));
+    }
+    
+    /**
+     * Server-sent events naming what changed in the group; see {@link GroupEventBroadcaster}.
+     */
+    @GetMapping(value = "/{groupId}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter getGroupEvents(@PathVariable Long groupId, Authentication authentication) {
+        return groupEventBroadcaster.subscribe(groupId, authentication.getName());
     }
     
     @PutMapping("/{groupId}/close")
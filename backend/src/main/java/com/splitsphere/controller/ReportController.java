@@ -1,13 +1,19 @@
 package com.splitsphere.controller;
 
+import com.splitsphere.dto.ReportJobResponse;
+import com.splitsphere.service.ReportJobService;
 import com.splitsphere.service.ReportService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import java.io.IOException;
+import java.net.URI;
 
 @RestController
 @RequestMapping("/api/reports")
@@ -15,32 +21,73 @@ import java.io.IOException;
 public class ReportController {
     
     private final ReportService reportService;
+    private final ReportJobService reportJobService;
     
+    /**
+     * Streamed to the client while the transactions are read, so the workbook is never held in
+     * memory as a whole (and no Content-Length is sent).
+     */
     @GetMapping("/group/{groupId}/excel")
-    public ResponseEntity<byte[]> downloadExcelReport(@PathVariable Long groupId) throws IOException {
-        byte[] excelData = reportService.generateExcelReport(groupId);
+    public ResponseEntity<StreamingResponseBody> downloadExcelReport(@PathVariable Long groupId,
+                                                                     Authentication authentication) {
+        reportService.checkMember(groupId, authentication.getName());
         
         HttpHeaders headers = new HttpHeaders();
-        headers.setContentType(MediaType.parseMediaType("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet"));
+        headers.setContentType(MediaType.parseMediaType(ReportJobService.Format.EXCEL.getContentType()));
         headers.setContentDispositionFormData("attachment", "group_" + groupId + "_report.xlsx");
-        headers.setContentLength(excelData.length);
         
         return ResponseEntity.ok()
                 .headers(headers)
-                .body(excelData);
+                .body(out -> reportService.writeExcelReport(groupId, out));
     }
     
+    /**
+     * Streamed like the Excel report; the first pages go out while later rows are still being read.
+     */
     @GetMapping("/group/{groupId}/pdf")
-    public ResponseEntity<byte[]> downloadPdfReport(@PathVariable Long groupId) throws IOException {
-        byte[] pdfData = reportService.generatePdfReport(groupId);
+    public ResponseEntity<StreamingResponseBody> downloadPdfReport(@PathVariable Long groupId,
+                                                                   Authentication authentication) {
+        reportService.checkMember(groupId, authentication.getName());
         
         HttpHeaders headers = new HttpHeaders();
         headers.setContentType(MediaType.APPLICATION_PDF);
         headers.setContentDispositionFormData("attachment", "group_" + groupId + "_report.pdf");
-        headers.setContentLength(pdfData.length);
         
         return ResponseEntity.ok()
                 .headers(headers)
-                .body(pdfData);
+                .body(out -> reportService.writePdfReport(groupId, out));
+    }
+    
+    /**
+     * Queue a report to be generated in the background; poll the returned job and download it
+     * when it's done. An unchanged group's report is served from cache, so the job may already be done.
+     */
+    @PostMapping("/group/{groupId}/{format}")
+    public ResponseEntity<ReportJobResponse> submitReportJob(@PathVariable Long groupId, @PathVariable String format,
+                                                             Authentication authentication) {
+        ReportJobResponse job = reportJobService.submit(groupId, format, authentication.getName());
+        return ResponseEntity.accepted()
+                .location(URI.create("/api/reports/jobs/" + job.getId()))
+                .body(job);
+    }
+    
+    @GetMapping("/jobs/{jobId}")
+    public ResponseEntity<ReportJobResponse> getReportJob(@PathVariable String jobId, Authentication authentication) {
+        return ResponseEntity.ok(reportJobService.getJob(jobId, authentication.getName()));
+    }
+    
+    @GetMapping("/jobs/{jobId}/download")
+    public ResponseEntity<Resource> downloadReportJob(@PathVariable String jobId, Authentication authentication) {
+        ReportJobService.Download download = reportJobService.download(jobId, authentication.getName());
+        
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.parseMediaType(download.format().getContentType()));
+        headers.setContentDispositionFormData("attachment",
+                "group_" + download.groupId() + "_report." + download.format().getExtension());
+        headers.setContentLength(download.size());
+        
+        return ResponseEntity.ok()
+                .headers(headers)
+                .body(new FileSystemResource(download.file()));
     }
 }
@@ -1,15 +1,22 @@
 package com.splitsphere.controller;
 
+import com.splitsphere.dto.CursorPage;
+import com.splitsphere.dto.GroupArchive;
 import com.splitsphere.dto.SettlementRequest;
 import com.splitsphere.dto.SettlementResponse;
+import com.splitsphere.service.GroupArchiveService;
+import com.splitsphere.service.GroupVersionService;
 import com.splitsphere.service.SettlementService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.util.List;
+import java.util.Optional;
 
 @RestController
 @RequestMapping("/api/settlements")
@@ -17,6 +24,8 @@ import java.util.List;
 public class SettlementController {
     
     private final SettlementService settlementService;
+    private final GroupArchiveService groupArchiveService;
+    private final GroupVersionService groupVersionService;
     
     @PostMapping
     public ResponseEntity<SettlementResponse> createSettlement(
@@ -27,7 +36,31 @@ public class SettlementController {
     }
     
     @GetMapping("/group/{groupId}")
-    public ResponseEntity<List<SettlementResponse>> getGroupSettlements(@PathVariable Long groupId) {
-        return ResponseEntity.ok(settlementService.getGroupSettlements(groupId));
+    public ResponseEntity<List<SettlementResponse>> getGroupSettlements(
+            @PathVariable Long groupId,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String cursor,
+            Authentication authentication,
+            WebRequest request) {
+        return groupVersionService.ifModified(groupId, authentication.getName(), request, () -> {
+            Optional<GroupArchive> archive = groupArchiveService.find(groupId);
+            if (limit == null && cursor == null) {
+                return archive.isPresent()
+                        ? ResponseEntity.ok().cacheControl(groupArchiveService.cacheControl()).varyBy(HttpHeaders.AUTHORIZATION)
+                                .body(archive.get().getSettlements())
+                        : ResponseEntity.ok(settlementService.getGroupSettlements(groupId));
+            }
+            CursorPage<SettlementResponse> page = archive.isPresent()
+                    ? groupArchiveService.settlementsPage(archive.get(), cursor, limit)
+                    : settlementService.getGroupSettlementsPage(groupId, cursor, limit);
+            ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+            if (archive.isPresent()) {
+                response.cacheControl(groupArchiveService.cacheControl()).varyBy(HttpHeaders.AUTHORIZATION);
+            }
+            if (page.getNextCursor() != null) {
+                response.header(CursorPage.NEXT_CURSOR_HEADER, page.getNextCursor());
+            }
+            return response.body(page.getItems());
+        });
     }
 }
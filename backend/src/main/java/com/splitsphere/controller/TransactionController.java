@@ -1,12 +1,20 @@
 package com.splitsphere.controller;
 
+import com.splitsphere.dto.CursorPage;
+import com.splitsphere.dto.GroupArchive;
 import com.splitsphere.dto.TransactionResponse;
+import com.splitsphere.service.GroupArchiveService;
+import com.splitsphere.service.GroupVersionService;
 import com.splitsphere.service.TransactionService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.util.List;
+import java.util.Optional;
 
 @RestController
 @RequestMapping("/api/transactions")
@@ -14,9 +22,35 @@ import java.util.List;
 public class TransactionController {
     
     private final TransactionService transactionService;
+    private final GroupArchiveService groupArchiveService;
+    private final GroupVersionService groupVersionService;
     
     @GetMapping("/group/{groupId}")
-    public ResponseEntity<List<TransactionResponse>> getGroupTransactions(@PathVariable Long groupId) {
-        return ResponseEntity.ok(transactionService.getGroupTransactions(groupId));
+    public ResponseEntity<List<TransactionResponse>> getGroupTransactions(
+            @PathVariable Long groupId,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String cursor,
+            Authentication authentication,
+            WebRequest request) {
+        return groupVersionService.ifModified(groupId, authentication.getName(), request, () -> {
+            Optional<GroupArchive> archive = groupArchiveService.find(groupId);
+            if (limit == null && cursor == null) {
+                return archive.isPresent()
+                        ? ResponseEntity.ok().cacheControl(groupArchiveService.cacheControl()).varyBy(HttpHeaders.AUTHORIZATION)
+                                .body(groupArchiveService.transactions(archive.get()))
+                        : ResponseEntity.ok(transactionService.getGroupTransactions(groupId));
+            }
+            CursorPage<TransactionResponse> page = archive.isPresent()
+                    ? groupArchiveService.transactionsPage(archive.get(), cursor, limit)
+                    : transactionService.getGroupTransactionsPage(groupId, cursor, limit);
+            ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+            if (archive.isPresent()) {
+                response.cacheControl(groupArchiveService.cacheControl()).varyBy(HttpHeaders.AUTHORIZATION);
+            }
+            if (page.getNextCursor() != null) {
+                response.header(CursorPage.NEXT_CURSOR_HEADER, page.getNextCursor());
+            }
+            return response.body(page.getItems());
+        });
     }
 }
@@ -0,0 +1,18 @@
+package com.splitsphere.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BalanceSummaryResponse {
+    private BigDecimal totalOwed;
+    private BigDecimal totalOwes;
+    private BigDecimal net;
+    private List<GroupBalanceSummary> groups;
+}
@@ -0,0 +1,22 @@
+package com.splitsphere.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * One page of a keyset-paginated listing. The items are returned as the response body
+ * and the cursor for the following page, if any, in the {@value #NEXT_CURSOR_HEADER} header.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CursorPage<T> {
+    
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    
+    private List<T> items;
+    private String nextCursor;
+}
@@ -0,0 +1,20 @@
+package com.splitsphere.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ExpenseBatchRequest {
+    
+    @NotEmpty(message = "At least one expense is required")
+    @Size(max = 1000, message = "At most 1000 expenses can be created at once")
+    private List<@Valid ExpenseRequest> expenses;
+}
@@ -1,6 +1,7 @@
 package com.splitsphere.dto;
 
 import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.Digits;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotEmpty;
 import jakarta.validation.constraints.NotNull;
@@ -21,6 +22,7 @@ public class ExpenseRequest {
     
     @NotNull(message = "Amount is required")
     @DecimalMin(value = "0.01", message = "Amount must be greater than 0")
+    @Digits(integer = 17, fraction = 2, message = "Amount can have at most 2 decimal places")
     private BigDecimal amount;
     
     @NotNull(message = "Group ID is required")
@@ -0,0 +1,32 @@
+package com.splitsphere.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * The frozen view of a closed group: listings newest first, balances as the amounts each
+ * debtor still owes each creditor (positive pairs only).
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class GroupArchive {
+    private GroupResponse group;
+    private List<ExpenseResponse> expenses;
+    private List<SettlementResponse> settlements;
+    private List<Debt> balances;
+    private List<TransferResponse> transfers;
+    
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Debt {
+        private String debtorUserId;
+        private String creditorUserId;
+        private BigDecimal amount;
+    }
+}
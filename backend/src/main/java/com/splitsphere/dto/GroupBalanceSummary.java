@@ -0,0 +1,19 @@
+package com.splitsphere.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class GroupBalanceSummary {
+    private Long groupId;
+    private String groupName;
+    private Boolean closed;
+    private BigDecimal owed; // others owe the user
+    private BigDecimal owes; // the user owes others
+    private BigDecimal net; // owed - owes
+}
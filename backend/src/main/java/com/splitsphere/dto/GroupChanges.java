@@ -0,0 +1,33 @@
+package com.splitsphere.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * What changed in a group after a version the client already has. Expenses and settlements are
+ * upserts by id, tombstones are removals; {@code group} (members, closed state) is only set when
+ * it changed. Clients apply it to their copy and pass {@code version} as {@code since} next time.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class GroupChanges {
+    private Long groupId;
+    private long version;
+    private GroupResponse group;
+    private List<ExpenseResponse> expenses;
+    private List<SettlementResponse> settlements;
+    private List<Tombstone> deleted;
+    
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Tombstone {
+        private String type;
+        private Long id;
+        private long version;
+    }
+}
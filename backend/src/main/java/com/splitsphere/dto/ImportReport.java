@@ -0,0 +1,29 @@
+package com.splitsphere.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Outcome of a bulk import. {@code failed} counts every rejected row, while {@code errors}
+ * lists at most the first {@value #MAX_REPORTED_ERRORS} of them.
+ */
+@Data
+@NoArgsConstructor
+public class ImportReport {
+    
+    public static final int MAX_REPORTED_ERRORS = 1000;
+    
+    private int imported;
+    private int failed;
+    private List<ImportRowError> errors = new ArrayList<>();
+    
+    public void addError(long row, String message) {
+        failed++;
+        if (errors.size() < MAX_REPORTED_ERRORS) {
+            errors.add(new ImportRowError(row, message));
+        }
+    }
+}
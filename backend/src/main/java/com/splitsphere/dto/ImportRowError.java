@@ -0,0 +1,17 @@
+package com.splitsphere.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ImportRowError {
+    
+    /**
+     * Line number in the uploaded file (the CSV header is line 1).
+     */
+    private long row;
+    private String message;
+}
@@ -0,0 +1,23 @@
+package com.splitsphere.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * A report being generated in the background. Once {@code status} is DONE it can be downloaded
+ * from /api/reports/jobs/{id}/download; FAILED jobs carry an error message.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReportJobResponse {
+    private String id;
+    private Long groupId;
+    private String format;
+    private String status;
+    private String error;
+    private LocalDateTime createdAt;
+}
@@ -0,0 +1,18 @@
+package com.splitsphere.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TransferResponse {
+    private String fromUserId;
+    private String fromUserName;
+    private String toUserId;
+    private String toUserName;
+    private BigDecimal amount;
+}
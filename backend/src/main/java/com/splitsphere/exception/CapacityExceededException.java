@@ -0,0 +1,13 @@
+package com.splitsphere.exception;
+
+/**
+ * This instance is at a configured limit; the client should retry later or elsewhere.
+ */
+public class CapacityExceededException extends RuntimeException {
+    
+    private static final long serialVersionUID = 1L;
+    
+    public CapacityExceededException(String message) {
+        super(message);
+    }
+}
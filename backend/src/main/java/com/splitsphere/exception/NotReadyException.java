@@ -0,0 +1,13 @@
+package com.splitsphere.exception;
+
+/**
+ * The requested result is still being produced; the client should poll and ask again later.
+ */
+public class NotReadyException extends RuntimeException {
+    
+    private static final long serialVersionUID = 1L;
+    
+    public NotReadyException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,13 @@
+package com.splitsphere.exception;
+
+/**
+ * The user is at a per-user limit; they should wait for their earlier requests to finish.
+ */
+public class TooManyRequestsException extends RuntimeException {
+    
+    private static final long serialVersionUID = 1L;
+    
+    public TooManyRequestsException(String message) {
+        super(message);
+    }
+}
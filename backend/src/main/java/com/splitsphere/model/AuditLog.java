@@ -15,7 +15,8 @@ import java.time.LocalDateTime;
 public class AuditLog {
     
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "audit_logs_seq")
+    @SequenceGenerator(name = "audit_logs_seq", sequenceName = "audit_logs_seq", allocationSize = 50)
     private Long id;
     
     @Column(nullable = false)
@@ -0,0 +1,59 @@
+package com.splitsphere.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Net amount the debtor owes the creditor within a group.
+ * Every pair is stored in both directions (the reverse row holds the negated amount),
+ * so a user's balances are a single lookup on (group, debtor).
+ */
+@Entity
+@Table(name = "balance_ledger",
+    uniqueConstraints = @UniqueConstraint(name = BalanceLedgerEntry.PAIR_CONSTRAINT,
+            columnNames = {"group_id", "debtor_id", "creditor_id"}),
+    indexes = @Index(name = "idx_balance_ledger_group_debtor", columnList = "group_id, debtor_id")
+)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BalanceLedgerEntry {
+    
+    /**
+     * Violated when two writers create the row of the same pair at once.
+     */
+    public static final String PAIR_CONSTRAINT = "uk_balance_ledger_pair";
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @ManyToOne
+    @JoinColumn(name = "group_id", nullable = false)
+    private Group group;
+    
+    @ManyToOne
+    @JoinColumn(name = "debtor_id", nullable = false)
+    private User debtor;
+    
+    @ManyToOne
+    @JoinColumn(name = "creditor_id", nullable = false)
+    private User creditor;
+    
+    @Column(nullable = false, precision = 19, scale = 2)
+    private BigDecimal amount;
+    
+    @Column(nullable = false)
+    private LocalDateTime updatedAt;
+    
+    @PrePersist
+    @PreUpdate
+    protected void onUpdate() {
+        updatedAt = LocalDateTime.now();
+    }
+}
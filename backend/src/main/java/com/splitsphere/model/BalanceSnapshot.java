@@ -0,0 +1,59 @@
+package com.splitsphere.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Pairwise balances of a group covering every expense and settlement created at or
+ * before the watermark. Derived data: snapshots can be dropped and rebuilt at any time.
+ */
+@Entity
+@Table(name = "balance_snapshots",
+    indexes = @Index(name = "idx_balance_snapshots_group_watermark", columnList = "group_id, watermark")
+)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BalanceSnapshot {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @ManyToOne
+    @JoinColumn(name = "group_id", nullable = false)
+    private Group group;
+    
+    @Column(nullable = false)
+    private LocalDateTime watermark;
+    
+    // The group's version when the snapshot was taken; BalanceSnapshotScheduler counts writes from it
+    @Column(nullable = false)
+    private long groupVersion;
+    
+    @Column(nullable = false)
+    private int expenseCount;
+    
+    @Column(nullable = false)
+    private int settlementCount;
+    
+    @ElementCollection
+    @CollectionTable(name = "balance_snapshot_pairs", joinColumns = @JoinColumn(name = "snapshot_id"))
+    @lombok.EqualsAndHashCode.Exclude
+    @lombok.ToString.Exclude
+    private List<BalanceSnapshotPair> pairs = new ArrayList<>();
+    
+    @Column(nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+    
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+    }
+}
@@ -0,0 +1,28 @@
+package com.splitsphere.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Embeddable;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+/**
+ * One pair of a balance snapshot, stored once with {@code debtorId < creditorId}.
+ */
+@Embeddable
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BalanceSnapshotPair {
+    
+    @Column(name = "debtor_id", nullable = false)
+    private Long debtorId;
+    
+    @Column(name = "creditor_id", nullable = false)
+    private Long creditorId;
+    
+    @Column(nullable = false, precision = 19, scale = 2)
+    private BigDecimal amount;
+}
@@ -0,0 +1,35 @@
+package com.splitsphere.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Everything the read endpoints show about a closed group, serialized once when it was closed.
+ * Closed groups never change, so the payload is never updated.
+ */
+@Entity
+@Table(name = "closed_group_archives")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ClosedGroupArchive {
+    
+    @Id
+    @Column(name = "group_id")
+    private Long groupId;
+    
+    @Column(nullable = false, columnDefinition = "TEXT")
+    private String payload;
+    
+    @Column(nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+    
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+    }
+}
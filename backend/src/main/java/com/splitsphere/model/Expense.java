@@ -2,6 +2,7 @@ package com.splitsphere.model;
 
 import jakarta.persistence.*;
 import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.Digits;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
 import lombok.AllArgsConstructor;
@@ -21,7 +22,8 @@ import java.util.Set;
 public class Expense {
     
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "expenses_seq")
+    @SequenceGenerator(name = "expenses_seq", sequenceName = "expenses_seq", allocationSize = 50)
     private Long id;
     
     @NotBlank
@@ -30,6 +32,7 @@ public class Expense {
     
     @NotNull
     @DecimalMin(value = "0.01", message = "Amount must be greater than 0")
+    @Digits(integer = 17, fraction = 2, message = "Amount can have at most 2 decimal places")
     @Column(nullable = false, precision = 19, scale = 2)
     private BigDecimal amount;
     
@@ -41,7 +44,7 @@ public class Expense {
     @JoinColumn(name = "group_id", nullable = false)
     private Group group;
     
-    @ManyToMany(fetch = FetchType.EAGER)
+    @ManyToMany
     @JoinTable(
         name = "expense_participants",
         joinColumns = @JoinColumn(name = "expense_id"),
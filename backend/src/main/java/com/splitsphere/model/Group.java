@@ -33,7 +33,7 @@ public class Group {
     @JoinColumn(name = "creator_id", nullable = false)
     private User creator;
     
-    @ManyToMany(fetch = FetchType.EAGER)
+    @ManyToMany
     @JoinTable(
         name = "group_members",
         joinColumns = @JoinColumn(name = "group_id"),
@@ -62,6 +62,11 @@ public class Group {
     @Column(nullable = false, updatable = false)
     private LocalDateTime createdAt;
     
+    // Only ever changed by GroupRepository.incrementVersion, never written from the entity
+    @Column(nullable = false, insertable = false, updatable = false)
+    @lombok.EqualsAndHashCode.Exclude
+    private long version;
+    
     @PrePersist
     protected void onCreate() {
         createdAt = LocalDateTime.now();
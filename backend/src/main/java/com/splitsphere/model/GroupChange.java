@@ -0,0 +1,42 @@
+package com.splitsphere.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * One entry of a group's change log: an expense or settlement that was added (or, with
+ * {@code deleted}, removed), or a change to the group itself (members, closing), tagged with the
+ * group version it was committed at. Rows are only inserted, by GroupChangeRepository.
+ */
+@Entity
+@Table(name = "group_changes")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class GroupChange {
+    
+    public static final String GROUP = "GROUP";
+    public static final String EXPENSE = "EXPENSE";
+    public static final String SETTLEMENT = "SETTLEMENT";
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @Column(name = "group_id", nullable = false)
+    private Long groupId;
+    
+    @Column(nullable = false)
+    private long version;
+    
+    @Column(nullable = false, length = 20)
+    private String entityType;
+    
+    @Column(nullable = false)
+    private Long entityId;
+    
+    @Column(nullable = false)
+    private boolean deleted;
+}
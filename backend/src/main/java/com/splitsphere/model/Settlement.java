@@ -2,6 +2,7 @@ package com.splitsphere.model;
 
 import jakarta.persistence.*;
 import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.Digits;
 import jakarta.validation.constraints.NotNull;
 import lombok.AllArgsConstructor;
 import lombok.Data;
@@ -18,7 +19,8 @@ import java.time.LocalDateTime;
 public class Settlement {
     
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "settlements_seq")
+    @SequenceGenerator(name = "settlements_seq", sequenceName = "settlements_seq", allocationSize = 50)
     private Long id;
     
     @ManyToOne
@@ -35,6 +37,7 @@ public class Settlement {
     
     @NotNull
     @DecimalMin(value = "0.01", message = "Amount must be greater than 0")
+    @Digits(integer = 17, fraction = 2, message = "Amount can have at most 2 decimal places")
     @Column(nullable = false, precision = 19, scale = 2)
     private BigDecimal amount;
     
@@ -0,0 +1,69 @@
+package com.splitsphere.repository;
+
+import com.splitsphere.model.BalanceLedgerEntry;
+import com.splitsphere.model.Group;
+import com.splitsphere.model.User;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface BalanceLedgerRepository extends JpaRepository<BalanceLedgerEntry, Long> {
+    List<BalanceLedgerEntry> findByGroup(Group group);
+    
+    @Query("SELECT b FROM BalanceLedgerEntry b JOIN FETCH b.creditor WHERE b.group = :group AND b.debtor = :debtor")
+    List<BalanceLedgerEntry> findByGroupAndDebtor(@Param("group") Group group, @Param("debtor") User debtor);
+    
+    @Query("SELECT b FROM BalanceLedgerEntry b WHERE b.group.id = :groupId AND b.debtor = :debtor AND b.creditor = :creditor")
+    Optional<BalanceLedgerEntry> findEntry(@Param("groupId") Long groupId,
+                                           @Param("debtor") User debtor,
+                                           @Param("creditor") User creditor);
+    
+    /**
+     * Same as {@link #findEntry}, holding a row lock until the transaction ends.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT b FROM BalanceLedgerEntry b WHERE b.group.id = :groupId AND b.debtor = :debtor AND b.creditor = :creditor")
+    Optional<BalanceLedgerEntry> findEntryForUpdate(@Param("groupId") Long groupId,
+                                                    @Param("debtor") User debtor,
+                                                    @Param("creditor") User creditor);
+    
+    /**
+     * Every row of the group between two of the given users, locked in (debtor, creditor) order
+     * until the transaction ends.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT b FROM BalanceLedgerEntry b WHERE b.group.id = :groupId " +
+           "AND b.debtor.id IN :userIds AND b.creditor.id IN :userIds ORDER BY b.debtor.id, b.creditor.id")
+    List<BalanceLedgerEntry> findEntriesForUpdate(@Param("groupId") Long groupId,
+                                                  @Param("userIds") Collection<Long> userIds);
+    
+    /**
+     * Total each member owes the rest of the group: (debtor id, sum of amounts).
+     */
+    @Query("SELECT b.debtor.id, SUM(b.amount) FROM BalanceLedgerEntry b WHERE b.group = :group GROUP BY b.debtor.id")
+    List<Object[]> sumOwedByDebtor(@Param("group") Group group);
+    
+    /**
+     * Per-group totals for one user across all their groups:
+     * (group id, group name, closed, amount the user owes, amount owed to the user).
+     */
+    @Query("SELECT b.group.id, b.group.name, b.group.closed, " +
+           "SUM(CASE WHEN b.amount > 0 THEN b.amount ELSE 0 END), " +
+           "SUM(CASE WHEN b.amount < 0 THEN -b.amount ELSE 0 END) " +
+           "FROM BalanceLedgerEntry b WHERE b.debtor = :user " +
+           "GROUP BY b.group.id, b.group.name, b.group.closed ORDER BY b.group.id")
+    List<Object[]> summarizeByGroup(@Param("user") User user);
+    
+    @Modifying
+    @Query("DELETE FROM BalanceLedgerEntry b WHERE b.group = :group")
+    void deleteByGroup(@Param("group") Group group);
+}
@@ -0,0 +1,25 @@
+package com.splitsphere.repository;
+
+import com.splitsphere.model.BalanceSnapshot;
+import com.splitsphere.model.Group;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface BalanceSnapshotRepository extends JpaRepository<BalanceSnapshot, Long> {
+    Optional<BalanceSnapshot> findFirstByGroupOrderByWatermarkDesc(Group group);
+    List<BalanceSnapshot> findByGroup(Group group);
+    
+    /**
+     * Groups whose version has moved on by at least {@code writes} since their latest snapshot
+     * (or since they were created, when they have none).
+     */
+    @Query("SELECT g.id FROM Group g WHERE g.version - COALESCE((SELECT MAX(s.groupVersion) " +
+           "FROM BalanceSnapshot s WHERE s.group = g), 0) >= :writes ORDER BY g.id")
+    List<Long> findGroupIdsWrittenSinceSnapshot(@Param("writes") long writes);
+}
@@ -0,0 +1,9 @@
+package com.splitsphere.repository;
+
+import com.splitsphere.model.ClosedGroupArchive;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface ClosedGroupArchiveRepository extends JpaRepository<ClosedGroupArchive, Long> {
+}
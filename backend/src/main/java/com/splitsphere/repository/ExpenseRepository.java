@@ -3,18 +3,76 @@ package com.splitsphere.repository;
 import com.splitsphere.model.Expense;
 import com.splitsphere.model.Group;
 import com.splitsphere.model.User;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
 public interface ExpenseRepository extends JpaRepository<Expense, Long> {
     List<Expense> findByGroup(Group group);
+    
+    @EntityGraph(attributePaths = {"payer", "participants"})
     List<Expense> findByGroupOrderByCreatedAtDesc(Group group);
     
+    /**
+     * First page of a group's expenses, newest first. Participants are batch-loaded
+     * afterwards; fetching the collection here would make Hibernate page in memory.
+     */
+    @EntityGraph(attributePaths = "payer")
+    @Query("SELECT e FROM Expense e WHERE e.group = :group ORDER BY e.createdAt DESC, e.id DESC")
+    List<Expense> findFirstPage(@Param("group") Group group, Limit limit);
+    
+    /**
+     * Expenses ordered after the (createdAt, id) keyset position, newest first.
+     */
+    @EntityGraph(attributePaths = "payer")
+    @Query("SELECT e FROM Expense e WHERE e.group = :group " +
+           "AND (e.createdAt < :createdAt OR (e.createdAt = :createdAt AND e.id < :id)) " +
+           "ORDER BY e.createdAt DESC, e.id DESC")
+    List<Expense> findPageBefore(@Param("group") Group group,
+                                 @Param("createdAt") LocalDateTime createdAt,
+                                 @Param("id") Long id,
+                                 Limit limit);
+    
+    /**
+     * The given expenses of a group, newest first; participants are batch-loaded afterwards.
+     */
+    @EntityGraph(attributePaths = "payer")
+    @Query("SELECT e FROM Expense e WHERE e.group = :group AND e.id IN :ids ORDER BY e.createdAt DESC, e.id DESC")
+    List<Expense> findByGroupAndIds(@Param("group") Group group, @Param("ids") Collection<Long> ids);
+    
+    long countByGroupAndCreatedAtGreaterThanAndCreatedAtLessThanEqual(Group group, LocalDateTime from, LocalDateTime to);
+    
     @Query("SELECT e FROM Expense e WHERE e.group = :group AND (e.payer = :user OR :user MEMBER OF e.participants)")
     List<Expense> findByGroupAndUser(@Param("group") Group group, @Param("user") User user);
+    
+    /**
+     * Expense shares of a group created in (from, to], grouped by everything the rounded
+     * per-person share depends on: (debtor id, creditor id, amount, participant count, multiplicity).
+     * The share itself is rounded in Java so results match the per-expense HALF_UP rule exactly.
+     * Participants are only counted for the expenses in the window, so the cost follows the
+     * window rather than the whole table.
+     */
+    @Query(value = "SELECT ep.user_id, e.payer_id, e.amount, c.participants, COUNT(*) " +
+                   "FROM expenses e " +
+                   "JOIN expense_participants ep ON ep.expense_id = e.id " +
+                   "JOIN (SELECT p.expense_id, COUNT(*) AS participants FROM expense_participants p " +
+                   "JOIN expenses w ON w.id = p.expense_id " +
+                   "WHERE w.group_id = :groupId AND w.created_at > :from AND w.created_at <= :to " +
+                   "GROUP BY p.expense_id) c " +
+                   "ON c.expense_id = e.id " +
+                   "WHERE e.group_id = :groupId AND e.created_at > :from AND e.created_at <= :to " +
+                   "AND ep.user_id <> e.payer_id " +
+                   "GROUP BY ep.user_id, e.payer_id, e.amount, c.participants",
+           nativeQuery = true)
+    List<Object[]> aggregateShares(@Param("groupId") Long groupId,
+                                   @Param("from") LocalDateTime from,
+                                   @Param("to") LocalDateTime to);
 }
@@ -0,0 +1,39 @@
+package com.splitsphere.repository;
+
+import com.splitsphere.model.GroupChange;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface GroupChangeRepository extends JpaRepository<GroupChange, Long> {
+    
+    /**
+     * Changes committed in the version range (since, until], oldest first.
+     */
+    @Query("SELECT c FROM GroupChange c WHERE c.groupId = :groupId AND c.version > :since AND c.version <= :until " +
+           "ORDER BY c.version, c.id")
+    List<GroupChange> findChanges(@Param("groupId") Long groupId,
+                                  @Param("since") long since,
+                                  @Param("until") long until);
+    
+    /**
+     * Log the given expenses of a group with one statement, however many there are.
+     */
+    @Modifying
+    @Query(value = "INSERT INTO group_changes (group_id, version, entity_type, entity_id, deleted) " +
+                   "SELECT group_id, :version, 'EXPENSE', id, false FROM expenses WHERE group_id = :groupId AND id IN (:ids)",
+           nativeQuery = true)
+    void logExpenses(@Param("groupId") Long groupId, @Param("version") long version, @Param("ids") Collection<Long> ids);
+    
+    @Modifying
+    @Query(value = "INSERT INTO group_changes (group_id, version, entity_type, entity_id, deleted) " +
+                   "SELECT group_id, :version, 'SETTLEMENT', id, false FROM settlements WHERE group_id = :groupId AND id IN (:ids)",
+           nativeQuery = true)
+    void logSettlements(@Param("groupId") Long groupId, @Param("version") long version, @Param("ids") Collection<Long> ids);
+}
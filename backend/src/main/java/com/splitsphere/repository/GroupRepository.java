@@ -2,7 +2,13 @@ package com.splitsphere.repository;
 
 import com.splitsphere.model.Group;
 import com.splitsphere.model.User;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -11,6 +17,37 @@ import java.util.Optional;
 @Repository
 public interface GroupRepository extends JpaRepository<Group, Long> {
     Optional<Group> findByJoinCode(String joinCode);
+    
+    @EntityGraph(attributePaths = {"creator", "members"})
     List<Group> findByMembersContaining(User user);
+    
+    @EntityGraph(attributePaths = {"creator", "members"})
+    Optional<Group> findWithMembersById(Long id);
+    
+    /**
+     * The group, holding a row lock until the transaction ends. Every write to a group takes it
+     * before checking {@code closed}, and closing takes it too, so nothing commits to a group
+     * after it was closed (and archived).
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT g FROM Group g WHERE g.id = :id")
+    Optional<Group> findForUpdateById(@Param("id") Long id);
+    
+    /**
+     * Same as {@link #findForUpdateById}, by join code.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT g FROM Group g WHERE g.joinCode = :joinCode")
+    Optional<Group> findForUpdateByJoinCode(@Param("joinCode") String joinCode);
+    
     boolean existsByJoinCode(String joinCode);
+    
+    boolean existsByIdAndMembers_UserId(Long id, String userId);
+    
+    @Query("SELECT g.version FROM Group g WHERE g.id = :id")
+    Optional<Long> findVersionById(@Param("id") Long id);
+    
+    @Modifying
+    @Query("UPDATE Group g SET g.version = g.version + 1 WHERE g.id = :id")
+    void incrementVersion(@Param("id") Long id);
 }
@@ -2,12 +2,51 @@ package com.splitsphere.repository;
 
 import com.splitsphere.model.Group;
 import com.splitsphere.model.Settlement;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
 public interface SettlementRepository extends JpaRepository<Settlement, Long> {
+    @EntityGraph(attributePaths = {"payer", "payee"})
     List<Settlement> findByGroupOrderByCreatedAtDesc(Group group);
+    
+    @EntityGraph(attributePaths = {"payer", "payee"})
+    @Query("SELECT s FROM Settlement s WHERE s.group = :group ORDER BY s.createdAt DESC, s.id DESC")
+    List<Settlement> findFirstPage(@Param("group") Group group, Limit limit);
+    
+    /**
+     * Settlements ordered after the (createdAt, id) keyset position, newest first.
+     */
+    @EntityGraph(attributePaths = {"payer", "payee"})
+    @Query("SELECT s FROM Settlement s WHERE s.group = :group " +
+           "AND (s.createdAt < :createdAt OR (s.createdAt = :createdAt AND s.id < :id)) " +
+           "ORDER BY s.createdAt DESC, s.id DESC")
+    List<Settlement> findPageBefore(@Param("group") Group group,
+                                    @Param("createdAt") LocalDateTime createdAt,
+                                    @Param("id") Long id,
+                                    Limit limit);
+    
+    @EntityGraph(attributePaths = {"payer", "payee"})
+    @Query("SELECT s FROM Settlement s WHERE s.group = :group AND s.id IN :ids ORDER BY s.createdAt DESC, s.id DESC")
+    List<Settlement> findByGroupAndIds(@Param("group") Group group, @Param("ids") Collection<Long> ids);
+    
+    long countByGroupAndCreatedAtGreaterThanAndCreatedAtLessThanEqual(Group group, LocalDateTime from, LocalDateTime to);
+    
+    /**
+     * Settled totals of a group created in (from, to]: (payer id, payee id, sum of amounts).
+     */
+    @Query("SELECT s.payer.id, s.payee.id, SUM(s.amount) FROM Settlement s " +
+           "WHERE s.group.id = :groupId AND s.createdAt > :from AND s.createdAt <= :to " +
+           "GROUP BY s.payer.id, s.payee.id")
+    List<Object[]> aggregateSettlements(@Param("groupId") Long groupId,
+                                        @Param("from") LocalDateTime from,
+                                        @Param("to") LocalDateTime to);
 }
@@ -0,0 +1,81 @@
+package com.splitsphere.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.Date;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Keeps the monthly partitions of a range-partitioned {@code audit_logs} table (the "partitioned"
+ * profile on PostgreSQL) in shape, on startup and every night: partitions are created
+ * {@code audit.partitions.months-ahead} months in advance, and with
+ * {@code audit.partitions.retention-months} set, months older than that are detached. A detached
+ * partition is an ordinary table again, so it can be archived or dropped without touching the
+ * live table.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty("audit.partitions.enabled")
+@RequiredArgsConstructor
+public class AuditLogPartitionMaintenance implements ApplicationRunner {
+    
+    private static final Pattern MONTHLY_PARTITION = Pattern.compile("audit_logs_(\\d{4})_(\\d{2})");
+    
+    private final JdbcTemplate jdbcTemplate;
+    
+    @Value("${audit.partitions.months-ahead:3}")
+    private int monthsAhead;
+    
+    @Value("${audit.partitions.retention-months:0}")
+    private int retentionMonths;
+    
+    @Override
+    public void run(ApplicationArguments args) {
+        maintain();
+    }
+    
+    @Scheduled(cron = "0 0 3 * * *")
+    public void maintain() {
+        YearMonth now = YearMonth.now();
+        jdbcTemplate.queryForList("select create_audit_log_partitions(?, ?)",
+                Date.valueOf(now.atDay(1)), monthsAhead + 1);
+        
+        if (retentionMonths > 0) {
+            List<String> partitions = jdbcTemplate.queryForList(
+                    "select c.relname from pg_inherits i " +
+                    "join pg_class c on c.oid = i.inhrelid " +
+                    "join pg_class p on p.oid = i.inhparent " +
+                    "where p.relname = 'audit_logs'", String.class);
+            for (String partition : expiredPartitions(partitions, now, retentionMonths)) {
+                jdbcTemplate.execute("alter table audit_logs detach partition " + partition);
+                log.info("Detached audit log partition {}", partition);
+            }
+        }
+    }
+    
+    /**
+     * The monthly partitions entirely before the retention window ending with the current month.
+     */
+    static List<String> expiredPartitions(List<String> partitions, YearMonth now, int retentionMonths) {
+        YearMonth oldestKept = now.minusMonths(retentionMonths);
+        return partitions.stream()
+                .filter(partition -> {
+                    Matcher matcher = MONTHLY_PARTITION.matcher(partition);
+                    return matcher.matches() && YearMonth.of(Integer.parseInt(matcher.group(1)),
+                            Integer.parseInt(matcher.group(2))).isBefore(oldestKept);
+                })
+                .sorted()
+                .toList();
+    }
+}
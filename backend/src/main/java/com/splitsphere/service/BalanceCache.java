@@ -0,0 +1,82 @@
+package com.splitsphere.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.splitsphere.dto.BalanceResponse;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Bounded in-memory cache of ledger reads, keyed by group and the group's {@code version}
+ * column.
+ * <p>
+ * Every write to a group bumps the column in the writing transaction, so entries computed
+ * before the write are never served again, on this instance or any other, and simply age out.
+ * Callers read the version in the same transaction as the ledger, and before it: the ledger
+ * they load is then at least as new as the key it is stored under, even on a read replica
+ * that lags behind the primary. Reads inside a read-write transaction may see changes that
+ * are not committed yet and bypass the cache.
+ * Hit, miss and eviction counts are published as {@code cache.*} metrics.
+ */
+@Component
+public class BalanceCache implements MeterBinder {
+    
+    private final Cache<GroupBalancesKey, List<BalanceResponse>> groupBalances;
+    private final Cache<PairKey, BigDecimal> pairBalances;
+    
+    public BalanceCache(@Value("${balances.cache.max-size:10000}") long maxSize,
+                        @Value("${balances.cache.ttl-seconds:300}") long ttlSeconds) {
+        this.groupBalances = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .recordStats()
+                .build();
+        this.pairBalances = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .recordStats()
+                .build();
+    }
+    
+    public List<BalanceResponse> groupBalances(Long groupId, long version, Long userId,
+                                               Supplier<List<BalanceResponse>> loader) {
+        if (mayReadUncommitted()) {
+            return List.copyOf(loader.get());
+        }
+        return groupBalances.get(new GroupBalancesKey(groupId, version, userId), k -> List.copyOf(loader.get()));
+    }
+    
+    public BigDecimal pairBalance(Long groupId, long version, Long payerId, Long payeeId,
+                                  Supplier<BigDecimal> loader) {
+        if (mayReadUncommitted()) {
+            return loader.get();
+        }
+        return pairBalances.get(new PairKey(groupId, version, payerId, payeeId), k -> loader.get());
+    }
+    
+    private boolean mayReadUncommitted() {
+        return TransactionSynchronizationManager.isActualTransactionActive()
+                && !TransactionSynchronizationManager.isCurrentTransactionReadOnly();
+    }
+    
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, groupBalances, "balances.group");
+        CaffeineCacheMetrics.monitor(registry, pairBalances, "balances.pair");
+    }
+    
+    private record GroupBalancesKey(Long groupId, long version, Long userId) {
+    }
+    
+    private record PairKey(Long groupId, long version, Long payerId, Long payeeId) {
+    }
+}
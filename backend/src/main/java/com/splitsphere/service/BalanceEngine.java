@@ -0,0 +1,223 @@
+package com.splitsphere.service;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+
+/**
+ * Allocation-light balance calculator working on long cents.
+ * Members are mapped to dense indexes (their position in the sorted id array) through a
+ * small hash table, pairwise balances live in an open-addressing table keyed by the index
+ * pair, and amounts are only converted back to BigDecimal by the caller when building
+ * DTOs or ledger rows.
+ * Not thread-safe; create one per computation.
+ */
+final class BalanceEngine {
+    
+    private static final long EMPTY = -1L;
+    
+    private final long[] memberIds;
+    private final long[] indexKeys;
+    private final int[] indexSlots;
+    private final long[] net;
+    
+    private long[] pairKeys;
+    private long[] pairValues;
+    private int pairCount;
+    
+    BalanceEngine(long[] memberIds) {
+        this.memberIds = memberIds.clone();
+        Arrays.sort(this.memberIds);
+        this.net = new long[this.memberIds.length];
+        
+        // id -> index lookup table, kept at most half full
+        int indexCapacity = tableSize(this.memberIds.length * 2);
+        this.indexKeys = new long[indexCapacity];
+        this.indexSlots = new int[indexCapacity];
+        Arrays.fill(indexKeys, EMPTY);
+        for (int i = 0; i < this.memberIds.length; i++) {
+            int slot = mix(this.memberIds[i]) & (indexCapacity - 1);
+            while (indexKeys[slot] != EMPTY) {
+                slot = (slot + 1) & (indexCapacity - 1);
+            }
+            indexKeys[slot] = this.memberIds[i];
+            indexSlots[slot] = i;
+        }
+        
+        long maxPairs = (long) this.memberIds.length * (this.memberIds.length - 1) / 2;
+        int pairCapacity = tableSize((int) Math.min(maxPairs, this.memberIds.length * 8L) * 2);
+        this.pairKeys = new long[pairCapacity];
+        this.pairValues = new long[pairCapacity];
+        Arrays.fill(pairKeys, EMPTY);
+    }
+    
+    int size() {
+        return memberIds.length;
+    }
+    
+    long memberId(int index) {
+        return memberIds[index];
+    }
+    
+    /**
+     * Dense index of a member, or -1 if the id is not part of this engine.
+     */
+    int indexOf(long memberId) {
+        int mask = indexKeys.length - 1;
+        for (int slot = mix(memberId) & mask; indexKeys[slot] != EMPTY; slot = (slot + 1) & mask) {
+            if (indexKeys[slot] == memberId) {
+                return indexSlots[slot];
+            }
+        }
+        return -1;
+    }
+    
+    /**
+     * Every participant other than the payer owes the payer their HALF_UP rounded share.
+     */
+    void addExpense(int payer, int[] participants, int participantCount, long amountCents) {
+        if (participantCount == 0) {
+            return;
+        }
+        long share = perPersonCents(amountCents, participantCount);
+        for (int i = 0; i < participantCount; i++) {
+            if (participants[i] != payer) {
+                addOwed(participants[i], payer, share);
+            }
+        }
+    }
+    
+    /**
+     * The payer's debt to the payee is reduced by the settled amount.
+     */
+    void addSettlement(int payer, int payee, long amountCents) {
+        addOwed(payer, payee, -amountCents);
+    }
+    
+    void addOwed(int debtor, int creditor, long cents) {
+        if (debtor < creditor) {
+            addToPair(debtor, creditor, cents);
+        } else {
+            addToPair(creditor, debtor, -cents);
+        }
+        net[debtor] -= cents;
+        net[creditor] += cents;
+    }
+    
+    /**
+     * Net amount the debtor owes the creditor; negative when the creditor owes the debtor.
+     */
+    long owed(int debtor, int creditor) {
+        if (debtor < creditor) {
+            return pairValue(debtor, creditor);
+        }
+        return -pairValue(creditor, debtor);
+    }
+    
+    /**
+     * Net position of a member across the group: positive when the others owe them.
+     */
+    long net(int member) {
+        return net[member];
+    }
+    
+    /**
+     * Visit every pair that has had any activity, including pairs that have netted to zero.
+     * The pair is reported once with {@code low < high} and what low owes high.
+     */
+    void forEachPair(PairVisitor visitor) {
+        int size = memberIds.length;
+        for (int slot = 0; slot < pairKeys.length; slot++) {
+            long key = pairKeys[slot];
+            if (key != EMPTY) {
+                visitor.visit((int) (key / size), (int) (key % size), pairValues[slot]);
+            }
+        }
+    }
+    
+    int pairCount() {
+        return pairCount;
+    }
+    
+    static long perPersonCents(long amountCents, int participantCount) {
+        long abs = Math.abs(amountCents);
+        long share = abs / participantCount;
+        if (2 * (abs % participantCount) >= participantCount) {
+            share++;
+        }
+        return amountCents < 0 ? -share : share;
+    }
+    
+    /**
+     * Amounts are validated to at most two decimals, so this never rounds: splitting a rounded
+     * amount could differ by a cent from the per-person amount shown for the expense.
+     */
+    static long toCents(BigDecimal amount) {
+        return amount.movePointRight(2).longValueExact();
+    }
+    
+    static BigDecimal toAmount(long cents) {
+        return BigDecimal.valueOf(cents, 2);
+    }
+    
+    private long pairValue(int low, int high) {
+        long key = (long) low * memberIds.length + high;
+        int mask = pairKeys.length - 1;
+        for (int slot = mix(key) & mask; pairKeys[slot] != EMPTY; slot = (slot + 1) & mask) {
+            if (pairKeys[slot] == key) {
+                return pairValues[slot];
+            }
+        }
+        return 0L;
+    }
+    
+    private void addToPair(int low, int high, long cents) {
+        long key = (long) low * memberIds.length + high;
+        int mask = pairKeys.length - 1;
+        int slot = mix(key) & mask;
+        while (pairKeys[slot] != EMPTY) {
+            if (pairKeys[slot] == key) {
+                pairValues[slot] += cents;
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        pairKeys[slot] = key;
+        pairValues[slot] = cents;
+        if (++pairCount * 2 > pairKeys.length) {
+            grow();
+        }
+    }
+    
+    private void grow() {
+        long[] oldKeys = pairKeys;
+        long[] oldValues = pairValues;
+        pairKeys = new long[oldKeys.length * 2];
+        pairValues = new long[oldValues.length * 2];
+        Arrays.fill(pairKeys, EMPTY);
+        int mask = pairKeys.length - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY) {
+                int slot = mix(oldKeys[i]) & mask;
+                while (pairKeys[slot] != EMPTY) {
+                    slot = (slot + 1) & mask;
+                }
+                pairKeys[slot] = oldKeys[i];
+                pairValues[slot] = oldValues[i];
+            }
+        }
+    }
+    
+    private static int tableSize(int minimum) {
+        return Integer.highestOneBit(Math.max(16, minimum) - 1) << 1;
+    }
+    
+    private static int mix(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+    
+    @FunctionalInterface
+    interface PairVisitor {
+        void visit(int low, int high, long lowOwesHigh);
+    }
+}
@@ -1,19 +1,31 @@
 package com.splitsphere.service;
 
 import com.splitsphere.dto.BalanceResponse;
+import com.splitsphere.dto.BalanceSummaryResponse;
+import com.splitsphere.dto.GroupArchive;
+import com.splitsphere.dto.GroupBalanceSummary;
+import com.splitsphere.dto.TransferResponse;
+import com.splitsphere.model.BalanceLedgerEntry;
+import com.splitsphere.model.BalanceSnapshot;
+import com.splitsphere.model.BalanceSnapshotPair;
 import com.splitsphere.model.Expense;
 import com.splitsphere.model.Group;
 import com.splitsphere.model.Settlement;
 import com.splitsphere.model.User;
+import com.splitsphere.repository.BalanceLedgerRepository;
+import com.splitsphere.repository.BalanceSnapshotRepository;
 import com.splitsphere.repository.ExpenseRepository;
 import com.splitsphere.repository.GroupRepository;
 import com.splitsphere.repository.SettlementRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
+import java.time.LocalDateTime;
 import java.util.*;
 
 @Service
@@ -23,7 +35,24 @@ public class BalanceService {
     private final ExpenseRepository expenseRepository;
     private final GroupRepository groupRepository;
     private final SettlementRepository settlementRepository;
+    private final BalanceLedgerRepository balanceLedgerRepository;
+    private final BalanceSnapshotRepository balanceSnapshotRepository;
     private final UserService userService;
+    private final BalanceCache balanceCache;
+    private final ApplicationEventPublisher eventPublisher;
+    
+    // Open bounds for the (from, to] history windows of the aggregate queries
+    private static final LocalDateTime HISTORY_START = LocalDateTime.of(1970, 1, 1, 0, 0);
+    private static final LocalDateTime HISTORY_END = LocalDateTime.of(9999, 12, 31, 0, 0);
+    
+    @Value("${balances.simplify.exact-max-members:16}")
+    private int simplifyExactMaxMembers;
+    
+    @Value("${balances.simplify.time-budget-ms:200}")
+    private long simplifyTimeBudgetMs;
+    
+    @Value("${balances.snapshot.grace-seconds:60}")
+    private long snapshotGraceSeconds;
     
     @Transactional(readOnly = true)
     public List<BalanceResponse> getGroupBalances(Long groupId, String userId) {
@@ -36,58 +65,16 @@ public class BalanceService {
             throw new IllegalArgumentException("User is not a member of this group");
         }
         
-        List<Expense> expenses = expenseRepository.findByGroup(group);
-        List<Settlement> settlements = settlementRepository.findByGroupOrderByCreatedAtDesc(group);
-        
-        // Calculate balances for each user relative to current user
-        Map<User, BigDecimal> balances = new HashMap<>();
-        
-        // Process expenses
-        for (Expense expense : expenses) {
-            User payer = expense.getPayer();
-            Set<User> participants = expense.getParticipants();
-            
-            if (participants.isEmpty()) {
-                continue;
-            }
-            
-            BigDecimal perPersonAmount = expense.getAmount()
-                    .divide(BigDecimal.valueOf(participants.size()), 2, RoundingMode.HALF_UP);
-            
-            for (User participant : participants) {
-                if (!participant.equals(payer)) {
-                    // Participant owes payer
-                    if (participant.equals(currentUser)) {
-                        // Current user owes payer
-                        balances.merge(payer, perPersonAmount.negate(), BigDecimal::add);
-                    } else if (payer.equals(currentUser)) {
-                        // Participant owes current user
-                        balances.merge(participant, perPersonAmount, BigDecimal::add);
-                    }
-                }
-            }
-        }
-        
-        // Process settlements
-        for (Settlement settlement : settlements) {
-            User payer = settlement.getPayer();
-            User payee = settlement.getPayee();
-            BigDecimal amount = settlement.getAmount();
-            
-            // Settlement means payer paid payee, so payer's debt to payee is reduced
-            if (payer.equals(currentUser)) {
-                // Current user paid someone, so current user owes them less (add positive amount)
-                balances.merge(payee, amount, BigDecimal::add);
-            } else if (payee.equals(currentUser)) {
-                // Someone paid current user, so current user owes them less (subtract amount, making it less negative)
-                balances.merge(payer, amount.negate(), BigDecimal::add);
-            }
-        }
-        
+        return balanceCache.groupBalances(groupId, group.getVersion(), currentUser.getId(),
+                () -> loadGroupBalances(group, currentUser));
+    }
+    
+    private List<BalanceResponse> loadGroupBalances(Group group, User currentUser) {
+        // Each row holds what the current user owes the other member
         List<BalanceResponse> responses = new ArrayList<>();
-        for (Map.Entry<User, BigDecimal> entry : balances.entrySet()) {
-            User user = entry.getKey();
-            BigDecimal balance = entry.getValue();
+        for (BalanceLedgerEntry entry : balanceLedgerRepository.findByGroupAndDebtor(group, currentUser)) {
+            User user = entry.getCreditor();
+            BigDecimal balance = entry.getAmount().negate();
             
             if (balance.compareTo(BigDecimal.ZERO) != 0) {
                 BalanceResponse response = new BalanceResponse();
@@ -102,6 +89,86 @@ public class BalanceService {
         return responses;
     }
     
+    /**
+     * Net owed/owing for the user in every group they have balances in, plus overall totals,
+     * computed with a single aggregate query over the ledger.
+     */
+    @Transactional(readOnly = true)
+    public BalanceSummaryResponse getUserBalanceSummary(String userId) {
+        User currentUser = userService.getUserByUserId(userId);
+        
+        BigDecimal totalOwed = BigDecimal.ZERO.setScale(2);
+        BigDecimal totalOwes = BigDecimal.ZERO.setScale(2);
+        List<GroupBalanceSummary> groups = new ArrayList<>();
+        for (Object[] row : balanceLedgerRepository.summarizeByGroup(currentUser)) {
+            BigDecimal owes = ((BigDecimal) row[3]).setScale(2, RoundingMode.HALF_UP);
+            BigDecimal owed = ((BigDecimal) row[4]).setScale(2, RoundingMode.HALF_UP);
+            groups.add(new GroupBalanceSummary((Long) row[0], (String) row[1], (Boolean) row[2],
+                    owed, owes, owed.subtract(owes)));
+            totalOwed = totalOwed.add(owed);
+            totalOwes = totalOwes.add(owes);
+        }
+        
+        return new BalanceSummaryResponse(totalOwed, totalOwes, totalOwed.subtract(totalOwes), groups);
+    }
+    
+    /**
+     * Suggest a minimal (or, for large groups, near-minimal) set of payments that settles
+     * every balance in the group, based on each member's net position in the ledger.
+     */
+    @Transactional(readOnly = true)
+    public List<TransferResponse> getSimplifiedTransfers(Long groupId, String userId) {
+        User currentUser = userService.getUserByUserId(userId);
+        
+        Group group = groupRepository.findById(groupId)
+                .orElseThrow(() -> new IllegalArgumentException("Group not found"));
+        
+        if (!group.getMembers().contains(currentUser)) {
+            throw new IllegalArgumentException("User is not a member of this group");
+        }
+        
+        List<User> members = new ArrayList<>(group.getMembers());
+        BalanceEngine engine = new BalanceEngine(members.stream().mapToLong(User::getId).toArray());
+        User[] users = new User[engine.size()];
+        for (User member : members) {
+            users[engine.indexOf(member.getId())] = member;
+        }
+        
+        // Positive net means the member is owed money
+        long[] net = new long[engine.size()];
+        for (Object[] row : balanceLedgerRepository.sumOwedByDebtor(group)) {
+            int index = engine.indexOf((Long) row[0]);
+            if (index >= 0) {
+                net[index] = -BalanceEngine.toCents((BigDecimal) row[1]);
+            }
+        }
+        
+        long deadline = System.nanoTime() + simplifyTimeBudgetMs * 1_000_000L;
+        List<TransferResponse> responses = new ArrayList<>();
+        for (DebtSimplifier.Transfer transfer : DebtSimplifier.simplify(net, simplifyExactMaxMembers, deadline)) {
+            User from = users[transfer.from()];
+            User to = users[transfer.to()];
+            responses.add(new TransferResponse(from.getUserId(), from.getAccountName(),
+                    to.getUserId(), to.getAccountName(), BalanceEngine.toAmount(transfer.cents())));
+        }
+        
+        return responses;
+    }
+    
+    /**
+     * Every amount still owed in the group, one entry per (debtor, creditor) pair with a positive balance.
+     */
+    @Transactional(readOnly = true)
+    public List<GroupArchive.Debt> getDebts(Group group) {
+        List<GroupArchive.Debt> debts = new ArrayList<>();
+        for (BalanceLedgerEntry entry : balanceLedgerRepository.findByGroup(group)) {
+            if (entry.getAmount().signum() > 0) {
+                debts.add(new GroupArchive.Debt(entry.getDebtor().getUserId(), entry.getCreditor().getUserId(), entry.getAmount()));
+            }
+        }
+        return debts;
+    }
+    
     /**
      * Calculate how much payer owes to payee in a specific group.
      * Positive value means payer owes payee.
@@ -109,54 +176,350 @@ public class BalanceService {
      */
     @Transactional(readOnly = true)
     public BigDecimal calculateBalanceBetweenUsers(Long groupId, User payer, User payee) {
+        long version = groupRepository.findVersionById(groupId)
+                .orElseThrow(() -> new IllegalArgumentException("Group not found"));
+        return balanceCache.pairBalance(groupId, version, payer.getId(), payee.getId(),
+                () -> balanceLedgerRepository.findEntry(groupId, payer, payee)
+                        .map(BalanceLedgerEntry::getAmount)
+                        .orElse(BigDecimal.ZERO));
+    }
+    
+    /**
+     * Same as {@link #calculateBalanceBetweenUsers}, but locks both ledger rows of the pair until
+     * the caller's transaction ends, so concurrent settlements and expenses on the pair queue up
+     * behind it instead of validating against a stale balance.
+     */
+    @Transactional
+    public BigDecimal lockBalanceBetweenUsers(Long groupId, User payer, User payee) {
+        Optional<BalanceLedgerEntry> entry;
+        if (payer.getId() < payee.getId()) {
+            entry = balanceLedgerRepository.findEntryForUpdate(groupId, payer, payee);
+            balanceLedgerRepository.findEntryForUpdate(groupId, payee, payer);
+        } else {
+            balanceLedgerRepository.findEntryForUpdate(groupId, payee, payer);
+            entry = balanceLedgerRepository.findEntryForUpdate(groupId, payer, payee);
+        }
+        return entry.map(BalanceLedgerEntry::getAmount).orElse(BigDecimal.ZERO);
+    }
+    
+    /**
+     * Apply a newly created expense to the ledger: every participant other than
+     * the payer owes the payer their share.
+     */
+    @Transactional
+    public void recordExpense(Expense expense) {
+        if (expense.getParticipants().isEmpty()) {
+            return;
+        }
+        recordExpenses(expense.getGroup(), List.of(expense));
+    }
+    
+    /**
+     * Apply a batch of newly created expenses of one group to the ledger. Shares are summed per
+     * pair first, and the rows between the users involved are locked with one query, so the
+     * statement count does not grow with the number of expenses or participants.
+     */
+    @Transactional
+    public void recordExpenses(Group group, List<Expense> expenses) {
+        if (expenses.isEmpty()) {
+            return;
+        }
+        
+        Map<Long, User> users = new HashMap<>();
+        for (Expense expense : expenses) {
+            users.put(expense.getPayer().getId(), expense.getPayer());
+            expense.getParticipants().forEach(participant -> users.put(participant.getId(), participant));
+        }
+        BalanceEngine engine = new BalanceEngine(users.keySet().stream().mapToLong(Long::longValue).toArray());
+        for (Expense expense : expenses) {
+            int[] participants = expense.getParticipants().stream()
+                    .mapToInt(participant -> memberIndex(engine, participant))
+                    .toArray();
+            engine.addExpense(memberIndex(engine, expense.getPayer()), participants, participants.length,
+                    BalanceEngine.toCents(expense.getAmount()));
+        }
+        
+        // Rows come back locked in (debtor, creditor) order, the same order lockBalanceBetweenUsers
+        // takes, so concurrent writers cannot deadlock
+        Map<List<Long>, BalanceLedgerEntry> entries = new HashMap<>();
+        for (BalanceLedgerEntry entry : balanceLedgerRepository.findEntriesForUpdate(group.getId(), users.keySet())) {
+            entries.put(List.of(entry.getDebtor().getId(), entry.getCreditor().getId()), entry);
+        }
+        List<BalanceLedgerEntry> changed = new ArrayList<>();
+        engine.forEachPair((low, high, lowOwesHigh) -> {
+            if (lowOwesHigh != 0) {
+                User debtor = users.get(engine.memberId(low));
+                User creditor = users.get(engine.memberId(high));
+                BigDecimal amount = BalanceEngine.toAmount(lowOwesHigh);
+                changed.add(adjust(entries, group, debtor, creditor, amount));
+                changed.add(adjust(entries, group, creditor, debtor, amount.negate()));
+            }
+        });
+        balanceLedgerRepository.saveAll(changed);
+        eventPublisher.publishEvent(new GroupChangedEvent(group.getId()));
+    }
+    
+    /**
+     * Apply a newly created settlement to the ledger: the payer's debt to the payee is reduced.
+     */
+    @Transactional
+    public void recordSettlement(Settlement settlement) {
+        applyDelta(settlement.getGroup(), settlement.getPayer(), settlement.getPayee(), settlement.getAmount().negate());
+        eventPublisher.publishEvent(new GroupChangedEvent(settlement.getGroup().getId()));
+    }
+    
+    /**
+     * Recompute a group's ledger from its latest snapshot plus the expenses and settlements
+     * created after it (or from the full history when there is no snapshot), replacing
+     * whatever is currently stored. Returns the number of rows written.
+     */
+    @Transactional
+    public int rebuildLedger(Long groupId) {
         Group group = groupRepository.findById(groupId)
                 .orElseThrow(() -> new IllegalArgumentException("Group not found"));
         
-        List<Expense> expenses = expenseRepository.findByGroup(group);
-        List<Settlement> settlements = settlementRepository.findByGroupOrderByCreatedAtDesc(group);
+        List<User> members = new ArrayList<>(group.getMembers());
+        BalanceEngine engine = replayFromSnapshot(group, members);
         
-        BigDecimal balance = BigDecimal.ZERO;
+        User[] users = new User[engine.size()];
+        for (User member : members) {
+            users[engine.indexOf(member.getId())] = member;
+        }
         
-        // Process expenses
-        for (Expense expense : expenses) {
-            User expensePayer = expense.getPayer();
-            Set<User> participants = expense.getParticipants();
-            
-            if (participants.isEmpty()) {
-                continue;
-            }
-            
-            BigDecimal perPersonAmount = expense.getAmount()
-                    .divide(BigDecimal.valueOf(participants.size()), 2, RoundingMode.HALF_UP);
-            
-            // If payee paid and payer participated (not as payer), payer owes payee
-            if (expensePayer.equals(payee) && participants.contains(payer) && !expensePayer.equals(payer)) {
-                balance = balance.add(perPersonAmount);
+        balanceLedgerRepository.deleteByGroup(group);
+        
+        List<BalanceLedgerEntry> entries = new ArrayList<>(engine.pairCount() * 2);
+        engine.forEachPair((low, high, cents) -> {
+            entries.add(newEntry(group, users[low], users[high], BalanceEngine.toAmount(cents)));
+            entries.add(newEntry(group, users[high], users[low], BalanceEngine.toAmount(-cents)));
+        });
+        balanceLedgerRepository.saveAll(entries);
+        // Last, like the writes bumping it before they commit: the ledger rows are locked first
+        groupRepository.incrementVersion(groupId);
+        eventPublisher.publishEvent(new GroupChangedEvent(groupId));
+        
+        return entries.size();
+    }
+    
+    /**
+     * Check the stored ledger of a group against its latest snapshot plus newer history.
+     */
+    @Transactional(readOnly = true)
+    public boolean verifyLedger(Long groupId) {
+        Group group = groupRepository.findById(groupId)
+                .orElseThrow(() -> new IllegalArgumentException("Group not found"));
+        
+        BalanceEngine engine = replayFromSnapshot(group, group.getMembers());
+        List<BalanceLedgerEntry> entries = balanceLedgerRepository.findByGroup(group);
+        if (entries.size() != engine.pairCount() * 2) {
+            return false;
+        }
+        for (BalanceLedgerEntry entry : entries) {
+            long expected = engine.owed(memberIndex(engine, entry.getDebtor()), memberIndex(engine, entry.getCreditor()));
+            if (expected != BalanceEngine.toCents(entry.getAmount())) {
+                return false;
             }
-            
-            // If payer paid and payee participated (not as payer), payee owes payer (negative balance)
-            if (expensePayer.equals(payer) && participants.contains(payee) && !expensePayer.equals(payee)) {
-                balance = balance.subtract(perPersonAmount);
+        }
+        return true;
+    }
+    
+    /**
+     * Checkpoint the balances of a group, covering everything created up to a short grace
+     * period ago so that transactions still in flight are left to the delta replay.
+     */
+    @Transactional
+    public BalanceSnapshot createSnapshot(Long groupId) {
+        Group group = groupRepository.findById(groupId)
+                .orElseThrow(() -> new IllegalArgumentException("Group not found"));
+        return createSnapshot(group, LocalDateTime.now().minusSeconds(snapshotGraceSeconds));
+    }
+    
+    /**
+     * Checkpoint the balances of a group up to the watermark, starting from the latest
+     * earlier snapshot so only the history in between is read.
+     */
+    @Transactional
+    public BalanceSnapshot createSnapshot(Group group, LocalDateTime watermark) {
+        Optional<BalanceSnapshot> latest = balanceSnapshotRepository.findFirstByGroupOrderByWatermarkDesc(group);
+        BalanceSnapshot previous = latest.filter(s -> !s.getWatermark().isAfter(watermark)).orElse(null);
+        LocalDateTime from = previous == null ? HISTORY_START : previous.getWatermark();
+        
+        BalanceEngine engine = new BalanceEngine(group.getMembers().stream().mapToLong(User::getId).toArray());
+        if (previous != null) {
+            seed(engine, previous);
+        }
+        aggregate(engine, group.getId(), from, watermark);
+        
+        BalanceSnapshot snapshot = new BalanceSnapshot();
+        snapshot.setGroup(group);
+        snapshot.setWatermark(watermark);
+        snapshot.setGroupVersion(group.getVersion());
+        snapshot.setExpenseCount((int) expenseRepository.countByGroupAndCreatedAtGreaterThanAndCreatedAtLessThanEqual(
+                group, from, watermark) + (previous == null ? 0 : previous.getExpenseCount()));
+        snapshot.setSettlementCount((int) settlementRepository.countByGroupAndCreatedAtGreaterThanAndCreatedAtLessThanEqual(
+                group, from, watermark) + (previous == null ? 0 : previous.getSettlementCount()));
+        engine.forEachPair((low, high, cents) -> snapshot.getPairs().add(
+                new BalanceSnapshotPair(engine.memberId(low), engine.memberId(high), BalanceEngine.toAmount(cents))));
+        return balanceSnapshotRepository.save(snapshot);
+    }
+    
+    /**
+     * Compare the latest snapshot of a group with a full recompute of the history it covers.
+     * Returns true when there is no snapshot to check.
+     */
+    @Transactional(readOnly = true)
+    public boolean verifySnapshot(Long groupId) {
+        Group group = groupRepository.findById(groupId)
+                .orElseThrow(() -> new IllegalArgumentException("Group not found"));
+        
+        BalanceSnapshot snapshot = balanceSnapshotRepository.findFirstByGroupOrderByWatermarkDesc(group).orElse(null);
+        if (snapshot == null) {
+            return true;
+        }
+        
+        long[] memberIds = group.getMembers().stream().mapToLong(User::getId).toArray();
+        BalanceEngine full = new BalanceEngine(memberIds);
+        aggregate(full, groupId, HISTORY_START, snapshot.getWatermark());
+        BalanceEngine stored = new BalanceEngine(memberIds);
+        seed(stored, snapshot);
+        
+        if (full.pairCount() != stored.pairCount()) {
+            return false;
+        }
+        boolean[] matches = {true};
+        full.forEachPair((low, high, cents) -> matches[0] &= stored.owed(low, high) == cents);
+        return matches[0];
+    }
+    
+    /**
+     * Snapshots are derived data: dropping them only makes the next replay read more history.
+     */
+    @Transactional
+    public int dropSnapshots(Long groupId) {
+        Group group = groupRepository.findById(groupId)
+                .orElseThrow(() -> new IllegalArgumentException("Group not found"));
+        List<BalanceSnapshot> snapshots = balanceSnapshotRepository.findByGroup(group);
+        balanceSnapshotRepository.deleteAll(snapshots);
+        return snapshots.size();
+    }
+    
+    /**
+     * Balances from the latest snapshot with only the expenses and settlements created
+     * after its watermark folded in.
+     */
+    BalanceEngine replayFromSnapshot(Group group, Collection<User> members) {
+        BalanceEngine engine = new BalanceEngine(members.stream().mapToLong(User::getId).toArray());
+        BalanceSnapshot snapshot = balanceSnapshotRepository.findFirstByGroupOrderByWatermarkDesc(group).orElse(null);
+        if (snapshot != null) {
+            seed(engine, snapshot);
+        }
+        aggregate(engine, group.getId(), snapshot == null ? HISTORY_START : snapshot.getWatermark(), HISTORY_END);
+        return engine;
+    }
+    
+    /**
+     * Fold the expenses and settlements of a group created in (from, to] into the engine using
+     * the database-side aggregates, without loading any entities.
+     */
+    private void aggregate(BalanceEngine engine, Long groupId, LocalDateTime from, LocalDateTime to) {
+        for (Object[] row : expenseRepository.aggregateShares(groupId, from, to)) {
+            long share = BalanceEngine.perPersonCents(BalanceEngine.toCents((BigDecimal) row[2]), ((Number) row[3]).intValue());
+            engine.addOwed(memberIndex(engine, ((Number) row[0]).longValue()), memberIndex(engine, ((Number) row[1]).longValue()),
+                    share * ((Number) row[4]).longValue());
+        }
+        for (Object[] row : settlementRepository.aggregateSettlements(groupId, from, to)) {
+            engine.addSettlement(memberIndex(engine, (Long) row[0]), memberIndex(engine, (Long) row[1]),
+                    BalanceEngine.toCents((BigDecimal) row[2]));
+        }
+    }
+    
+    /**
+     * Replay loaded expenses and settlements into a cents-based engine indexed by the given
+     * members, using the same per-person HALF_UP rounding as the expense listing. Reference
+     * implementation for the aggregate queries; the service itself never loads full history.
+     */
+    static BalanceEngine replayHistory(Collection<User> members, List<Expense> expenses, List<Settlement> settlements) {
+        BalanceEngine engine = new BalanceEngine(members.stream().mapToLong(User::getId).toArray());
+        replay(engine, expenses, settlements);
+        return engine;
+    }
+    
+    private static void replay(BalanceEngine engine, List<Expense> expenses, List<Settlement> settlements) {
+        int[] participants = new int[engine.size()];
+        
+        for (Expense expense : expenses) {
+            int count = 0;
+            for (User participant : expense.getParticipants()) {
+                participants[count++] = memberIndex(engine, participant);
             }
+            engine.addExpense(memberIndex(engine, expense.getPayer()), participants, count,
+                    BalanceEngine.toCents(expense.getAmount()));
         }
         
-        // Process settlements
         for (Settlement settlement : settlements) {
-            User settlementPayer = settlement.getPayer();
-            User settlementPayee = settlement.getPayee();
-            BigDecimal amount = settlement.getAmount();
-            
-            // If payer paid payee in settlement, payer's debt to payee is reduced
-            if (settlementPayer.equals(payer) && settlementPayee.equals(payee)) {
-                balance = balance.subtract(amount);
-            }
-            
-            // If payee paid payer in settlement, payer's debt to payee is increased
-            if (settlementPayer.equals(payee) && settlementPayee.equals(payer)) {
-                balance = balance.add(amount);
+            engine.addSettlement(memberIndex(engine, settlement.getPayer()), memberIndex(engine, settlement.getPayee()),
+                    BalanceEngine.toCents(settlement.getAmount()));
+        }
+    }
+    
+    private static void seed(BalanceEngine engine, BalanceSnapshot snapshot) {
+        for (BalanceSnapshotPair pair : snapshot.getPairs()) {
+            int debtor = engine.indexOf(pair.getDebtorId());
+            int creditor = engine.indexOf(pair.getCreditorId());
+            if (debtor < 0 || creditor < 0) {
+                throw new IllegalStateException("Snapshot " + snapshot.getId() + " references a non-member");
             }
+            engine.addOwed(debtor, creditor, BalanceEngine.toCents(pair.getAmount()));
         }
-        
-        return balance;
+    }
+    
+    private static int memberIndex(BalanceEngine engine, User user) {
+        int index = engine.indexOf(user.getId());
+        if (index < 0) {
+            throw new IllegalStateException("User " + user.getUserId() + " is not a member of this group");
+        }
+        return index;
+    }
+    
+    private static int memberIndex(BalanceEngine engine, long userId) {
+        int index = engine.indexOf(userId);
+        if (index < 0) {
+            throw new IllegalStateException("User " + userId + " is not a member of this group");
+        }
+        return index;
+    }
+    
+    private BalanceLedgerEntry newEntry(Group group, User debtor, User creditor, BigDecimal amount) {
+        BalanceLedgerEntry entry = new BalanceLedgerEntry();
+        entry.setGroup(group);
+        entry.setDebtor(debtor);
+        entry.setCreditor(creditor);
+        entry.setAmount(amount);
+        return entry;
+    }
+    
+    private BalanceLedgerEntry adjust(Map<List<Long>, BalanceLedgerEntry> entries, Group group,
+                                      User debtor, User creditor, BigDecimal delta) {
+        BalanceLedgerEntry entry = entries.computeIfAbsent(List.of(debtor.getId(), creditor.getId()),
+                key -> newEntry(group, debtor, creditor, BigDecimal.ZERO));
+        entry.setAmount(entry.getAmount().add(delta));
+        return entry;
+    }
+    
+    private void applyDelta(Group group, User debtor, User creditor, BigDecimal delta) {
+        if (debtor.getId() < creditor.getId()) {
+            adjustEntry(group, debtor, creditor, delta);
+            adjustEntry(group, creditor, debtor, delta.negate());
+        } else {
+            adjustEntry(group, creditor, debtor, delta.negate());
+            adjustEntry(group, debtor, creditor, delta);
+        }
+    }
+    
+    private void adjustEntry(Group group, User debtor, User creditor, BigDecimal delta) {
+        BalanceLedgerEntry entry = balanceLedgerRepository.findEntryForUpdate(group.getId(), debtor, creditor)
+                .orElseGet(() -> newEntry(group, debtor, creditor, BigDecimal.ZERO));
+        entry.setAmount(entry.getAmount().add(delta));
+        balanceLedgerRepository.save(entry);
     }
 }
@@ -0,0 +1,45 @@
+package com.splitsphere.service;
+
+import com.splitsphere.repository.BalanceSnapshotRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Takes balance snapshots in the background, never inside a user's write: every
+ * {@code balances.snapshot.check-interval-seconds}, groups whose version has moved on by
+ * {@code balances.snapshot.interval} since their latest snapshot get a new one. The count comes
+ * from the database, so it holds however many instances share the writes. Snapshots are derived
+ * data, so two instances checking at the same moment at worst store the same checkpoint twice.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class BalanceSnapshotScheduler {
+    
+    private final BalanceSnapshotRepository balanceSnapshotRepository;
+    private final BalanceService balanceService;
+    
+    @Value("${balances.snapshot.interval:500}")
+    private int snapshotInterval;
+    
+    @Scheduled(fixedDelayString = "${balances.snapshot.check-interval-seconds:60}",
+            initialDelayString = "${balances.snapshot.check-interval-seconds:60}",
+            timeUnit = TimeUnit.SECONDS)
+    public void snapshotBusyGroups() {
+        if (snapshotInterval <= 0) {
+            return;
+        }
+        for (Long groupId : balanceSnapshotRepository.findGroupIdsWrittenSinceSnapshot(snapshotInterval)) {
+            try {
+                balanceService.createSnapshot(groupId);
+            } catch (RuntimeException e) {
+                log.warn("Could not snapshot the balances of group {}", groupId, e);
+            }
+        }
+    }
+}
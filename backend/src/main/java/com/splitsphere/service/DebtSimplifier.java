@@ -0,0 +1,119 @@
+package com.splitsphere.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Turns net positions (in cents, positive when the member is owed money) into a short list of
+ * transfers that settles everyone.
+ * <p>
+ * With k non-zero members the minimum number of transfers is k minus the largest number of
+ * disjoint zero-sum subsets they can be split into. Up to {@code exactMaxMembers} non-zero
+ * members that partition is found exactly with a subset DP; larger groups, or a DP that runs
+ * past the deadline, fall back to the greedy max-heap pairing, which needs at most k - 1 transfers.
+ */
+final class DebtSimplifier {
+    
+    private DebtSimplifier() {
+    }
+    
+    static List<Transfer> simplify(long[] net, int exactMaxMembers, long deadlineNanos) {
+        List<Integer> nonZero = new ArrayList<>();
+        for (int i = 0; i < net.length; i++) {
+            if (net[i] != 0) {
+                nonZero.add(i);
+            }
+        }
+        
+        if (nonZero.size() <= exactMaxMembers) {
+            List<Transfer> exact = exact(net, nonZero, deadlineNanos);
+            if (exact != null) {
+                return exact;
+            }
+        }
+        return greedy(net, nonZero);
+    }
+    
+    /**
+     * Subset DP over the non-zero members; returns null when the deadline passes.
+     */
+    private static List<Transfer> exact(long[] net, List<Integer> members, long deadlineNanos) {
+        int k = members.size();
+        int full = (1 << k) - 1;
+        long[] sum = new long[full + 1];
+        byte[] groups = new byte[full + 1];
+        
+        for (int mask = 1; mask <= full; mask++) {
+            if ((mask & 0xFFF) == 0 && System.nanoTime() > deadlineNanos) {
+                return null;
+            }
+            int low = Integer.numberOfTrailingZeros(mask);
+            sum[mask] = sum[mask & (mask - 1)] + net[members.get(low)];
+            
+            int best = 0;
+            for (int rest = mask; rest != 0; rest &= rest - 1) {
+                int bit = rest & -rest;
+                best = Math.max(best, groups[mask ^ bit]);
+            }
+            groups[mask] = (byte) (best + (sum[mask] == 0 ? 1 : 0));
+        }
+        
+        // Walk back from the full set; every zero-sum mask on the path closes a subset
+        List<Transfer> transfers = new ArrayList<>();
+        List<Integer> subset = new ArrayList<>();
+        int mask = full;
+        while (mask != 0) {
+            int target = groups[mask] - (sum[mask] == 0 ? 1 : 0);
+            int removed = -1;
+            for (int rest = mask; rest != 0; rest &= rest - 1) {
+                int bit = rest & -rest;
+                if (groups[mask ^ bit] == target) {
+                    removed = Integer.numberOfTrailingZeros(bit);
+                    break;
+                }
+            }
+            subset.add(members.get(removed));
+            mask ^= 1 << removed;
+            if (sum[mask] == 0) {
+                transfers.addAll(greedy(net, subset));
+                subset = new ArrayList<>();
+            }
+        }
+        return transfers;
+    }
+    
+    /**
+     * Repeatedly match the largest debtor with the largest creditor.
+     */
+    private static List<Transfer> greedy(long[] net, List<Integer> members) {
+        PriorityQueue<long[]> creditors = new PriorityQueue<>((a, b) -> Long.compare(b[1], a[1]));
+        PriorityQueue<long[]> debtors = new PriorityQueue<>((a, b) -> Long.compare(b[1], a[1]));
+        for (int member : members) {
+            if (net[member] > 0) {
+                creditors.add(new long[]{member, net[member]});
+            } else if (net[member] < 0) {
+                debtors.add(new long[]{member, -net[member]});
+            }
+        }
+        
+        List<Transfer> transfers = new ArrayList<>();
+        while (!creditors.isEmpty() && !debtors.isEmpty()) {
+            long[] creditor = creditors.poll();
+            long[] debtor = debtors.poll();
+            long amount = Math.min(creditor[1], debtor[1]);
+            transfers.add(new Transfer((int) debtor[0], (int) creditor[0], amount));
+            
+            if (creditor[1] > amount) {
+                creditors.add(new long[]{creditor[0], creditor[1] - amount});
+            }
+            if (debtor[1] > amount) {
+                debtors.add(new long[]{debtor[0], debtor[1] - amount});
+            }
+        }
+        return transfers;
+    }
+    
+    record Transfer(int from, int to, long cents) {
+    }
+}
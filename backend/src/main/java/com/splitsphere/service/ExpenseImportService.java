@@ -0,0 +1,283 @@
+package com.splitsphere.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.splitsphere.dto.ExpenseRequest;
+import com.splitsphere.dto.ImportReport;
+import com.splitsphere.model.Expense;
+import com.splitsphere.model.Group;
+import com.splitsphere.model.User;
+import com.splitsphere.repository.ExpenseRepository;
+import com.splitsphere.repository.GroupRepository;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Imports a group's expenses from CSV or NDJSON. The body is read line by line and handled in
+ * chunks, each in its own transaction: the chunk's users are resolved with one query, every row
+ * goes through the same checks as {@link ExpenseService#createExpense}, and the valid rows are
+ * inserted in JDBC batches, applied to the ledger per pair and recorded with one audit row.
+ * Rejected rows end up in the report; they never abort the rest of the import.
+ * <p>
+ * CSV needs a header naming the columns {@code description}, {@code amount},
+ * {@code participantUserIds} (separated by {@code ;}) and optionally {@code payerUserId}. As with
+ * {@link ExpenseService#createExpense}, the importing user is always the payer: rows naming
+ * anyone else are rejected. NDJSON lines are objects with the same fields, participants as an
+ * array.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ExpenseImportService {
+    
+    public static final String CSV = "text/csv";
+    public static final String NDJSON = MediaType.APPLICATION_NDJSON_VALUE;
+    
+    private static final List<String> CSV_COLUMNS = List.of("description", "amount", "payerUserId", "participantUserIds");
+    
+    private final GroupRepository groupRepository;
+    private final ExpenseRepository expenseRepository;
+    private final ExpenseService expenseService;
+    private final UserService userService;
+    private final BalanceService balanceService;
+    private final AuditService auditService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
+    
+    @Value("${expenses.import.chunk-size:500}")
+    private int chunkSize;
+    
+    public ImportReport importExpenses(Long groupId, InputStream body, String format, String importerUserId)
+            throws IOException {
+        User importer = userService.getUserByUserId(importerUserId);
+        Group group = groupRepository.findWithMembersById(groupId)
+                .orElseThrow(() -> new IllegalArgumentException("Group not found"));
+        ExpenseService.checkGroupAccepts(group, ExpenseService.memberIds(group), importer);
+        
+        BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+        Function<String, ImportRow> parser = parser(format, reader);
+        long lineNumber = CSV.equals(format) ? 1 : 0;
+        
+        ImportReport report = new ImportReport();
+        List<Line> chunk = new ArrayList<>(chunkSize);
+        String text;
+        while ((text = reader.readLine()) != null) {
+            lineNumber++;
+            if (text.isBlank()) {
+                continue;
+            }
+            chunk.add(parse(lineNumber, text, parser));
+            if (chunk.size() == chunkSize) {
+                importChunk(groupId, importer, chunk, report);
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            importChunk(groupId, importer, chunk, report);
+        }
+        return report;
+    }
+    
+    private void importChunk(Long groupId, User importer, List<Line> lines, ImportReport report) {
+        List<Line> imported = new ArrayList<>();
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                Group group = groupRepository.findForUpdateById(groupId)
+                        .orElseThrow(() -> new IllegalArgumentException("Group not found"));
+                Set<Long> memberIds = ExpenseService.memberIds(group);
+                ExpenseService.checkGroupAccepts(group, memberIds, importer);
+                Map<String, User> users = resolveUsers(lines);
+                
+                List<Expense> expenses = new ArrayList<>();
+                for (int i = 0; i < lines.size(); i++) {
+                    Line line = lines.get(i);
+                    if (line.error() != null) {
+                        continue;
+                    }
+                    try {
+                        expenses.add(toExpense(line.row(), group, memberIds, importer, users));
+                        imported.add(line);
+                    } catch (IllegalArgumentException e) {
+                        lines.set(i, new Line(line.number(), null, e.getMessage()));
+                    }
+                }
+                if (expenses.isEmpty()) {
+                    return;
+                }
+                
+                expenseRepository.saveAll(expenses);
+                balanceService.recordExpenses(group, expenses);
+                eventPublisher.publishEvent(new GroupActivityEvent(groupId, GroupActivityEvent.EXPENSES,
+                        expenses.stream().map(Expense::getId).toList()));
+                auditService.log("IMPORT", "Group", groupId, importer, "Imported " + expenses.size()
+                        + " expenses from lines " + imported.get(0).number() + "-" + imported.get(imported.size() - 1).number());
+            });
+        } catch (RuntimeException e) {
+            // Nothing of this chunk was committed; earlier chunks stay imported
+            log.warn("Expense import chunk for group {} failed", groupId, e);
+            String message = e instanceof IllegalArgumentException
+                    ? e.getMessage()
+                    : "Could not be saved, please import this row again";
+            for (Line line : lines) {
+                report.addError(line.number(), line.error() != null ? line.error() : message);
+            }
+            return;
+        }
+        
+        report.setImported(report.getImported() + imported.size());
+        for (Line line : lines) {
+            if (line.error() != null) {
+                report.addError(line.number(), line.error());
+            }
+        }
+    }
+    
+    private Map<String, User> resolveUsers(List<Line> lines) {
+        Set<String> userIds = new HashSet<>();
+        for (Line line : lines) {
+            if (line.row() != null && line.row().participantUserIds() != null) {
+                userIds.addAll(line.row().participantUserIds());
+            }
+        }
+        return expenseService.findUsers(userIds);
+    }
+    
+    private Expense toExpense(ImportRow row, Group group, Set<Long> memberIds, User importer, Map<String, User> users) {
+        ExpenseRequest request = new ExpenseRequest(row.description(), row.amount(), group.getId(), row.participantUserIds());
+        Set<ConstraintViolation<ExpenseRequest>> violations = validator.validate(request);
+        if (!violations.isEmpty()) {
+            throw new IllegalArgumentException(violations.stream()
+                    .map(ConstraintViolation::getMessage)
+                    .sorted()
+                    .collect(Collectors.joining("; ")));
+        }
+        
+        if (row.payerUserId() != null && !row.payerUserId().isBlank()
+                && !row.payerUserId().equals(importer.getUserId())) {
+            throw new IllegalArgumentException("Only expenses paid by you can be imported, not by " + row.payerUserId());
+        }
+        return ExpenseService.newExpense(group, memberIds, importer, request, users);
+    }
+    
+    private static Line parse(long number, String text, Function<String, ImportRow> parser) {
+        try {
+            return new Line(number, parser.apply(text), null);
+        } catch (IllegalArgumentException e) {
+            return new Line(number, null, e.getMessage());
+        }
+    }
+    
+    private Function<String, ImportRow> parser(String format, BufferedReader reader) throws IOException {
+        if (NDJSON.equals(format)) {
+            return text -> {
+                try {
+                    return objectMapper.readValue(text, ImportRow.class);
+                } catch (JsonProcessingException e) {
+                    throw new IllegalArgumentException("Invalid JSON: " + e.getOriginalMessage());
+                }
+            };
+        }
+        if (!CSV.equals(format)) {
+            throw new IllegalArgumentException("Unsupported import format: " + format);
+        }
+        
+        String header = reader.readLine();
+        if (header == null) {
+            throw new IllegalArgumentException("The CSV header is missing");
+        }
+        List<String> names = splitCsv(header);
+        int[] columns = new int[CSV_COLUMNS.size()];
+        for (int i = 0; i < columns.length; i++) {
+            columns[i] = names.indexOf(CSV_COLUMNS.get(i));
+        }
+        for (String required : List.of("description", "amount", "participantUserIds")) {
+            if (!names.contains(required)) {
+                throw new IllegalArgumentException("The CSV header has no " + required + " column");
+            }
+        }
+        
+        return text -> {
+            List<String> fields = splitCsv(text);
+            String amount = field(fields, columns[1]);
+            String participants = field(fields, columns[3]);
+            return new ImportRow(
+                    field(fields, columns[0]),
+                    amount == null || amount.isBlank() ? null : amount(amount),
+                    field(fields, columns[2]),
+                    participants == null || participants.isBlank()
+                            ? List.of()
+                            : Arrays.stream(participants.split(";")).map(String::trim).filter(id -> !id.isEmpty()).toList());
+        };
+    }
+    
+    private static BigDecimal amount(String text) {
+        try {
+            return new BigDecimal(text.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid amount: " + text);
+        }
+    }
+    
+    private static String field(List<String> fields, int column) {
+        return column >= 0 && column < fields.size() ? fields.get(column) : null;
+    }
+    
+    /**
+     * Splits one CSV record (RFC 4180 quoting, no line breaks inside fields).
+     */
+    static List<String> splitCsv(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"' && field.isEmpty()) {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        if (quoted) {
+            throw new IllegalArgumentException("Unterminated quoted field");
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+    
+    record ImportRow(String description, BigDecimal amount, String payerUserId, List<String> participantUserIds) {
+    }
+    
+    private record Line(long number, ImportRow row, String error) {
+    }
+}
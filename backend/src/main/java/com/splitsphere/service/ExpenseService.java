@@ -1,5 +1,6 @@
 package com.splitsphere.service;
 
+import com.splitsphere.dto.CursorPage;
 import com.splitsphere.dto.ExpenseRequest;
 import com.splitsphere.dto.ExpenseResponse;
 import com.splitsphere.model.Expense;
@@ -7,15 +8,17 @@ import com.splitsphere.model.Group;
 import com.splitsphere.model.User;
 import com.splitsphere.repository.ExpenseRepository;
 import com.splitsphere.repository.GroupRepository;
+import com.splitsphere.repository.UserRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
-import java.util.HashSet;
-import java.util.List;
-import java.util.Set;
+import java.util.*;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
@@ -24,28 +27,161 @@ public class ExpenseService {
     
     private final ExpenseRepository expenseRepository;
     private final GroupRepository groupRepository;
-    private final UserService userService;
+    private final UserRepository userRepository;
     private final AuditService auditService;
+    private final BalanceService balanceService;
+    private final ApplicationEventPublisher eventPublisher;
     
     @Transactional
     public ExpenseResponse createExpense(ExpenseRequest request, String payerUserId) {
-        User payer = userService.getUserByUserId(payerUserId);
+        Map<String, User> users = findUsers(userIds(List.of(request), payerUserId));
+        User payer = requireUser(users, payerUserId);
         
-        Group group = groupRepository.findById(request.getGroupId())
+        Group group = groupRepository.findForUpdateById(request.getGroupId())
                 .orElseThrow(() -> new IllegalArgumentException("Group not found"));
         
+        Expense expense = newExpense(group, memberIds(group), payer, request, users);
+        expense = expenseRepository.save(expense);
+        balanceService.recordExpense(expense);
+        eventPublisher.publishEvent(new GroupActivityEvent(group.getId(), GroupActivityEvent.EXPENSE, List.of(expense.getId())));
+        
+        auditService.log("CREATE", "Expense", expense.getId(), payer, 
+                "Expense created: " + expense.getDescription() + " - " + expense.getAmount());
+        
+        return toExpenseResponse(expense);
+    }
+    
+    /**
+     * Create several expenses paid by the same user in one transaction: either all of them are
+     * created or, when one breaks a rule, none. Users across the whole batch are loaded with one
+     * query and each group once, locked in id order so batches over the same groups can't deadlock.
+     */
+    @Transactional
+    public List<ExpenseResponse> createExpenses(List<ExpenseRequest> requests, String payerUserId) {
+        Map<String, User> users = findUsers(userIds(requests, payerUserId));
+        User payer = requireUser(users, payerUserId);
+        
+        Map<Long, Group> groups = new HashMap<>();
+        requests.stream().map(ExpenseRequest::getGroupId).filter(Objects::nonNull).distinct().sorted()
+                .forEach(id -> groupRepository.findForUpdateById(id).ifPresent(group -> groups.put(id, group)));
+        Map<Long, Set<Long>> memberIds = new HashMap<>();
+        Map<Long, List<Expense>> expensesByGroup = new LinkedHashMap<>();
+        List<Expense> expenses = new ArrayList<>();
+        for (int i = 0; i < requests.size(); i++) {
+            ExpenseRequest request = requests.get(i);
+            try {
+                Group group = groups.get(request.getGroupId());
+                if (group == null) {
+                    throw new IllegalArgumentException("Group not found");
+                }
+                Expense expense = newExpense(group, memberIds.computeIfAbsent(group.getId(), id -> memberIds(group)),
+                        payer, request, users);
+                expenses.add(expense);
+                expensesByGroup.computeIfAbsent(group.getId(), id -> new ArrayList<>()).add(expense);
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Expense " + (i + 1) + ": " + e.getMessage());
+            }
+        }
+        
+        expenseRepository.saveAll(expenses);
+        expensesByGroup.forEach((groupId, groupExpenses) -> {
+            balanceService.recordExpenses(groups.get(groupId), groupExpenses);
+            eventPublisher.publishEvent(new GroupActivityEvent(groupId,
+                    groupExpenses.size() == 1 ? GroupActivityEvent.EXPENSE : GroupActivityEvent.EXPENSES,
+                    groupExpenses.stream().map(Expense::getId).toList()));
+        });
+        for (Expense expense : expenses) {
+            auditService.log("CREATE", "Expense", expense.getId(), payer,
+                    "Expense created: " + expense.getDescription() + " - " + expense.getAmount());
+        }
+        
+        return expenses.stream().map(this::toExpenseResponse).collect(Collectors.toList());
+    }
+    
+    @Transactional(readOnly = true)
+    public List<ExpenseResponse> getGroupExpenses(Long groupId) {
+        Group group = groupRepository.findById(groupId)
+                .orElseThrow(() -> new IllegalArgumentException("Group not found"));
+        
+        return expenseRepository.findByGroupOrderByCreatedAtDesc(group).stream()
+                .map(this::toExpenseResponse)
+                .collect(Collectors.toList());
+    }
+    
+    /**
+     * The given expenses of a group, newest first. Ids of expenses that don't exist (anymore) are skipped.
+     */
+    @Transactional(readOnly = true)
+    public List<ExpenseResponse> getGroupExpenses(Group group, Collection<Long> ids) {
+        return expenseRepository.findByGroupAndIds(group, ids).stream()
+                .map(this::toExpenseResponse)
+                .collect(Collectors.toList());
+    }
+    
+    /**
+     * One page of a group's expenses, newest first, continuing after the given cursor.
+     */
+    @Transactional(readOnly = true)
+    public CursorPage<ExpenseResponse> getGroupExpensesPage(Long groupId, String cursor, Integer limit) {
+        Group group = groupRepository.findById(groupId)
+                .orElseThrow(() -> new IllegalArgumentException("Group not found"));
+        
+        int pageSize = PageCursor.checkLimit(limit);
+        PageCursor after = PageCursor.decode(cursor);
+        List<Expense> expenses = after == null
+                ? expenseRepository.findFirstPage(group, Limit.of(pageSize + 1))
+                : expenseRepository.findPageBefore(group, after.createdAt(), after.id(), Limit.of(pageSize + 1));
+        
+        return PageCursor.page(expenses, pageSize, this::toExpenseResponse,
+                e -> new PageCursor(PageCursor.EXPENSE, e.getCreatedAt(), e.getId()));
+    }
+    
+    static Set<Long> memberIds(Group group) {
+        return group.getMembers().stream().map(User::getId).collect(Collectors.toSet());
+    }
+    
+    /**
+     * The group must be open and the payer one of its members.
+     */
+    static void checkGroupAccepts(Group group, Set<Long> memberIds, User payer) {
         if (group.isClosed()) {
             throw new IllegalArgumentException("Cannot add expense to a closed group");
         }
         
-        if (!group.getMembers().contains(payer)) {
+        if (!memberIds.contains(payer.getId())) {
             throw new IllegalArgumentException("User is not a member of this group");
         }
+    }
+    
+    /**
+     * Loads the given users with one query, keyed by user id; unknown ids are simply missing.
+     */
+    Map<String, User> findUsers(Collection<String> userIds) {
+        return userRepository.findByUserIdIn(userIds).stream()
+                .collect(Collectors.toMap(User::getUserId, Function.identity()));
+    }
+    
+    static User requireUser(Map<String, User> users, String userId) {
+        User user = users.get(userId);
+        if (user == null) {
+            throw new IllegalArgumentException("User not found: " + userId);
+        }
+        return user;
+    }
+    
+    /**
+     * Builds an unsaved expense after checking the rules every way of adding an expense shares:
+     * an open group, a payer and participants that are all members, and at least one participant.
+     * Participants are taken from {@code users}, as loaded by {@link #findUsers}.
+     */
+    static Expense newExpense(Group group, Set<Long> memberIds, User payer, ExpenseRequest request,
+                              Map<String, User> users) {
+        checkGroupAccepts(group, memberIds, payer);
         
         Set<User> participants = new HashSet<>();
         for (String participantUserId : request.getParticipantUserIds()) {
-            User participant = userService.getUserByUserId(participantUserId);
-            if (!group.getMembers().contains(participant)) {
+            User participant = requireUser(users, participantUserId);
+            if (!memberIds.contains(participant.getId())) {
                 throw new IllegalArgumentException("Participant " + participantUserId + " is not a member of this group");
             }
             participants.add(participant);
@@ -61,23 +197,16 @@ public class ExpenseService {
         expense.setPayer(payer);
         expense.setGroup(group);
         expense.setParticipants(participants);
-        
-        expense = expenseRepository.save(expense);
-        
-        auditService.log("CREATE", "Expense", expense.getId(), payer, 
-                "Expense created: " + expense.getDescription() + " - " + expense.getAmount());
-        
-        return toExpenseResponse(expense);
+        return expense;
     }
     
-    @Transactional(readOnly = true)
-    public List<ExpenseResponse> getGroupExpenses(Long groupId) {
-        Group group = groupRepository.findById(groupId)
-                .orElseThrow(() -> new IllegalArgumentException("Group not found"));
-        
-        return expenseRepository.findByGroupOrderByCreatedAtDesc(group).stream()
-                .map(this::toExpenseResponse)
-                .collect(Collectors.toList());
+    private static Set<String> userIds(List<ExpenseRequest> requests, String payerUserId) {
+        Set<String> userIds = new HashSet<>();
+        userIds.add(payerUserId);
+        for (ExpenseRequest request : requests) {
+            userIds.addAll(request.getParticipantUserIds());
+        }
+        return userIds;
     }
     
     private ExpenseResponse toExpenseResponse(Expense expense) {
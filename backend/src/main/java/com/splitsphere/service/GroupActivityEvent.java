@@ -0,0 +1,29 @@
+package com.splitsphere.service;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.List;
+
+/**
+ * Published inside a transaction that adds to a group or changes its membership or state, for
+ * clients following the group's event stream. It only says what changed (the id of the new
+ * expense or settlement, when there is a single one); clients fetch the rest. Delivered after
+ * the transaction commits.
+ * <p>
+ * {@code ids} lists every expense or settlement added, for the group's change log; it is left
+ * out of the streamed event so a large import stays a small message.
+ */
+public record GroupActivityEvent(Long groupId, String type, @JsonIgnore List<Long> ids) {
+    
+    public static final String EXPENSE = "expense";
+    public static final String EXPENSES = "expenses";
+    public static final String SETTLEMENT = "settlement";
+    public static final String MEMBER_JOINED = "member-joined";
+    public static final String CLOSED = "closed";
+    
+    @JsonProperty("id")
+    public Long id() {
+        return ids.size() == 1 ? ids.get(0) : null;
+    }
+}
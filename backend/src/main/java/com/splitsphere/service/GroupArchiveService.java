@@ -0,0 +1,223 @@
+package com.splitsphere.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.splitsphere.dto.*;
+import com.splitsphere.model.ClosedGroupArchive;
+import com.splitsphere.repository.ClosedGroupArchiveRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+/**
+ * Serves closed groups from the archive written when they were closed, so their read endpoints
+ * touch neither the expense and settlement tables nor the ledger.
+ * <p>
+ * Archives never change and are kept in memory once read. Groups found to have no archive (open
+ * ones, mostly) are remembered for a minute, so open groups cost one extra primary-key lookup per
+ * minute rather than per request; closing a group on this instance forgets that right away.
+ */
+@Service
+public class GroupArchiveService {
+    
+    private static final Duration OPEN_GROUP_RECHECK = Duration.ofMinutes(1);
+    
+    private final ClosedGroupArchiveRepository closedGroupArchiveRepository;
+    private final ObjectMapper objectMapper;
+    private final Cache<Long, GroupArchive> archives;
+    private final Cache<Long, Boolean> notArchived;
+    private final CacheControl cacheControl;
+    
+    public GroupArchiveService(ClosedGroupArchiveRepository closedGroupArchiveRepository,
+                               ObjectMapper objectMapper,
+                               @Value("${groups.archive.cache-size:1000}") long cacheSize,
+                               @Value("${groups.archive.max-age-seconds:2592000}") long maxAgeSeconds) {
+        this.closedGroupArchiveRepository = closedGroupArchiveRepository;
+        this.objectMapper = objectMapper;
+        this.archives = Caffeine.newBuilder().maximumSize(cacheSize).build();
+        this.notArchived = Caffeine.newBuilder()
+                .maximumSize(100_000)
+                .expireAfterWrite(OPEN_GROUP_RECHECK)
+                .build();
+        this.cacheControl = CacheControl.maxAge(Duration.ofSeconds(maxAgeSeconds)).cachePrivate();
+    }
+    
+    /**
+     * Freezes a group that was just closed. The listings are re-sorted into the order the
+     * paginated endpoints use, so pages served from the archive match the live ones.
+     */
+    @Transactional
+    public GroupArchive archive(GroupResponse group, List<ExpenseResponse> expenses, List<SettlementResponse> settlements,
+                                List<GroupArchive.Debt> balances, List<TransferResponse> transfers) {
+        List<ExpenseResponse> sortedExpenses = new ArrayList<>(expenses);
+        sortedExpenses.sort(Comparator.comparing(GroupArchiveService::expenseCursor, PageCursor.ORDER));
+        List<SettlementResponse> sortedSettlements = new ArrayList<>(settlements);
+        sortedSettlements.sort(Comparator.comparing(GroupArchiveService::settlementCursor, PageCursor.ORDER));
+        GroupArchive archive = new GroupArchive(group, sortedExpenses, sortedSettlements, balances, transfers);
+        
+        try {
+            closedGroupArchiveRepository.save(new ClosedGroupArchive(group.getId(), objectMapper.writeValueAsString(archive), null));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize the archive of group " + group.getId(), e);
+        }
+        return archive;
+    }
+    
+    public boolean isArchived(Long groupId) {
+        return closedGroupArchiveRepository.existsById(groupId);
+    }
+    
+    /**
+     * The archive of a closed group, or empty when the group is open (or was closed before
+     * archives existed and hasn't been archived since).
+     */
+    public Optional<GroupArchive> find(Long groupId) {
+        GroupArchive archive = archives.getIfPresent(groupId);
+        if (archive != null) {
+            return Optional.of(archive);
+        }
+        if (notArchived.getIfPresent(groupId) != null) {
+            return Optional.empty();
+        }
+        
+        Optional<ClosedGroupArchive> stored = closedGroupArchiveRepository.findById(groupId);
+        if (stored.isEmpty()) {
+            notArchived.put(groupId, Boolean.TRUE);
+            return Optional.empty();
+        }
+        try {
+            archive = objectMapper.readValue(stored.get().getPayload(), GroupArchive.class);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not read the archive of group " + groupId, e);
+        }
+        archives.put(groupId, archive);
+        return Optional.of(archive);
+    }
+    
+    /**
+     * Caching for responses served from an archive: they can't change, but are per user, so
+     * they also have to vary by the Authorization header; otherwise the browser would hand one
+     * user's cached balances to the next user signing in on it without asking the server.
+     */
+    public CacheControl cacheControl() {
+        return cacheControl;
+    }
+    
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onGroupChanged(GroupChangedEvent event) {
+        notArchived.invalidate(event.groupId());
+    }
+    
+    /**
+     * Same as {@link BalanceService#getGroupBalances}: what the user owes or is owed by each other member.
+     */
+    public List<BalanceResponse> balances(GroupArchive archive, String userId) {
+        Map<String, String> names = memberNames(archive, userId);
+        List<BalanceResponse> responses = new ArrayList<>();
+        for (GroupArchive.Debt debt : archive.getBalances()) {
+            if (debt.getDebtorUserId().equals(userId)) {
+                responses.add(new BalanceResponse(debt.getCreditorUserId(), names.get(debt.getCreditorUserId()),
+                        debt.getAmount(), "owes"));
+            } else if (debt.getCreditorUserId().equals(userId)) {
+                responses.add(new BalanceResponse(debt.getDebtorUserId(), names.get(debt.getDebtorUserId()),
+                        debt.getAmount(), "owed"));
+            }
+        }
+        return responses;
+    }
+    
+    public List<TransferResponse> transfers(GroupArchive archive, String userId) {
+        memberNames(archive, userId);
+        return archive.getTransfers();
+    }
+    
+    public List<TransactionResponse> transactions(GroupArchive archive) {
+        List<TransactionResponse> transactions = new ArrayList<>();
+        archive.getExpenses().forEach(expense -> transactions.add(toTransactionResponse(expense)));
+        archive.getSettlements().forEach(settlement -> transactions.add(toTransactionResponse(settlement)));
+        transactions.sort(Comparator.comparing(GroupArchiveService::transactionCursor, PageCursor.ORDER));
+        return transactions;
+    }
+    
+    public CursorPage<ExpenseResponse> expensesPage(GroupArchive archive, String cursor, Integer limit) {
+        return PageCursor.page(archive.getExpenses(), PageCursor.decode(cursor), PageCursor.checkLimit(limit),
+                GroupArchiveService::expenseCursor);
+    }
+    
+    public CursorPage<SettlementResponse> settlementsPage(GroupArchive archive, String cursor, Integer limit) {
+        return PageCursor.page(archive.getSettlements(), PageCursor.decode(cursor), PageCursor.checkLimit(limit),
+                GroupArchiveService::settlementCursor);
+    }
+    
+    public CursorPage<TransactionResponse> transactionsPage(GroupArchive archive, String cursor, Integer limit) {
+        return PageCursor.page(transactions(archive), PageCursor.decode(cursor), PageCursor.checkLimit(limit),
+                GroupArchiveService::transactionCursor);
+    }
+    
+    private static Map<String, String> memberNames(GroupArchive archive, String userId) {
+        Map<String, String> names = archive.getGroup().getMembers().stream()
+                .collect(Collectors.toMap(MemberDTO::getUserId, MemberDTO::getAccountName));
+        if (!names.containsKey(userId)) {
+            throw new IllegalArgumentException("User is not a member of this group");
+        }
+        return names;
+    }
+    
+    private static PageCursor expenseCursor(ExpenseResponse expense) {
+        return new PageCursor(PageCursor.EXPENSE, expense.getCreatedAt(), expense.getId());
+    }
+    
+    private static PageCursor settlementCursor(SettlementResponse settlement) {
+        return new PageCursor(PageCursor.SETTLEMENT, settlement.getCreatedAt(), settlement.getId());
+    }
+    
+    private static PageCursor transactionCursor(TransactionResponse transaction) {
+        char type = "EXPENSE".equals(transaction.getType()) ? PageCursor.EXPENSE : PageCursor.SETTLEMENT;
+        return new PageCursor(type, transaction.getCreatedAt(), transaction.getId());
+    }
+    
+    /**
+     * Same fields as {@link TransactionService}'s mapping from the entities.
+     */
+    private static TransactionResponse toTransactionResponse(ExpenseResponse expense) {
+        TransactionResponse response = new TransactionResponse();
+        response.setId(expense.getId());
+        response.setType("EXPENSE");
+        response.setDescription(expense.getDescription());
+        response.setAmount(expense.getAmount());
+        response.setPayerUserId(expense.getPayerUserId());
+        response.setPayerName(expense.getPayerName());
+        response.setParticipantNames(String.join(", ", expense.getParticipantNames()));
+        response.setPerPersonAmount(expense.getPerPersonAmount());
+        response.setCreatedAt(expense.getCreatedAt());
+        return response;
+    }
+    
+    private static TransactionResponse toTransactionResponse(SettlementResponse settlement) {
+        TransactionResponse response = new TransactionResponse();
+        response.setId(settlement.getId());
+        response.setType("SETTLEMENT");
+        response.setDescription("Payment from " + settlement.getPayerName() + " to " + settlement.getPayeeName());
+        response.setAmount(settlement.getAmount());
+        response.setPayerUserId(settlement.getPayerUserId());
+        response.setPayerName(settlement.getPayerName());
+        response.setPayeeUserId(settlement.getPayeeUserId());
+        response.setPayeeName(settlement.getPayeeName());
+        response.setNote(settlement.getNote());
+        response.setCreatedAt(settlement.getCreatedAt());
+        return response;
+    }
+}
@@ -0,0 +1,8 @@
+package com.splitsphere.service;
+
+/**
+ * Published inside a transaction that changes a group's balances or membership.
+ * Listeners that cache per-group state act on it after the transaction commits.
+ */
+public record GroupChangedEvent(Long groupId) {
+}
@@ -0,0 +1,214 @@
+package com.splitsphere.service;
+
+import com.splitsphere.exception.CapacityExceededException;
+import com.splitsphere.repository.GroupRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Server-sent event streams of group activity, so dashboards refetch only what changed instead of
+ * polling. An idle stream costs no database work: events come from {@link GroupActivityEvent}s
+ * after their transaction commits, plus a heartbeat comment every
+ * {@code groups.events.heartbeat-seconds} that keeps proxies from closing the connection.
+ * <p>
+ * Each connection has its own queue of at most {@code groups.events.queue-size} events, written
+ * by its own sender task, so a slow client never holds up a commit or the other clients. Events
+ * that don't fit are dropped and replaced by a single {@code resync} event telling the client to
+ * reload the group; a client whose queue is still full at the next heartbeat is disconnected.
+ * At most {@code groups.events.max-connections} streams are open per instance.
+ * <p>
+ * Streams only carry activity committed on this instance.
+ */
+@Slf4j
+@Service
+public class GroupEventBroadcaster implements DisposableBean {
+    
+    static final String RESYNC = "resync";
+    
+    private final GroupRepository groupRepository;
+    private final int maxConnections;
+    private final int queueSize;
+    private final long timeoutMs;
+    private final Map<Long, Set<Connection>> connections = new ConcurrentHashMap<>();
+    private final AtomicInteger connectionCount = new AtomicInteger();
+    private final ExecutorService senders = Executors.newCachedThreadPool(daemonThreads("group-events-sender"));
+    private final ScheduledExecutorService heartbeats = Executors.newSingleThreadScheduledExecutor(daemonThreads("group-events-heartbeat"));
+    
+    public GroupEventBroadcaster(GroupRepository groupRepository,
+                                 @Value("${groups.events.max-connections:1000}") int maxConnections,
+                                 @Value("${groups.events.queue-size:32}") int queueSize,
+                                 @Value("${groups.events.heartbeat-seconds:15}") long heartbeatSeconds,
+                                 @Value("${groups.events.timeout-minutes:30}") long timeoutMinutes) {
+        this.groupRepository = groupRepository;
+        this.maxConnections = maxConnections;
+        this.queueSize = queueSize;
+        this.timeoutMs = TimeUnit.MINUTES.toMillis(timeoutMinutes);
+        heartbeats.scheduleAtFixedRate(this::heartbeat, heartbeatSeconds, heartbeatSeconds, TimeUnit.SECONDS);
+    }
+    
+    /**
+     * Open a stream of the group's activity for one of its members.
+     */
+    public SseEmitter subscribe(Long groupId, String userId) {
+        if (!groupRepository.existsByIdAndMembers_UserId(groupId, userId)) {
+            throw new IllegalArgumentException("User is not a member of this group");
+        }
+        if (connectionCount.incrementAndGet() > maxConnections) {
+            connectionCount.decrementAndGet();
+            throw new CapacityExceededException("Too many open event streams, please try again later");
+        }
+        
+        Connection connection = new Connection(groupId, new SseEmitter(timeoutMs));
+        connections.compute(groupId, (id, listeners) -> {
+            Set<Connection> updated = listeners == null ? ConcurrentHashMap.newKeySet() : listeners;
+            updated.add(connection);
+            return updated;
+        });
+        connection.emitter.onCompletion(connection::close);
+        connection.emitter.onTimeout(connection::close);
+        connection.emitter.onError(error -> connection.close());
+        // Sent right away so the response (and any proxy in between) starts streaming
+        connection.offer(SseEmitter.event().comment("connected"));
+        return connection.emitter;
+    }
+    
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onGroupActivity(GroupActivityEvent event) {
+        Set<Connection> listeners = connections.get(event.groupId());
+        if (listeners == null) {
+            return;
+        }
+        for (Connection connection : listeners) {
+            connection.offer(SseEmitter.event().name(event.type()).data(event, MediaType.APPLICATION_JSON));
+        }
+    }
+    
+    int connectionCount() {
+        return connectionCount.get();
+    }
+    
+    @Override
+    public void destroy() {
+        heartbeats.shutdownNow();
+        senders.shutdownNow();
+        for (Set<Connection> listeners : connections.values()) {
+            for (Connection connection : listeners) {
+                // One blocked in a write would block complete() too
+                if (!connection.sending.get()) {
+                    connection.emitter.complete();
+                }
+            }
+        }
+    }
+    
+    private void heartbeat() {
+        for (Set<Connection> listeners : connections.values()) {
+            for (Connection connection : listeners) {
+                if (connection.queued.get() >= queueSize) {
+                    log.info("Closing event stream of group {}: the client stopped reading", connection.groupId);
+                    connection.close();
+                    // complete() waits for a write in progress, so it's left to a sender thread
+                    senders.execute(connection.emitter::complete);
+                } else {
+                    connection.offer(SseEmitter.event().comment("heartbeat"));
+                }
+            }
+        }
+    }
+    
+    private static ThreadFactory daemonThreads(String name) {
+        return runnable -> {
+            Thread thread = new Thread(runnable, name);
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+    
+    private final class Connection {
+        
+        private final Long groupId;
+        private final SseEmitter emitter;
+        private final Queue<SseEmitter.SseEventBuilder> pending = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger queued = new AtomicInteger();
+        private final AtomicBoolean sending = new AtomicBoolean();
+        private final AtomicBoolean closed = new AtomicBoolean();
+        private volatile boolean dropped;
+        
+        private Connection(Long groupId, SseEmitter emitter) {
+            this.groupId = groupId;
+            this.emitter = emitter;
+        }
+        
+        private void offer(SseEmitter.SseEventBuilder event) {
+            if (closed.get()) {
+                return;
+            }
+            if (queued.incrementAndGet() > queueSize) {
+                queued.decrementAndGet();
+                dropped = true;
+            } else {
+                pending.add(event);
+            }
+            schedule();
+        }
+        
+        private void schedule() {
+            if (sending.compareAndSet(false, true)) {
+                try {
+                    senders.execute(this::send);
+                } catch (RejectedExecutionException e) {
+                    sending.set(false);
+                }
+            }
+        }
+        
+        private void send() {
+            try {
+                SseEmitter.SseEventBuilder event;
+                while (!closed.get() && (event = pending.poll()) != null) {
+                    queued.decrementAndGet();
+                    emitter.send(event);
+                }
+                if (dropped && !closed.get()) {
+                    dropped = false;
+                    emitter.send(SseEmitter.event().name(RESYNC).data(new GroupActivityEvent(groupId, RESYNC, List.of()),
+                            MediaType.APPLICATION_JSON));
+                }
+            } catch (IOException | IllegalStateException e) {
+                // The client went away; the emitter's completion callback may never come
+                close();
+            } finally {
+                sending.set(false);
+            }
+            if (!closed.get() && (!pending.isEmpty() || dropped)) {
+                schedule();
+            }
+        }
+        
+        private void close() {
+            if (closed.compareAndSet(false, true)) {
+                connections.computeIfPresent(groupId, (id, listeners) -> {
+                    listeners.remove(this);
+                    return listeners.isEmpty() ? null : listeners;
+                });
+                connectionCount.decrementAndGet();
+                pending.clear();
+            }
+        }
+    }
+}
@@ -1,16 +1,23 @@
 package com.splitsphere.service;
 
+import com.splitsphere.dto.GroupChanges;
 import com.splitsphere.dto.GroupRequest;
 import com.splitsphere.dto.GroupResponse;
 import com.splitsphere.model.Group;
+import com.splitsphere.model.GroupChange;
 import com.splitsphere.model.User;
+import com.splitsphere.repository.GroupChangeRepository;
 import com.splitsphere.repository.GroupRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 @Service
@@ -18,8 +25,14 @@ import java.util.stream.Collectors;
 public class GroupService {
     
     private final GroupRepository groupRepository;
+    private final GroupChangeRepository groupChangeRepository;
     private final UserService userService;
     private final AuditService auditService;
+    private final BalanceService balanceService;
+    private final ExpenseService expenseService;
+    private final SettlementService settlementService;
+    private final GroupArchiveService groupArchiveService;
+    private final ApplicationEventPublisher eventPublisher;
     private static final String CHARACTERS = "ABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789";
     private static final int CODE_LENGTH = 8;
     
@@ -44,7 +57,7 @@ public class GroupService {
     public GroupResponse joinGroup(String joinCode, String userId) {
         User user = userService.getUserByUserId(userId);
         
-        Group group = groupRepository.findByJoinCode(joinCode)
+        Group group = groupRepository.findForUpdateByJoinCode(joinCode)
                 .orElseThrow(() -> new IllegalArgumentException("Invalid join code"));
         
         if (group.isClosed()) {
@@ -57,6 +70,8 @@ public class GroupService {
         
         group.getMembers().add(user);
         group = groupRepository.save(group);
+        eventPublisher.publishEvent(new GroupChangedEvent(group.getId()));
+        eventPublisher.publishEvent(new GroupActivityEvent(group.getId(), GroupActivityEvent.MEMBER_JOINED, List.of()));
         
         auditService.log("JOIN", "Group", group.getId(), user, "User joined group: " + group.getName());
         
@@ -73,16 +88,57 @@ public class GroupService {
     
     @Transactional(readOnly = true)
     public GroupResponse getGroup(Long groupId) {
-        Group group = groupRepository.findById(groupId)
+        Group group = groupRepository.findWithMembersById(groupId)
                 .orElseThrow(() -> new IllegalArgumentException("Group not found"));
         return toGroupResponse(group);
     }
     
+    /**
+     * What was committed to the group after version {@code since}, read from its change log so the
+     * payload grows with recent activity rather than with the group; {@code since} 0 returns
+     * everything. Only the latest change of each expense or settlement counts, so one added and
+     * then deleted in the range comes back as just a tombstone.
+     */
+    @Transactional(readOnly = true)
+    public GroupChanges getGroupChanges(Long groupId, String userId, long since) {
+        if (since < 0) {
+            throw new IllegalArgumentException("since must not be negative");
+        }
+        Group group = groupRepository.findWithMembersById(groupId)
+                .orElseThrow(() -> new IllegalArgumentException("Group not found"));
+        if (group.getMembers().stream().noneMatch(member -> member.getUserId().equals(userId))) {
+            throw new IllegalArgumentException("User is not a member of this group");
+        }
+        
+        // Changes committed after the group was read are left for the next call
+        long version = group.getVersion();
+        Map<Long, GroupChange> expenseChanges = new LinkedHashMap<>();
+        Map<Long, GroupChange> settlementChanges = new LinkedHashMap<>();
+        boolean groupChanged = false;
+        for (GroupChange change : groupChangeRepository.findChanges(groupId, since, version)) {
+            switch (change.getEntityType()) {
+                case GroupChange.EXPENSE -> expenseChanges.put(change.getEntityId(), change);
+                case GroupChange.SETTLEMENT -> settlementChanges.put(change.getEntityId(), change);
+                default -> groupChanged = true;
+            }
+        }
+        
+        List<GroupChanges.Tombstone> deleted = new ArrayList<>();
+        List<Long> expenseIds = upserts(expenseChanges, "expense", deleted);
+        List<Long> settlementIds = upserts(settlementChanges, "settlement", deleted);
+        return new GroupChanges(groupId, version,
+                groupChanged ? toGroupResponse(group) : null,
+                expenseIds.isEmpty() ? List.of() : expenseService.getGroupExpenses(group, expenseIds),
+                settlementIds.isEmpty() ? List.of() : settlementService.getGroupSettlements(group, settlementIds),
+                deleted);
+    }
+    
     @Transactional
     public GroupResponse closeGroup(Long groupId, String userId) {
         User user = userService.getUserByUserId(userId);
         
-        Group group = groupRepository.findById(groupId)
+        // Waits for writes in flight and keeps new ones out until the archive below is committed
+        Group group = groupRepository.findForUpdateById(groupId)
                 .orElseThrow(() -> new IllegalArgumentException("Group not found"));
         
         if (!group.getCreator().equals(user)) {
@@ -97,9 +153,51 @@ public class GroupService {
         group.setClosedAt(java.time.LocalDateTime.now());
         group = groupRepository.save(group);
         
+        // Nothing can be added to a closed group, so this snapshot covers its whole history
+        balanceService.createSnapshot(group, group.getClosedAt());
+        GroupResponse response = archive(group);
+        eventPublisher.publishEvent(new GroupChangedEvent(group.getId()));
+        eventPublisher.publishEvent(new GroupActivityEvent(group.getId(), GroupActivityEvent.CLOSED, List.of()));
+        
         auditService.log("CLOSE", "Group", group.getId(), user, "Group closed: " + group.getName());
         
-        return toGroupResponse(group);
+        return response;
+    }
+    
+    /**
+     * Archive a group closed before closing wrote archives, so it's served like newly closed ones.
+     */
+    @Transactional
+    public void archiveClosedGroup(Long groupId) {
+        Group group = groupRepository.findById(groupId)
+                .orElseThrow(() -> new IllegalArgumentException("Group not found"));
+        if (!group.isClosed()) {
+            throw new IllegalArgumentException("Only closed groups can be archived");
+        }
+        archive(group);
+        eventPublisher.publishEvent(new GroupChangedEvent(group.getId()));
+    }
+    
+    private GroupResponse archive(Group group) {
+        GroupResponse response = toGroupResponse(group);
+        groupArchiveService.archive(response,
+                expenseService.getGroupExpenses(group.getId()),
+                settlementService.getGroupSettlements(group.getId()),
+                balanceService.getDebts(group),
+                balanceService.getSimplifiedTransfers(group.getId(), group.getCreator().getUserId()));
+        return response;
+    }
+    
+    private static List<Long> upserts(Map<Long, GroupChange> latest, String type, List<GroupChanges.Tombstone> deleted) {
+        List<Long> ids = new ArrayList<>();
+        latest.forEach((id, change) -> {
+            if (change.isDeleted()) {
+                deleted.add(new GroupChanges.Tombstone(type, id, change.getVersion()));
+            } else {
+                ids.add(id);
+            }
+        });
+        return ids;
     }
     
     private String generateUniqueJoinCode() {
@@ -0,0 +1,81 @@
+package com.splitsphere.service;
+
+import com.splitsphere.model.GroupChange;
+import com.splitsphere.repository.GroupChangeRepository;
+import com.splitsphere.repository.GroupRepository;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.context.request.WebRequest;
+
+import java.util.function.Supplier;
+
+/**
+ * ETags for a group's read endpoints, derived from the group's version column so an unchanged
+ * poll is answered with 304 after a single primary-key lookup (or none for an archived group),
+ * without loading entities or writing JSON.
+ * <p>
+ * The version is bumped in the transaction of every {@link GroupActivityEvent}, just before it
+ * commits, and what the event added is written to the group's change log at the new version
+ * (see {@link GroupService#getGroupChanges}). Holding the group row from then until the commit
+ * means versions commit in order, so a reader that sees version N also sees every change up to N.
+ * The ETag also names the user, because balances are per user and a browser may be
+ * shared between accounts.
+ */
+@Service
+public class GroupVersionService {
+    
+    private final GroupRepository groupRepository;
+    private final GroupChangeRepository groupChangeRepository;
+    private final GroupArchiveService groupArchiveService;
+    private final TransactionTemplate readOnlyTransaction;
+    
+    public GroupVersionService(GroupRepository groupRepository,
+                               GroupChangeRepository groupChangeRepository,
+                               GroupArchiveService groupArchiveService,
+                               PlatformTransactionManager transactionManager) {
+        this.groupRepository = groupRepository;
+        this.groupChangeRepository = groupChangeRepository;
+        this.groupArchiveService = groupArchiveService;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+    
+    /**
+     * Answers a read of the group: {@code null} when the client's ETag is still current, which
+     * Spring turns into 304 Not Modified, otherwise the response built by {@code body}. Both run
+     * in one read-only transaction, so the version and the body come from the same database,
+     * the version first: the body is never older than the ETag sent with it, even when a replica
+     * serves it while lagging behind the primary.
+     */
+    public <T> ResponseEntity<T> ifModified(Long groupId, String userId, WebRequest request,
+                                            Supplier<ResponseEntity<T>> body) {
+        return readOnlyTransaction.execute(status -> request.checkNotModified(etag(groupId, userId)) ? null : body.get());
+    }
+    
+    public String etag(Long groupId, String userId) {
+        // An archived group never changes again
+        String version = groupArchiveService.find(groupId).isPresent()
+                ? "archived"
+                : Long.toString(groupRepository.findVersionById(groupId)
+                        .orElseThrow(() -> new IllegalArgumentException("Group not found")));
+        return "W/\"" + groupId + "-" + version + "-" + userId + "\"";
+    }
+    
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT)
+    public void onGroupActivity(GroupActivityEvent event) {
+        groupRepository.incrementVersion(event.groupId());
+        long version = groupRepository.findVersionById(event.groupId()).orElseThrow();
+        switch (event.type()) {
+            case GroupActivityEvent.EXPENSE, GroupActivityEvent.EXPENSES ->
+                    groupChangeRepository.logExpenses(event.groupId(), version, event.ids());
+            case GroupActivityEvent.SETTLEMENT ->
+                    groupChangeRepository.logSettlements(event.groupId(), version, event.ids());
+            default -> groupChangeRepository.save(
+                    new GroupChange(null, event.groupId(), version, GroupChange.GROUP, event.groupId(), false));
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.splitsphere.service;
+
+import com.splitsphere.model.Group;
+import com.splitsphere.repository.GroupRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Component;
+
+/**
+ * Rebuilds the balance ledger of every group from raw history on startup when the
+ * application is launched with {@code --rebuild-ledger} or {@code ledger.rebuild-on-startup=true}.
+ * Needed once when upgrading a database that predates the ledger table.
+ * <p>
+ * With {@code --verify-balances} every group's latest snapshot is checked against a full
+ * recompute (and dropped if it differs), then the ledger is checked against the snapshot
+ * plus newer history and rebuilt if it differs.
+ * <p>
+ * With {@code --archive-closed-groups} groups closed before closing wrote an archive get one.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class LedgerRebuildRunner implements ApplicationRunner {
+    
+    private final GroupRepository groupRepository;
+    private final BalanceService balanceService;
+    private final GroupService groupService;
+    private final GroupArchiveService groupArchiveService;
+    
+    @Value("${ledger.rebuild-on-startup:false}")
+    private boolean rebuildOnStartup;
+    
+    @Override
+    public void run(ApplicationArguments args) {
+        if (args.containsOption("verify-balances")) {
+            verify();
+        }
+        if (args.containsOption("archive-closed-groups")) {
+            archiveClosedGroups();
+        }
+        if (!rebuildOnStartup && !args.containsOption("rebuild-ledger")) {
+            return;
+        }
+        
+        int groups = 0;
+        int rows = 0;
+        for (Group group : groupRepository.findAll()) {
+            rows += balanceService.rebuildLedger(group.getId());
+            groups++;
+        }
+        log.info("Rebuilt balance ledger for {} groups ({} rows)", groups, rows);
+    }
+    
+    private void verify() {
+        int repaired = 0;
+        for (Group group : groupRepository.findAll()) {
+            if (!balanceService.verifySnapshot(group.getId())) {
+                log.warn("Balance snapshot of group {} differs from its history, dropping snapshots", group.getId());
+                balanceService.dropSnapshots(group.getId());
+            }
+            if (!balanceService.verifyLedger(group.getId())) {
+                log.warn("Balance ledger of group {} differs from its history, rebuilding", group.getId());
+                balanceService.rebuildLedger(group.getId());
+                repaired++;
+            }
+        }
+        log.info("Verified balances, {} ledgers rebuilt", repaired);
+    }
+    
+    private void archiveClosedGroups() {
+        int archived = 0;
+        for (Group group : groupRepository.findAll()) {
+            if (group.isClosed() && !groupArchiveService.isArchived(group.getId())) {
+                groupService.archiveClosedGroup(group.getId());
+                archived++;
+            }
+        }
+        log.info("Archived {} closed groups", archived);
+    }
+}
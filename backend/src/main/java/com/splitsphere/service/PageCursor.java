@@ -0,0 +1,98 @@
+package com.splitsphere.service;
+
+import com.splitsphere.dto.CursorPage;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Position in a listing ordered by {@code createdAt DESC, id DESC}: the last row of the
+ * previous page. Encoded as an opaque URL-safe string so clients can't depend on its layout.
+ * The type tells expenses and settlements apart in the merged transaction feed.
+ */
+record PageCursor(char type, LocalDateTime createdAt, long id) {
+    
+    static final char EXPENSE = 'E';
+    static final char SETTLEMENT = 'S';
+    
+    static final int DEFAULT_LIMIT = 50;
+    static final int MAX_LIMIT = 200;
+    
+    /**
+     * Listing order: newest first, expenses before settlements at the same instant, then id descending.
+     */
+    static final Comparator<PageCursor> ORDER = Comparator.comparing(PageCursor::createdAt).reversed()
+            .thenComparing(PageCursor::type)
+            .thenComparing(Comparator.comparingLong(PageCursor::id).reversed());
+    
+    String encode() {
+        String raw = type + "|" + createdAt + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+    
+    /**
+     * Decode a client supplied cursor; null or blank means the first page.
+     */
+    static PageCursor decode(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        try {
+            String[] parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split("\\|");
+            if (parts.length != 3 || parts[0].length() != 1) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+            return new PageCursor(parts[0].charAt(0), LocalDateTime.parse(parts[1]), Long.parseLong(parts[2]));
+        } catch (DateTimeParseException | NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+    }
+    
+    static int checkLimit(Integer limit) {
+        if (limit == null) {
+            return DEFAULT_LIMIT;
+        }
+        if (limit < 1 || limit > MAX_LIMIT) {
+            throw new IllegalArgumentException("Limit must be between 1 and " + MAX_LIMIT);
+        }
+        return limit;
+    }
+    
+    /**
+     * Turn limit + 1 fetched rows into a page: the extra row only signals that more exist.
+     */
+    static <E, R> CursorPage<R> page(List<E> rows, int limit, Function<E, R> mapper, Function<E, PageCursor> cursorOf) {
+        List<R> items = new ArrayList<>(Math.min(rows.size(), limit));
+        for (int i = 0; i < rows.size() && i < limit; i++) {
+            items.add(mapper.apply(rows.get(i)));
+        }
+        String next = rows.size() > limit ? cursorOf.apply(rows.get(limit - 1)).encode() : null;
+        return new CursorPage<>(items, next);
+    }
+    
+    /**
+     * One page of an in-memory list already sorted in {@link #ORDER}, continuing after the cursor
+     * exactly like the keyset queries do.
+     */
+    static <R> CursorPage<R> page(List<R> sorted, PageCursor after, int limit, Function<R, PageCursor> cursorOf) {
+        int from = 0;
+        if (after != null) {
+            int to = sorted.size();
+            while (from < to) {
+                int middle = (from + to) >>> 1;
+                if (ORDER.compare(cursorOf.apply(sorted.get(middle)), after) <= 0) {
+                    from = middle + 1;
+                } else {
+                    to = middle;
+                }
+            }
+        }
+        return page(sorted.subList(from, Math.min(sorted.size(), from + limit + 1)), limit, Function.identity(), cursorOf);
+    }
+}
@@ -0,0 +1,258 @@
+package com.splitsphere.service;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.splitsphere.dto.ReportJobResponse;
+import com.splitsphere.exception.CapacityExceededException;
+import com.splitsphere.exception.NotReadyException;
+import com.splitsphere.exception.TooManyRequestsException;
+import com.splitsphere.repository.GroupRepository;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.*;
+
+/**
+ * Generates reports on a bounded pool of {@code reports.jobs.threads} workers instead of request
+ * threads. A job is submitted, polled and then downloaded; at most {@code reports.jobs.queue-size}
+ * reports wait for a worker and each user can have {@code reports.jobs.max-per-user} of them
+ * queued or running, so a few users can't keep the pool busy with PDF rendering. At most
+ * {@code reports.jobs.max-jobs} jobs are remembered for polling, the oldest going first.
+ * <p>
+ * Finished reports are kept as temp files, keyed by group, group version and format, up to
+ * {@code reports.cache.max-megabytes} and for {@code reports.cache.ttl-minutes} after their last
+ * use. Asking again for an unchanged group completes right away with the same file, and
+ * concurrent requests for the same report share one rendering. The version is read before
+ * rendering and the report is read from the primary (see
+ * {@link TransactionService#forEachGroupTransaction}), so a cached file is never older than its key.
+ */
+@Slf4j
+@Service
+public class ReportJobService implements DisposableBean {
+    
+    public static final String PENDING = "PENDING";
+    public static final String DONE = "DONE";
+    public static final String FAILED = "FAILED";
+    
+    private final ReportService reportService;
+    private final GroupRepository groupRepository;
+    private final int maxPerUser;
+    private final ThreadPoolExecutor workers;
+    private final AsyncCache<ArtifactKey, Artifact> artifacts;
+    private final Cache<String, Job> jobs;
+    private final Map<String, Integer> runningByUser = new ConcurrentHashMap<>();
+    
+    public ReportJobService(ReportService reportService,
+                            GroupRepository groupRepository,
+                            @Value("${reports.jobs.threads:2}") int threads,
+                            @Value("${reports.jobs.queue-size:20}") int queueSize,
+                            @Value("${reports.jobs.max-per-user:2}") int maxPerUser,
+                            @Value("${reports.jobs.retention-minutes:60}") long retentionMinutes,
+                            @Value("${reports.jobs.max-jobs:10000}") long maxJobs,
+                            @Value("${reports.cache.max-megabytes:512}") long maxMegabytes,
+                            @Value("${reports.cache.ttl-minutes:60}") long ttlMinutes) {
+        this.reportService = reportService;
+        this.groupRepository = groupRepository;
+        this.maxPerUser = maxPerUser;
+        this.workers = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueSize), runnable -> {
+                    Thread thread = new Thread(runnable, "report-worker");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        this.artifacts = Caffeine.newBuilder()
+                .maximumWeight(maxMegabytes << 20)
+                .<ArtifactKey, Artifact>weigher((key, artifact) -> (int) Math.min(artifact.size(), Integer.MAX_VALUE))
+                .expireAfterAccess(Duration.ofMinutes(ttlMinutes))
+                .removalListener((key, artifact, cause) -> {
+                    if (artifact != null) {
+                        delete(artifact.file());
+                    }
+                })
+                // Removal runs on the caller, so destroy() has deleted every file when it returns
+                .executor(Runnable::run)
+                .buildAsync();
+        this.jobs = Caffeine.newBuilder()
+                .maximumSize(maxJobs)
+                .expireAfterWrite(Duration.ofMinutes(retentionMinutes))
+                .build();
+    }
+    
+    @Getter
+    @RequiredArgsConstructor
+    public enum Format {
+        EXCEL("xlsx", "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet"),
+        PDF("pdf", "application/pdf");
+        
+        private final String extension;
+        private final String contentType;
+        
+        static Format of(String name) {
+            for (Format format : values()) {
+                if (format.name().equalsIgnoreCase(name)) {
+                    return format;
+                }
+            }
+            throw new IllegalArgumentException("Unknown report format: " + name);
+        }
+    }
+    
+    /**
+     * A finished report, ready to be sent.
+     */
+    public record Download(Path file, long size, Long groupId, Format format) {
+    }
+    
+    public ReportJobResponse submit(Long groupId, String format, String userId) {
+        Format reportFormat = Format.of(format);
+        reportService.checkMember(groupId, userId);
+        long version = groupRepository.findVersionById(groupId)
+                .orElseThrow(() -> new IllegalArgumentException("Group not found"));
+        
+        ArtifactKey key = new ArtifactKey(groupId, version, reportFormat);
+        CompletableFuture<Artifact> artifact = artifacts.get(key, (k, executor) -> render(k, userId));
+        Job job = new Job(UUID.randomUUID().toString(), userId, groupId, reportFormat, artifact, LocalDateTime.now());
+        jobs.put(job.id(), job);
+        return toResponse(job);
+    }
+    
+    public ReportJobResponse getJob(String jobId, String userId) {
+        return toResponse(findJob(jobId, userId));
+    }
+    
+    public Download download(String jobId, String userId) {
+        Job job = findJob(jobId, userId);
+        if (!job.artifact().isDone()) {
+            throw new NotReadyException("The report is not ready yet");
+        }
+        if (job.artifact().isCompletedExceptionally()) {
+            throw new IllegalArgumentException("The report could not be generated");
+        }
+        Artifact artifact = job.artifact().join();
+        if (!Files.isReadable(artifact.file())) {
+            throw new IllegalArgumentException("The report has expired, please request it again");
+        }
+        return new Download(artifact.file(), artifact.size(), job.groupId(), job.format());
+    }
+    
+    int runningCount(String userId) {
+        return runningByUser.getOrDefault(userId, 0);
+    }
+    
+    @Override
+    public void destroy() {
+        workers.shutdownNow();
+        artifacts.synchronous().invalidateAll();
+    }
+    
+    private CompletableFuture<Artifact> render(ArtifactKey key, String userId) {
+        if (!acquire(userId)) {
+            throw new TooManyRequestsException("You already have " + maxPerUser
+                    + " reports being generated, please wait for them to finish");
+        }
+        try {
+            return CompletableFuture.supplyAsync(() -> {
+                try {
+                    return write(key);
+                } catch (RuntimeException e) {
+                    log.warn("Report {} of group {} failed", key.format(), key.groupId(), e);
+                    throw e;
+                } finally {
+                    // Before the job shows as finished, so the user can start the next one right away
+                    release(userId);
+                }
+            }, workers);
+        } catch (RejectedExecutionException e) {
+            release(userId);
+            throw new CapacityExceededException("Too many reports are being generated, please try again later");
+        }
+    }
+    
+    private Artifact write(ArtifactKey key) {
+        Path file = null;
+        try {
+            file = Files.createTempFile("report-" + key.groupId() + "-", "." + key.format().getExtension());
+            try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(file))) {
+                if (key.format() == Format.PDF) {
+                    reportService.writePdfReport(key.groupId(), out);
+                } else {
+                    reportService.writeExcelReport(key.groupId(), out);
+                }
+            }
+            return new Artifact(file, Files.size(file));
+        } catch (IOException | RuntimeException e) {
+            if (file != null) {
+                delete(file);
+            }
+            throw e instanceof IOException io ? new UncheckedIOException(io) : (RuntimeException) e;
+        }
+    }
+    
+    private boolean acquire(String userId) {
+        boolean[] acquired = {false};
+        runningByUser.compute(userId, (id, running) -> {
+            int count = running == null ? 0 : running;
+            if (count >= maxPerUser) {
+                return running;
+            }
+            acquired[0] = true;
+            return count + 1;
+        });
+        return acquired[0];
+    }
+    
+    private void release(String userId) {
+        runningByUser.computeIfPresent(userId, (id, running) -> running == 1 ? null : running - 1);
+    }
+    
+    private Job findJob(String jobId, String userId) {
+        Job job = jobs.getIfPresent(jobId);
+        // Someone else's job looks the same as an unknown one
+        if (job == null || !job.userId().equals(userId)) {
+            throw new IllegalArgumentException("Report job not found");
+        }
+        return job;
+    }
+    
+    private static ReportJobResponse toResponse(Job job) {
+        String status = !job.artifact().isDone() ? PENDING
+                : job.artifact().isCompletedExceptionally() ? FAILED
+                : DONE;
+        return new ReportJobResponse(job.id(), job.groupId(), job.format().name().toLowerCase(Locale.ROOT), status,
+                FAILED.equals(status) ? "The report could not be generated" : null, job.createdAt());
+    }
+    
+    private static void delete(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("Could not delete report file {}", file, e);
+        }
+    }
+    
+    private record ArtifactKey(Long groupId, long version, Format format) {
+    }
+    
+    private record Artifact(Path file, long size) {
+    }
+    
+    private record Job(String id, String userId, Long groupId, Format format,
+                       CompletableFuture<Artifact> artifact, LocalDateTime createdAt) {
+    }
+}
@@ -11,13 +11,13 @@ import com.splitsphere.model.Group;
 import com.splitsphere.repository.GroupRepository;
 import lombok.RequiredArgsConstructor;
 import org.apache.poi.ss.usermodel.*;
-import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
 import org.springframework.stereotype.Service;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.time.format.DateTimeFormatter;
-import java.util.List;
+import java.util.function.Consumer;
 
 @Service
 @RequiredArgsConstructor
@@ -26,14 +26,41 @@ public class ReportService {
     private final TransactionService transactionService;
     private final GroupRepository groupRepository;
     private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
+    static final int EXCEL_ROW_WINDOW = 100;
+    static final int PDF_FLUSH_ROWS = 50;
     
-    public byte[] generateExcelReport(Long groupId) throws IOException {
+    /**
+     * Only members get a group's report. Checked before a streamed response starts, while the
+     * request can still be answered with 400.
+     */
+    public void checkMember(Long groupId, String userId) {
+        if (!groupRepository.existsByIdAndMembers_UserId(groupId, userId)) {
+            throw new IllegalArgumentException("User is not a member of this group");
+        }
+    }
+    
+    /**
+     * Write the group's transactions as an Excel workbook while they are read, so memory stays
+     * flat however many there are; see {@link #writeExcel}.
+     */
+    public void writeExcelReport(Long groupId, OutputStream out) throws IOException {
         Group group = groupRepository.findById(groupId)
                 .orElseThrow(() -> new IllegalArgumentException("Group not found"));
         
-        List<TransactionResponse> transactions = transactionService.getGroupTransactions(groupId);
-        
-        try (Workbook workbook = new XSSFWorkbook(); ByteArrayOutputStream out = new ByteArrayOutputStream()) {
+        writeExcel(group.getName(), rows -> transactionService.forEachGroupTransaction(groupId, rows), out);
+    }
+    
+    /**
+     * Only {@link #EXCEL_ROW_WINDOW} rows are kept in memory, older ones go to a compressed temp
+     * file, and strings are written inline rather than into a shared table. Column widths come
+     * from the longest value seen in each column during the same pass, instead of
+     * {@code autoSizeColumn}, which needs every row in memory and measures each cell again.
+     */
+    static void writeExcel(String groupName, Consumer<Consumer<TransactionResponse>> transactions,
+                           OutputStream out) throws IOException {
+        SXSSFWorkbook workbook = new SXSSFWorkbook(EXCEL_ROW_WINDOW);
+        workbook.setCompressTempFiles(true);
+        try {
             Sheet sheet = workbook.createSheet("Transactions");
             
             // Create header style
@@ -47,108 +74,133 @@ public class ReportService {
             // Title row
             Row titleRow = sheet.createRow(0);
             org.apache.poi.ss.usermodel.Cell titleCell = titleRow.createCell(0);
-            titleCell.setCellValue("Transaction Report: " + group.getName());
+            titleCell.setCellValue("Transaction Report: " + groupName);
             titleCell.setCellStyle(headerStyle);
             
             // Header row
             Row headerRow = sheet.createRow(2);
             String[] columns = {"Date", "Type", "Description", "Amount", "Payer", "Details"};
+            int[] widths = new int[columns.length];
             for (int i = 0; i < columns.length; i++) {
                 org.apache.poi.ss.usermodel.Cell cell = headerRow.createCell(i);
                 cell.setCellValue(columns[i]);
                 cell.setCellStyle(headerStyle);
+                widths[i] = columns[i].length();
             }
             
             // Data rows
-            int rowNum = 3;
-            for (TransactionResponse transaction : transactions) {
-                Row row = sheet.createRow(rowNum++);
-                row.createCell(0).setCellValue(transaction.getCreatedAt().format(DATE_FORMATTER));
+            int[] rowNum = {3};
+            transactions.accept(transaction -> {
+                String date = transaction.getCreatedAt().format(DATE_FORMATTER);
+                String details = details(transaction);
+                Row row = sheet.createRow(rowNum[0]++);
+                row.createCell(0).setCellValue(date);
                 row.createCell(1).setCellValue(transaction.getType());
                 row.createCell(2).setCellValue(transaction.getDescription());
                 row.createCell(3).setCellValue(transaction.getAmount().doubleValue());
                 row.createCell(4).setCellValue(transaction.getPayerName());
-                
-                String details = "";
-                if ("EXPENSE".equals(transaction.getType())) {
-                    details = "Split: " + transaction.getParticipantNames() + " ($" + transaction.getPerPersonAmount() + " each)";
-                } else if ("SETTLEMENT".equals(transaction.getType())) {
-                    details = "Paid to: " + transaction.getPayeeName();
-                    if (transaction.getNote() != null && !transaction.getNote().isEmpty()) {
-                        details += " - " + transaction.getNote();
-                    }
-                }
                 row.createCell(5).setCellValue(details);
-            }
+                fit(widths, date, transaction.getType(), transaction.getDescription(),
+                        transaction.getAmount().toPlainString(), transaction.getPayerName(), details);
+            });
             
-            // Auto-size columns
             for (int i = 0; i < columns.length; i++) {
-                sheet.autoSizeColumn(i);
+                // Units of 1/256 of a character, plus some padding; Excel caps widths at 255 characters
+                sheet.setColumnWidth(i, Math.min(widths[i] + 2, 255) * 256);
             }
             
             workbook.write(out);
-            return out.toByteArray();
+        } finally {
+            workbook.dispose();
+            workbook.close();
         }
     }
     
-    public byte[] generatePdfReport(Long groupId) throws IOException {
+    /**
+     * Write the group's transactions as a PDF while they are read, so memory stays flat however
+     * many there are; see {@link #writePdf}. Rows are read a chunk at a time in short
+     * transactions, so no database connection is held while pages are written to {@code out}.
+     */
+    public void writePdfReport(Long groupId, OutputStream out) throws IOException {
         Group group = groupRepository.findById(groupId)
                 .orElseThrow(() -> new IllegalArgumentException("Group not found"));
         
-        List<TransactionResponse> transactions = transactionService.getGroupTransactions(groupId);
+        writePdf(group.getName(), rows -> transactionService.forEachGroupTransaction(groupId, rows), out);
+    }
+    
+    /**
+     * The table is a "large table": it's added to the document before its rows, and every
+     * {@link #PDF_FLUSH_ROWS} rows the finished ones are laid out and their pages written to
+     * {@code out}, so neither the table nor the document is ever held whole. The stream is left
+     * open for the caller.
+     */
+    static void writePdf(String groupName, Consumer<Consumer<TransactionResponse>> transactions,
+                         OutputStream out) throws IOException {
+        PdfWriter writer = new PdfWriter(out);
+        writer.setCloseStream(false);
+        PdfDocument pdf = new PdfDocument(writer);
+        Document document = new Document(pdf);
         
-        try (ByteArrayOutputStream out = new ByteArrayOutputStream()) {
-            PdfWriter writer = new PdfWriter(out);
-            PdfDocument pdf = new PdfDocument(writer);
-            Document document = new Document(pdf);
-            
-            // Title
-            document.add(new Paragraph("Transaction Report")
-                    .setFontSize(20)
-                    .setBold()
-                    .setTextAlignment(TextAlignment.CENTER));
-            document.add(new Paragraph("Group: " + group.getName())
-                    .setFontSize(14)
-                    .setTextAlignment(TextAlignment.CENTER));
-            document.add(new Paragraph("\n"));
-            
-            // Table
-            float[] columnWidths = {15, 10, 25, 10, 15, 25};
-            Table table = new Table(columnWidths);
-            table.setWidth(550);
-            
-            // Header
-            table.addHeaderCell(new com.itextpdf.layout.element.Cell().add(new Paragraph("Date").setBold()));
-            table.addHeaderCell(new com.itextpdf.layout.element.Cell().add(new Paragraph("Type").setBold()));
-            table.addHeaderCell(new com.itextpdf.layout.element.Cell().add(new Paragraph("Description").setBold()));
-            table.addHeaderCell(new com.itextpdf.layout.element.Cell().add(new Paragraph("Amount").setBold()));
-            table.addHeaderCell(new com.itextpdf.layout.element.Cell().add(new Paragraph("Payer").setBold()));
-            table.addHeaderCell(new com.itextpdf.layout.element.Cell().add(new Paragraph("Details").setBold()));
-            
-            // Data
-            for (TransactionResponse transaction : transactions) {
-                table.addCell(new com.itextpdf.layout.element.Cell().add(new Paragraph(transaction.getCreatedAt().format(DATE_FORMATTER))));
-                table.addCell(new com.itextpdf.layout.element.Cell().add(new Paragraph(transaction.getType())));
-                table.addCell(new com.itextpdf.layout.element.Cell().add(new Paragraph(transaction.getDescription())));
-                table.addCell(new com.itextpdf.layout.element.Cell().add(new Paragraph("$" + transaction.getAmount())));
-                table.addCell(new com.itextpdf.layout.element.Cell().add(new Paragraph(transaction.getPayerName())));
-                
-                String details = "";
-                if ("EXPENSE".equals(transaction.getType())) {
-                    details = "Split: " + transaction.getParticipantNames() + " ($" + transaction.getPerPersonAmount() + " each)";
-                } else if ("SETTLEMENT".equals(transaction.getType())) {
-                    details = "Paid to: " + transaction.getPayeeName();
-                    if (transaction.getNote() != null && !transaction.getNote().isEmpty()) {
-                        details += " - " + transaction.getNote();
-                    }
-                }
-                table.addCell(new com.itextpdf.layout.element.Cell().add(new Paragraph(details)));
+        // Title
+        document.add(new Paragraph("Transaction Report")
+                .setFontSize(20)
+                .setBold()
+                .setTextAlignment(TextAlignment.CENTER));
+        document.add(new Paragraph("Group: " + groupName)
+                .setFontSize(14)
+                .setTextAlignment(TextAlignment.CENTER));
+        document.add(new Paragraph("\n"));
+        
+        // Table
+        float[] columnWidths = {15, 10, 25, 10, 15, 25};
+        Table table = new Table(columnWidths, true);
+        table.setWidth(550);
+        
+        // Header
+        table.addHeaderCell(new com.itextpdf.layout.element.Cell().add(new Paragraph("Date").setBold()));
+        table.addHeaderCell(new com.itextpdf.layout.element.Cell().add(new Paragraph("Type").setBold()));
+        table.addHeaderCell(new com.itextpdf.layout.element.Cell().add(new Paragraph("Description").setBold()));
+        table.addHeaderCell(new com.itextpdf.layout.element.Cell().add(new Paragraph("Amount").setBold()));
+        table.addHeaderCell(new com.itextpdf.layout.element.Cell().add(new Paragraph("Payer").setBold()));
+        table.addHeaderCell(new com.itextpdf.layout.element.Cell().add(new Paragraph("Details").setBold()));
+        document.add(table);
+        
+        // Data
+        int[] rows = {0};
+        transactions.accept(transaction -> {
+            table.addCell(new com.itextpdf.layout.element.Cell().add(new Paragraph(transaction.getCreatedAt().format(DATE_FORMATTER))));
+            table.addCell(new com.itextpdf.layout.element.Cell().add(new Paragraph(transaction.getType())));
+            table.addCell(new com.itextpdf.layout.element.Cell().add(new Paragraph(transaction.getDescription())));
+            table.addCell(new com.itextpdf.layout.element.Cell().add(new Paragraph("$" + transaction.getAmount())));
+            table.addCell(new com.itextpdf.layout.element.Cell().add(new Paragraph(transaction.getPayerName())));
+            table.addCell(new com.itextpdf.layout.element.Cell().add(new Paragraph(details(transaction))));
+            if (++rows[0] % PDF_FLUSH_ROWS == 0) {
+                table.flush();
+            }
+        });
+        
+        table.complete();
+        document.close();
+    }
+    
+    private static void fit(int[] widths, String... values) {
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] != null) {
+                widths[i] = Math.max(widths[i], values[i].length());
+            }
+        }
+    }
+    
+    private static String details(TransactionResponse transaction) {
+        String details = "";
+        if ("EXPENSE".equals(transaction.getType())) {
+            details = "Split: " + transaction.getParticipantNames() + " ($" + transaction.getPerPersonAmount() + " each)";
+        } else if ("SETTLEMENT".equals(transaction.getType())) {
+            details = "Paid to: " + transaction.getPayeeName();
+            if (transaction.getNote() != null && !transaction.getNote().isEmpty()) {
+                details += " - " + transaction.getNote();
             }
-            
-            document.add(table);
-            document.close();
-            
-            return out.toByteArray();
         }
+        return details;
     }
 }
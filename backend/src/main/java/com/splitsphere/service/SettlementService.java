@@ -1,5 +1,6 @@
 package com.splitsphere.service;
 
+import com.splitsphere.dto.CursorPage;
 import com.splitsphere.dto.SettlementRequest;
 import com.splitsphere.dto.SettlementResponse;
 import com.splitsphere.model.Group;
@@ -8,10 +9,13 @@ import com.splitsphere.model.User;
 import com.splitsphere.repository.GroupRepository;
 import com.splitsphere.repository.SettlementRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
+import java.util.Collection;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -24,13 +28,14 @@ public class SettlementService {
     private final UserService userService;
     private final AuditService auditService;
     private final BalanceService balanceService;
+    private final ApplicationEventPublisher eventPublisher;
     
     @Transactional
     public SettlementResponse createSettlement(SettlementRequest request, String payerUserId) {
         User payer = userService.getUserByUserId(payerUserId);
         User payee = userService.getUserByUserId(request.getPayeeUserId());
         
-        Group group = groupRepository.findById(request.getGroupId())
+        Group group = groupRepository.findForUpdateById(request.getGroupId())
                 .orElseThrow(() -> new IllegalArgumentException("Group not found"));
         
         if (group.isClosed()) {
@@ -49,8 +54,8 @@ public class SettlementService {
             throw new IllegalArgumentException("Cannot settle payment with yourself");
         }
         
-        // Calculate how much payer owes to payee
-        BigDecimal currentBalance = balanceService.calculateBalanceBetweenUsers(
+        // How much payer owes to payee; the pair stays locked until this settlement commits
+        BigDecimal currentBalance = balanceService.lockBalanceBetweenUsers(
                 request.getGroupId(), payer, payee);
         
         // If balance is negative or zero, payer doesn't owe anything to payee
@@ -73,6 +78,8 @@ public class SettlementService {
         settlement.setNote(request.getNote());
         
         settlement = settlementRepository.save(settlement);
+        balanceService.recordSettlement(settlement);
+        eventPublisher.publishEvent(new GroupActivityEvent(group.getId(), GroupActivityEvent.SETTLEMENT, List.of(settlement.getId())));
         
         auditService.log("CREATE", "Settlement", settlement.getId(), payer,
                 "Settlement created: " + payer.getAccountName() + " paid " + payee.getAccountName() + " - " + settlement.getAmount());
@@ -90,6 +97,34 @@ public class SettlementService {
                 .collect(Collectors.toList());
     }
     
+    /**
+     * The given settlements of a group, newest first. Ids of settlements that don't exist (anymore) are skipped.
+     */
+    @Transactional(readOnly = true)
+    public List<SettlementResponse> getGroupSettlements(Group group, Collection<Long> ids) {
+        return settlementRepository.findByGroupAndIds(group, ids).stream()
+                .map(this::toSettlementResponse)
+                .collect(Collectors.toList());
+    }
+    
+    /**
+     * One page of a group's settlements, newest first, continuing after the given cursor.
+     */
+    @Transactional(readOnly = true)
+    public CursorPage<SettlementResponse> getGroupSettlementsPage(Long groupId, String cursor, Integer limit) {
+        Group group = groupRepository.findById(groupId)
+                .orElseThrow(() -> new IllegalArgumentException("Group not found"));
+        
+        int pageSize = PageCursor.checkLimit(limit);
+        PageCursor after = PageCursor.decode(cursor);
+        List<Settlement> settlements = after == null
+                ? settlementRepository.findFirstPage(group, Limit.of(pageSize + 1))
+                : settlementRepository.findPageBefore(group, after.createdAt(), after.id(), Limit.of(pageSize + 1));
+        
+        return PageCursor.page(settlements, pageSize, this::toSettlementResponse,
+                s -> new PageCursor(PageCursor.SETTLEMENT, s.getCreatedAt(), s.getId()));
+    }
+    
     private SettlementResponse toSettlementResponse(Settlement settlement) {
         SettlementResponse response = new SettlementResponse();
         response.setId(settlement.getId());
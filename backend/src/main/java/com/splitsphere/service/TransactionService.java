@@ -1,5 +1,6 @@
 package com.splitsphere.service;
 
+import com.splitsphere.dto.CursorPage;
 import com.splitsphere.dto.TransactionResponse;
 import com.splitsphere.model.Expense;
 import com.splitsphere.model.Group;
@@ -8,73 +9,219 @@ import com.splitsphere.model.User;
 import com.splitsphere.repository.ExpenseRepository;
 import com.splitsphere.repository.GroupRepository;
 import com.splitsphere.repository.SettlementRepository;
+import jakarta.persistence.EntityManager;
 import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
-import java.util.Comparator;
 import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
 public class TransactionService {
     
+    private static final int FEED_CHUNK = PageCursor.MAX_LIMIT;
+    
     private final ExpenseRepository expenseRepository;
     private final SettlementRepository settlementRepository;
     private final GroupRepository groupRepository;
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
     
+    /**
+     * The whole feed, newest first. Built by the same merge as the pages, so it reads each side
+     * in keyset chunks and never re-sorts.
+     */
     @Transactional(readOnly = true)
     public List<TransactionResponse> getGroupTransactions(Long groupId) {
+        List<TransactionResponse> transactions = new ArrayList<>();
+        forEachGroupTransaction(groupId, transactions::add);
+        return transactions;
+    }
+    
+    /**
+     * Hands the whole feed to the action one transaction at a time, newest first. At most one
+     * chunk of each side is held at once, and rows are detached once mapped, so memory doesn't
+     * grow with the size of the group.
+     * <p>
+     * Called outside a transaction, each chunk is read in a short one of its own on the primary,
+     * so no connection is held while the action runs, e.g. while a report is written out. Rows
+     * added in the meantime are newer than the keyset position and simply not included.
+     */
+    public void forEachGroupTransaction(Long groupId, Consumer<TransactionResponse> action) {
         Group group = groupRepository.findById(groupId)
                 .orElseThrow(() -> new IllegalArgumentException("Group not found"));
         
-        List<TransactionResponse> transactions = new ArrayList<>();
+        Feed feed = new Feed(group, null, FEED_CHUNK, true);
+        while (feed.hasNext()) {
+            action.accept(feed.next());
+        }
+    }
+    
+    /**
+     * One page of the merged expense and settlement feed, newest first, continuing after the
+     * given cursor. Rows with the same timestamp are ordered expenses first, then by id
+     * descending, so each side can be resumed with a plain keyset query of at most limit + 1 rows.
+     */
+    @Transactional(readOnly = true)
+    public CursorPage<TransactionResponse> getGroupTransactionsPage(Long groupId, String cursor, Integer limit) {
+        Group group = groupRepository.findById(groupId)
+                .orElseThrow(() -> new IllegalArgumentException("Group not found"));
+        
+        int pageSize = PageCursor.checkLimit(limit);
+        // Each side fetches limit + 1 rows, so filling the page never needs a second query
+        Feed feed = new Feed(group, PageCursor.decode(cursor), pageSize + 1, false);
+        
+        List<TransactionResponse> items = new ArrayList<>(pageSize);
+        while (items.size() < pageSize && feed.hasNext()) {
+            items.add(feed.next());
+        }
+        
+        String next = feed.hasNext() ? cursorOf(items.get(items.size() - 1)).encode() : null;
+        return new CursorPage<>(items, next);
+    }
+    
+    private TransactionResponse toTransactionResponse(Expense expense) {
+        TransactionResponse response = new TransactionResponse();
+        response.setId(expense.getId());
+        response.setType("EXPENSE");
+        response.setDescription(expense.getDescription());
+        response.setAmount(expense.getAmount());
+        response.setPayerUserId(expense.getPayer().getUserId());
+        response.setPayerName(expense.getPayer().getAccountName());
+        response.setParticipantNames(expense.getParticipants().stream()
+                .map(User::getAccountName)
+                .collect(Collectors.joining(", ")));
+        
+        BigDecimal perPersonAmount = expense.getAmount()
+                .divide(BigDecimal.valueOf(expense.getParticipants().size()), 2, RoundingMode.HALF_UP);
+        response.setPerPersonAmount(perPersonAmount);
+        response.setCreatedAt(expense.getCreatedAt());
+        return response;
+    }
+    
+    private TransactionResponse toTransactionResponse(Settlement settlement) {
+        TransactionResponse response = new TransactionResponse();
+        response.setId(settlement.getId());
+        response.setType("SETTLEMENT");
+        response.setDescription("Payment from " + settlement.getPayer().getAccountName() + " to " + settlement.getPayee().getAccountName());
+        response.setAmount(settlement.getAmount());
+        response.setPayerUserId(settlement.getPayer().getUserId());
+        response.setPayerName(settlement.getPayer().getAccountName());
+        response.setPayeeUserId(settlement.getPayee().getUserId());
+        response.setPayeeName(settlement.getPayee().getAccountName());
+        response.setNote(settlement.getNote());
+        response.setCreatedAt(settlement.getCreatedAt());
+        return response;
+    }
+    
+    private static PageCursor cursorOf(TransactionResponse transaction) {
+        char type = "EXPENSE".equals(transaction.getType()) ? PageCursor.EXPENSE : PageCursor.SETTLEMENT;
+        return new PageCursor(type, transaction.getCreatedAt(), transaction.getId());
+    }
+    
+    /**
+     * Lazy merge of a group's expenses and settlements, each read newest first in keyset chunks
+     * of the given size, fetched only when the previous chunk of that side is used up.
+     */
+    private final class Feed {
+        
+        private final Side<Expense> expenses;
+        private final Side<Settlement> settlements;
+        
+        private Feed(Group group, PageCursor after, int chunkSize, boolean detach) {
+            LocalDateTime createdAt = after == null ? null : after.createdAt();
+            boolean afterExpense = after != null && after.type() == PageCursor.EXPENSE;
+            // After an expense, settlements at the same instant are still to come; after a
+            // settlement, every expense at that instant has already been returned
+            expenses = new Side<>(createdAt, afterExpense ? after.id() : 0L, chunkSize, detach,
+                    (from, id, limit) -> from == null
+                            ? expenseRepository.findFirstPage(group, limit)
+                            : expenseRepository.findPageBefore(group, from, id, limit),
+                    TransactionService.this::toTransactionResponse);
+            settlements = new Side<>(createdAt, afterExpense || after == null ? Long.MAX_VALUE : after.id(), chunkSize, detach,
+                    (from, id, limit) -> from == null
+                            ? settlementRepository.findFirstPage(group, limit)
+                            : settlementRepository.findPageBefore(group, from, id, limit),
+                    TransactionService.this::toTransactionResponse);
+        }
+        
+        private boolean hasNext() {
+            return expenses.peek() != null || settlements.peek() != null;
+        }
         
-        // Add expenses
-        List<Expense> expenses = expenseRepository.findByGroupOrderByCreatedAtDesc(group);
-        for (Expense expense : expenses) {
-            TransactionResponse response = new TransactionResponse();
-            response.setId(expense.getId());
-            response.setType("EXPENSE");
-            response.setDescription(expense.getDescription());
-            response.setAmount(expense.getAmount());
-            response.setPayerUserId(expense.getPayer().getUserId());
-            response.setPayerName(expense.getPayer().getAccountName());
-            response.setParticipantNames(expense.getParticipants().stream()
-                    .map(User::getAccountName)
-                    .collect(Collectors.joining(", ")));
-            
-            BigDecimal perPersonAmount = expense.getAmount()
-                    .divide(BigDecimal.valueOf(expense.getParticipants().size()), 2, RoundingMode.HALF_UP);
-            response.setPerPersonAmount(perPersonAmount);
-            response.setCreatedAt(expense.getCreatedAt());
-            transactions.add(response);
+        private TransactionResponse next() {
+            TransactionResponse expense = expenses.peek();
+            TransactionResponse settlement = settlements.peek();
+            boolean takeExpense = settlement == null || (expense != null
+                    && !expense.getCreatedAt().isBefore(settlement.getCreatedAt()));
+            return takeExpense ? expenses.take() : settlements.take();
         }
+    }
+    
+    private interface KeysetQuery<T> {
+        List<T> fetch(LocalDateTime createdAt, Long id, Limit limit);
+    }
+    
+    private final class Side<T> {
+        
+        private final int chunkSize;
+        private final boolean detach;
+        private final KeysetQuery<T> query;
+        private final Function<T, TransactionResponse> mapper;
+        private LocalDateTime createdAt;
+        private long id;
+        private List<TransactionResponse> chunk = List.of();
+        private int index;
+        private boolean exhausted;
         
-        // Add settlements
-        List<Settlement> settlements = settlementRepository.findByGroupOrderByCreatedAtDesc(group);
-        for (Settlement settlement : settlements) {
-            TransactionResponse response = new TransactionResponse();
-            response.setId(settlement.getId());
-            response.setType("SETTLEMENT");
-            response.setDescription("Payment from " + settlement.getPayer().getAccountName() + " to " + settlement.getPayee().getAccountName());
-            response.setAmount(settlement.getAmount());
-            response.setPayerUserId(settlement.getPayer().getUserId());
-            response.setPayerName(settlement.getPayer().getAccountName());
-            response.setPayeeUserId(settlement.getPayee().getUserId());
-            response.setPayeeName(settlement.getPayee().getAccountName());
-            response.setNote(settlement.getNote());
-            response.setCreatedAt(settlement.getCreatedAt());
-            transactions.add(response);
+        private Side(LocalDateTime createdAt, long id, int chunkSize, boolean detach,
+                     KeysetQuery<T> query, Function<T, TransactionResponse> mapper) {
+            this.createdAt = createdAt;
+            this.id = id;
+            this.chunkSize = chunkSize;
+            this.detach = detach;
+            this.query = query;
+            this.mapper = mapper;
         }
         
-        // Sort by date descending
-        transactions.sort(Comparator.comparing(TransactionResponse::getCreatedAt).reversed());
+        private TransactionResponse peek() {
+            if (index == chunk.size() && !exhausted) {
+                fetch();
+            }
+            return index < chunk.size() ? chunk.get(index) : null;
+        }
         
-        return transactions;
+        private TransactionResponse take() {
+            return chunk.get(index++);
+        }
+        
+        private void fetch() {
+            chunk = transactionTemplate.execute(status -> {
+                List<T> rows = query.fetch(createdAt, id, Limit.of(chunkSize));
+                // Map the whole chunk while it's attached, so lazy associations load in batches
+                List<TransactionResponse> mapped = rows.stream().map(mapper).toList();
+                if (detach) {
+                    rows.forEach(entityManager::detach);
+                }
+                return mapped;
+            });
+            index = 0;
+            exhausted = chunk.size() < chunkSize;
+            if (!chunk.isEmpty()) {
+                TransactionResponse last = chunk.get(chunk.size() - 1);
+                createdAt = last.getCreatedAt();
+                id = last.getId();
+            }
+        }
     }
 }
@@ -0,0 +1,55 @@
+package db.migration;
+
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Moves expenses, settlements and audit logs from identity columns to pooled sequences so
+ * Hibernate can batch their inserts (identity ids are only known after each single insert).
+ * <p>
+ * Written in Java rather than SQL because each sequence has to start past the rows that already
+ * exist, which H2 and PostgreSQL express differently. Hibernate's pooled optimizer hands out
+ * {@code value - 49 .. value} for every sequence value, so the first value is max(id) + 50.
+ */
+public class V3__sequence_ids extends BaseJavaMigration {
+    
+    /**
+     * Must match the allocationSize of the entities' @SequenceGenerator.
+     */
+    static final int ALLOCATION_SIZE = 50;
+    
+    private static final String[] TABLES = {"expenses", "settlements", "audit_logs"};
+    
+    @Override
+    public void migrate(Context context) throws Exception {
+        boolean postgres = context.getConnection().getMetaData().getDatabaseProductName()
+                .toLowerCase().contains("postgres");
+        
+        try (Statement statement = context.getConnection().createStatement()) {
+            for (String table : TABLES) {
+                long start = maxId(statement, table) + ALLOCATION_SIZE;
+                statement.execute("create sequence " + table + "_seq start with " + start
+                        + " increment by " + ALLOCATION_SIZE);
+                
+                if (postgres) {
+                    // Databases created by older Hibernate versions may use serial instead of identity
+                    statement.execute("alter table " + table + " alter column id drop identity if exists");
+                    statement.execute("alter table " + table + " alter column id drop default");
+                } else {
+                    statement.execute("alter table " + table + " alter column id drop identity");
+                }
+            }
+        }
+    }
+    
+    private long maxId(Statement statement, String table) throws SQLException {
+        try (ResultSet result = statement.executeQuery("select coalesce(max(id), 0) from " + table)) {
+            result.next();
+            return result.getLong(1);
+        }
+    }
+}
@@ -0,0 +1,40 @@
+-- Pairwise balance ledger and its snapshots. Databases baselined from the Hibernate-generated schema
+-- get empty tables here; start them once with ledger.rebuild-on-startup=true (or --rebuild-ledger)
+-- to fill the ledger from the existing expenses and settlements.
+
+create table balance_ledger (
+    id bigint generated by default as identity,
+    group_id bigint not null,
+    debtor_id bigint not null,
+    creditor_id bigint not null,
+    amount numeric(19,2) not null,
+    updated_at timestamp(6) not null,
+    primary key (id),
+    constraint uk_balance_ledger_pair unique (group_id, debtor_id, creditor_id),
+    constraint fk_balance_ledger_group foreign key (group_id) references groups (id),
+    constraint fk_balance_ledger_debtor foreign key (debtor_id) references users (id),
+    constraint fk_balance_ledger_creditor foreign key (creditor_id) references users (id)
+);
+
+create index idx_balance_ledger_group_debtor on balance_ledger (group_id, debtor_id);
+
+create table balance_snapshots (
+    id bigint generated by default as identity,
+    group_id bigint not null,
+    watermark timestamp(6) not null,
+    expense_count integer not null,
+    settlement_count integer not null,
+    created_at timestamp(6) not null,
+    primary key (id),
+    constraint fk_balance_snapshots_group foreign key (group_id) references groups (id)
+);
+
+create index idx_balance_snapshots_group_watermark on balance_snapshots (group_id, watermark);
+
+create table balance_snapshot_pairs (
+    snapshot_id bigint not null,
+    debtor_id bigint not null,
+    creditor_id bigint not null,
+    amount numeric(19,2) not null,
+    constraint fk_balance_snapshot_pairs_snapshot foreign key (snapshot_id) references balance_snapshots (id)
+);
@@ -0,0 +1,80 @@
+-- Schema as previously generated by Hibernate (ddl-auto) from the entity mappings, before the
+-- balance ledger existed. Existing databases are baselined at this version
+-- (spring.flyway.baseline-on-migrate), so nothing may be added here: new tables go in later versions.
+
+create table users (
+    id bigint generated by default as identity,
+    user_id varchar(255) not null,
+    account_name varchar(255) not null,
+    code varchar(255) not null,
+    created_at timestamp(6) not null,
+    primary key (id),
+    constraint uk_users_user_id unique (user_id)
+);
+
+create table groups (
+    id bigint generated by default as identity,
+    name varchar(255) not null,
+    join_code varchar(255) not null,
+    creator_id bigint not null,
+    closed boolean not null,
+    closed_at timestamp(6),
+    created_at timestamp(6) not null,
+    primary key (id),
+    constraint uk_groups_join_code unique (join_code),
+    constraint fk_groups_creator foreign key (creator_id) references users (id)
+);
+
+create table group_members (
+    group_id bigint not null,
+    user_id bigint not null,
+    primary key (group_id, user_id),
+    constraint fk_group_members_group foreign key (group_id) references groups (id),
+    constraint fk_group_members_user foreign key (user_id) references users (id)
+);
+
+create table expenses (
+    id bigint generated by default as identity,
+    description varchar(255) not null,
+    amount numeric(19,2) not null,
+    payer_id bigint not null,
+    group_id bigint not null,
+    created_at timestamp(6) not null,
+    primary key (id),
+    constraint fk_expenses_payer foreign key (payer_id) references users (id),
+    constraint fk_expenses_group foreign key (group_id) references groups (id)
+);
+
+create table expense_participants (
+    expense_id bigint not null,
+    user_id bigint not null,
+    primary key (expense_id, user_id),
+    constraint fk_expense_participants_expense foreign key (expense_id) references expenses (id),
+    constraint fk_expense_participants_user foreign key (user_id) references users (id)
+);
+
+create table settlements (
+    id bigint generated by default as identity,
+    group_id bigint not null,
+    payer_id bigint not null,
+    payee_id bigint not null,
+    amount numeric(19,2) not null,
+    note varchar(500),
+    created_at timestamp(6) not null,
+    primary key (id),
+    constraint fk_settlements_group foreign key (group_id) references groups (id),
+    constraint fk_settlements_payer foreign key (payer_id) references users (id),
+    constraint fk_settlements_payee foreign key (payee_id) references users (id)
+);
+
+create table audit_logs (
+    id bigint generated by default as identity,
+    entity_type varchar(255) not null,
+    entity_id bigint not null,
+    action varchar(255) not null,
+    user_id bigint,
+    details text,
+    timestamp timestamp(6) not null,
+    primary key (id),
+    constraint fk_audit_logs_user foreign key (user_id) references users (id)
+);
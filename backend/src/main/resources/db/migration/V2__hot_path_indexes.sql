@@ -0,0 +1,22 @@
+-- Indexes for the repository finders. IF NOT EXISTS keeps this safe on databases
+-- that were baselined from a Hibernate-managed schema.
+
+-- Expense/settlement listings, keyset pages and windowed aggregates:
+-- WHERE group_id = ? [AND created_at ...] ORDER BY created_at DESC, id DESC
+create index if not exists idx_expenses_group_created on expenses (group_id, created_at, id);
+create index if not exists idx_settlements_group_created on settlements (group_id, created_at, id);
+
+-- "Expenses involving a user" and the member lookups behind GroupRepository.findByMembersContaining;
+-- the primary keys only cover the (expense_id, ...) and (group_id, ...) directions
+create index if not exists idx_expense_participants_user on expense_participants (user_id);
+create index if not exists idx_group_members_user on group_members (user_id);
+
+-- Per-user balance summary: WHERE debtor_id = ? GROUP BY group_id
+create index if not exists idx_balance_ledger_debtor_group on balance_ledger (debtor_id, group_id);
+
+-- Audit trail lookups, newest first
+create index if not exists idx_audit_logs_entity on audit_logs (entity_type, entity_id, timestamp);
+create index if not exists idx_audit_logs_user_timestamp on audit_logs (user_id, timestamp);
+
+-- Loading a snapshot's pair collection
+create index if not exists idx_balance_snapshot_pairs_snapshot on balance_snapshot_pairs (snapshot_id);
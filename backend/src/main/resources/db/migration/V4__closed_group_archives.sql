@@ -0,0 +1,9 @@
+-- Frozen read model of a closed group (members, expenses, settlements, final balances) as JSON,
+-- written once when the group is closed. Large payloads are compressed by PostgreSQL's TOAST.
+create table closed_group_archives (
+    group_id bigint not null,
+    payload text not null,
+    created_at timestamp(6) not null,
+    primary key (group_id),
+    constraint fk_closed_group_archives_group foreign key (group_id) references groups (id)
+);
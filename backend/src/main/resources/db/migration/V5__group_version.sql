@@ -0,0 +1,3 @@
+-- Bumped by every write to a group (expenses, settlements, joins, closing); read endpoints
+-- derive their ETag from it.
+alter table groups add column version bigint default 0 not null;
@@ -0,0 +1,27 @@
+-- Change log behind GET /api/groups/{id}/changes?since={version}: one row per expense, settlement
+-- or group (membership, closing) change, tagged with the group version it was committed at.
+-- deleted marks a tombstone, for expenses and settlements removed in the future.
+create table group_changes (
+    id bigint generated by default as identity,
+    group_id bigint not null,
+    version bigint not null,
+    entity_type varchar(20) not null,
+    entity_id bigint not null,
+    deleted boolean not null,
+    primary key (id),
+    constraint fk_group_changes_group foreign key (group_id) references groups (id)
+);
+
+create index idx_group_changes_group_version on group_changes (group_id, version);
+
+-- Existing history is logged at a new version of each group, so since=0 returns all of it
+update groups set version = version + 1;
+
+insert into group_changes (group_id, version, entity_type, entity_id, deleted)
+select g.id, g.version, 'GROUP', g.id, false from groups g;
+
+insert into group_changes (group_id, version, entity_type, entity_id, deleted)
+select e.group_id, g.version, 'EXPENSE', e.id, false from expenses e join groups g on g.id = e.group_id;
+
+insert into group_changes (group_id, version, entity_type, entity_id, deleted)
+select s.group_id, g.version, 'SETTLEMENT', s.id, false from settlements s join groups g on g.id = s.group_id;
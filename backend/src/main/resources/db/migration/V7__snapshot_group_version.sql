@@ -0,0 +1,3 @@
+-- The group version a snapshot was taken at, so snapshots are scheduled by writes counted in the
+-- database rather than per instance. Existing snapshots count as taken at version 0.
+alter table balance_snapshots add column group_version bigint default 0 not null;
@@ -0,0 +1,151 @@
+-- PostgreSQL only: enabled by the "partitioned" profile (see application-partitioned.properties).
+--
+-- expenses and settlements are hash-partitioned by group_id, so every repository query (they all
+-- filter on the group) touches one partition; expense_participants is hash-partitioned by
+-- expense_id, its main lookup key. audit_logs is range-partitioned by month on timestamp, so old
+-- months can be detached instead of deleted row by row.
+--
+-- A partitioned table's primary key must contain the partition key, so ids are only unique per
+-- group (or month) as far as the database is concerned; the sequences still hand out unique ids.
+-- For the same reason expense_participants can no longer reference expenses (id) with a foreign key.
+
+-- expenses
+
+alter table expenses rename to expenses_unpartitioned;
+
+create table expenses (
+    id bigint not null,
+    description varchar(255) not null,
+    amount numeric(19,2) not null,
+    payer_id bigint not null,
+    group_id bigint not null,
+    created_at timestamp(6) not null,
+    constraint pk_expenses primary key (group_id, id),
+    constraint fk_expenses_payer foreign key (payer_id) references users (id),
+    constraint fk_expenses_group foreign key (group_id) references groups (id)
+) partition by hash (group_id);
+
+do $$
+begin
+    for i in 0..15 loop
+        execute format('create table expenses_p%s partition of expenses for values with (modulus 16, remainder %s)', i, i);
+    end loop;
+end
+$$;
+
+insert into expenses (id, description, amount, payer_id, group_id, created_at)
+select id, description, amount, payer_id, group_id, created_at from expenses_unpartitioned;
+-- cascade drops the foreign key from expense_participants, see above
+drop table expenses_unpartitioned cascade;
+
+create index idx_expenses_group_created on expenses (group_id, created_at, id);
+create index idx_expenses_id on expenses (id);
+
+-- expense_participants
+
+alter table expense_participants rename to expense_participants_unpartitioned;
+
+create table expense_participants (
+    expense_id bigint not null,
+    user_id bigint not null,
+    constraint pk_expense_participants primary key (expense_id, user_id),
+    constraint fk_expense_participants_user foreign key (user_id) references users (id)
+) partition by hash (expense_id);
+
+do $$
+begin
+    for i in 0..15 loop
+        execute format('create table expense_participants_p%s partition of expense_participants for values with (modulus 16, remainder %s)', i, i);
+    end loop;
+end
+$$;
+
+insert into expense_participants (expense_id, user_id)
+select expense_id, user_id from expense_participants_unpartitioned;
+drop table expense_participants_unpartitioned;
+
+create index idx_expense_participants_user on expense_participants (user_id);
+
+-- settlements
+
+alter table settlements rename to settlements_unpartitioned;
+
+create table settlements (
+    id bigint not null,
+    group_id bigint not null,
+    payer_id bigint not null,
+    payee_id bigint not null,
+    amount numeric(19,2) not null,
+    note varchar(500),
+    created_at timestamp(6) not null,
+    constraint pk_settlements primary key (group_id, id),
+    constraint fk_settlements_group foreign key (group_id) references groups (id),
+    constraint fk_settlements_payer foreign key (payer_id) references users (id),
+    constraint fk_settlements_payee foreign key (payee_id) references users (id)
+) partition by hash (group_id);
+
+do $$
+begin
+    for i in 0..15 loop
+        execute format('create table settlements_p%s partition of settlements for values with (modulus 16, remainder %s)', i, i);
+    end loop;
+end
+$$;
+
+insert into settlements (id, group_id, payer_id, payee_id, amount, note, created_at)
+select id, group_id, payer_id, payee_id, amount, note, created_at from settlements_unpartitioned;
+drop table settlements_unpartitioned;
+
+create index idx_settlements_group_created on settlements (group_id, created_at, id);
+create index idx_settlements_id on settlements (id);
+
+-- audit_logs
+
+alter table audit_logs rename to audit_logs_unpartitioned;
+
+create table audit_logs (
+    id bigint not null,
+    entity_type varchar(255) not null,
+    entity_id bigint not null,
+    action varchar(255) not null,
+    user_id bigint,
+    details text,
+    timestamp timestamp(6) not null,
+    constraint pk_audit_logs primary key (id, timestamp),
+    constraint fk_audit_logs_user foreign key (user_id) references users (id)
+) partition by range (timestamp);
+
+-- Rows outside every monthly partition; stays empty as long as months are created ahead
+create table audit_logs_default partition of audit_logs default;
+
+-- Creates the monthly partitions audit_logs_YYYY_MM for the given number of months from from_month
+-- (existing ones are skipped). Called again by AuditLogPartitionMaintenance to stay ahead of time.
+create or replace function create_audit_log_partitions(from_month date, months integer) returns void as $$
+declare
+    month date;
+begin
+    for i in 0..months - 1 loop
+        month := date_trunc('month', from_month) + make_interval(months => i);
+        execute format('create table if not exists %I partition of audit_logs for values from (%L) to (%L)',
+                       'audit_logs_' || to_char(month, 'YYYY_MM'), month, (month + interval '1 month')::date);
+    end loop;
+end
+$$ language plpgsql;
+
+do $$
+declare
+    first_month date := date_trunc('month', coalesce((select min(timestamp) from audit_logs_unpartitioned), now()));
+begin
+    -- Every month with existing rows, plus the current one and three ahead
+    perform create_audit_log_partitions(first_month,
+            ((extract(year from now()) - extract(year from first_month)) * 12
+             + extract(month from now()) - extract(month from first_month))::integer + 4);
+end
+$$;
+
+insert into audit_logs (id, entity_type, entity_id, action, user_id, details, timestamp)
+select id, entity_type, entity_id, action, user_id, details, timestamp from audit_logs_unpartitioned;
+drop table audit_logs_unpartitioned;
+
+create index idx_audit_logs_entity on audit_logs (entity_type, entity_id, timestamp);
+create index idx_audit_logs_user_timestamp on audit_logs (user_id, timestamp);
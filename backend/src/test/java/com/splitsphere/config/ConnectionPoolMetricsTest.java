@@ -0,0 +1,61 @@
+package com.splitsphere.config;
+
+import com.splitsphere.dto.UserRegistrationRequest;
+import com.splitsphere.repository.AuditLogRepository;
+import com.splitsphere.repository.UserRepository;
+import com.splitsphere.service.UserService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE, properties = {
+        "spring.datasource.url=jdbc:h2:mem:pool-metrics;DB_CLOSE_DELAY=-1",
+        "spring.datasource.hikari.pool-name=primary"
+})
+class ConnectionPoolMetricsTest {
+    
+    @Autowired
+    private UserService userService;
+    
+    @Autowired
+    private UserRepository userRepository;
+    
+    @Autowired
+    private AuditLogRepository auditLogRepository;
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    @AfterEach
+    void tearDown() {
+        auditLogRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+    
+    @Test
+    void testAcquireAndUsageAreRecordedPerCaller() {
+        userService.registerUser(new UserRegistrationRequest("Alice", "alice", "1234"));
+        userService.getUserByUserId("alice");
+        
+        for (String caller : new String[]{"UserService.registerUser", "UserService.getUserByUserId"}) {
+            Timer acquire = meterRegistry.find("db.connection.acquire").tags("pool", "primary", "caller", caller).timer();
+            Timer usage = meterRegistry.find("db.connection.usage").tags("pool", "primary", "caller", caller).timer();
+            assertNotNull(acquire, caller);
+            assertNotNull(usage, caller);
+            assertEquals(1, acquire.count(), caller);
+            assertEquals(1, usage.count(), caller);
+        }
+    }
+    
+    @Test
+    void testStandardPoolMetricsAreKept() {
+        assertNotNull(meterRegistry.find("hikaricp.connections.pending").tag("pool", "primary").gauge());
+        assertNotNull(meterRegistry.find("hikaricp.connections.active").tag("pool", "primary").gauge());
+        assertNotNull(meterRegistry.find("hikaricp.connections.acquire").tag("pool", "primary").timer());
+    }
+}
@@ -0,0 +1,118 @@
+package com.splitsphere.config;
+
+import com.splitsphere.model.User;
+import com.splitsphere.repository.UserRepository;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Two in-memory databases stand in for the primary and its replica. They are not replicated:
+ * a user that exists in only one of them shows which database served a read.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE, properties = {
+        "spring.datasource.url=jdbc:h2:mem:routing-primary;DB_CLOSE_DELAY=-1",
+        "datasource.replicas.urls=" + ReadReplicaRoutingTest.REPLICA_URL,
+        "datasource.replicas.lag-query=SELECT lag_ms FROM replica_lag",
+        "datasource.replicas.max-lag-ms=1000",
+        "datasource.replicas.lag-check-interval-ms=3600000"
+})
+class ReadReplicaRoutingTest {
+    
+    static final String REPLICA_URL = "jdbc:h2:mem:routing-replica;DB_CLOSE_DELAY=-1";
+    
+    @Autowired
+    private ReplicaRoutingDataSource routingDataSource;
+    
+    @Autowired
+    private UserRepository userRepository;
+    
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    
+    private final JdbcTemplate replica = new JdbcTemplate(new DriverManagerDataSource(REPLICA_URL, "sa", ""));
+    
+    @BeforeEach
+    void setUp() {
+        Flyway.configure().dataSource(REPLICA_URL, "sa", "").load().migrate();
+        replica.execute("CREATE TABLE IF NOT EXISTS replica_lag (lag_ms BIGINT)");
+        replica.update("DELETE FROM replica_lag");
+        replica.update("INSERT INTO replica_lag VALUES (0)");
+        replica.update("INSERT INTO users (user_id, account_name, code, created_at) VALUES ('replica-only', 'Replica', '1234', CURRENT_TIMESTAMP)");
+        routingDataSource.checkReplicas();
+    }
+    
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+        replica.update("DELETE FROM users");
+        userRepository.deleteAll();
+    }
+    
+    @Test
+    void testReadOnlyTransactionsUseTheReplica() {
+        assertTrue(servedByReplica(true));
+        assertFalse(servedByReplica(false));
+        // Outside of any transaction (Flyway, health checks) the primary is used
+        assertFalse(userRepository.findByUserId("replica-only").isPresent());
+    }
+    
+    @Test
+    void testLaggingOrBrokenReplicaFallsBackToPrimary() {
+        replica.update("UPDATE replica_lag SET lag_ms = 5000");
+        routingDataSource.checkReplicas();
+        assertFalse(servedByReplica(true));
+        
+        replica.update("UPDATE replica_lag SET lag_ms = 200");
+        routingDataSource.checkReplicas();
+        assertTrue(servedByReplica(true));
+        
+        replica.execute("DROP TABLE replica_lag");
+        routingDataSource.checkReplicas();
+        assertFalse(servedByReplica(true));
+    }
+    
+    @Test
+    void testUserReadsOwnWritesFromPrimary() {
+        signIn("alice");
+        write("alice");
+        assertFalse(servedByReplica(true));
+        
+        signIn("bob");
+        assertTrue(servedByReplica(true));
+    }
+    
+    private boolean servedByReplica(boolean readOnly) {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        transaction.setReadOnly(readOnly);
+        return Boolean.TRUE.equals(transaction.execute(status -> userRepository.findByUserId("replica-only").isPresent()));
+    }
+    
+    private void write(String userId) {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            User user = new User();
+            user.setUserId(userId);
+            user.setAccountName(userId);
+            user.setCode("1234");
+            userRepository.save(user);
+        });
+    }
+    
+    private static void signIn(String userId) {
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(userId, null, List.of()));
+    }
+}
@@ -0,0 +1,131 @@
+package com.splitsphere.repository;
+
+import com.splitsphere.exception.GlobalExceptionHandler;
+import com.splitsphere.model.BalanceLedgerEntry;
+import com.splitsphere.model.Group;
+import com.splitsphere.model.User;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+class BalanceLedgerRepositoryTest {
+    
+    @Autowired
+    private BalanceLedgerRepository balanceLedgerRepository;
+    
+    @Autowired
+    private UserRepository userRepository;
+    
+    @Autowired
+    private GroupRepository groupRepository;
+    
+    private User alice;
+    private User bob;
+    private User carol;
+    private Group trip;
+    private Group flat;
+    
+    @BeforeEach
+    void setUp() {
+        alice = user("alice");
+        bob = user("bob");
+        carol = user("carol");
+        trip = group("Trip", "TRIP0001");
+        flat = group("Flat", "FLAT0001");
+        
+        // Trip: alice owes bob 30, carol owes alice 50
+        pair(trip, alice, bob, "30.00");
+        pair(trip, carol, alice, "50.00");
+        // Flat: alice owes carol 12.50
+        pair(flat, alice, carol, "12.50");
+    }
+    
+    @Test
+    void testSumOwedByDebtor() {
+        Map<Long, BigDecimal> owed = new HashMap<>();
+        for (Object[] row : balanceLedgerRepository.sumOwedByDebtor(trip)) {
+            owed.put((Long) row[0], (BigDecimal) row[1]);
+        }
+        
+        assertEquals(0, owed.get(alice.getId()).compareTo(new BigDecimal("-20.00")));
+        assertEquals(0, owed.get(bob.getId()).compareTo(new BigDecimal("-30.00")));
+        assertEquals(0, owed.get(carol.getId()).compareTo(new BigDecimal("50.00")));
+    }
+    
+    @Test
+    void testSummarizeByGroup() {
+        List<Object[]> rows = balanceLedgerRepository.summarizeByGroup(alice);
+        
+        assertEquals(2, rows.size());
+        Object[] tripRow = rows.get(0)[0].equals(trip.getId()) ? rows.get(0) : rows.get(1);
+        Object[] flatRow = tripRow == rows.get(0) ? rows.get(1) : rows.get(0);
+        
+        assertEquals("Trip", tripRow[1]);
+        assertEquals(0, ((BigDecimal) tripRow[3]).compareTo(new BigDecimal("30.00")));
+        assertEquals(0, ((BigDecimal) tripRow[4]).compareTo(new BigDecimal("50.00")));
+        assertEquals(0, ((BigDecimal) flatRow[3]).compareTo(new BigDecimal("12.50")));
+        assertEquals(0, ((BigDecimal) flatRow[4]).compareTo(BigDecimal.ZERO));
+    }
+    
+    @Test
+    void testOnlyDuplicatePairsAreConflicts() {
+        GlobalExceptionHandler handler = new GlobalExceptionHandler();
+        
+        DataIntegrityViolationException duplicatePair = assertThrows(DataIntegrityViolationException.class,
+                () -> balanceLedgerRepository.saveAndFlush(entry(trip, alice, bob, BigDecimal.ONE)));
+        assertEquals(HttpStatus.CONFLICT, handler.handleDataIntegrityViolation(duplicatePair).getStatusCode());
+    }
+    
+    @Test
+    void testOtherIntegrityViolationsStayErrors() {
+        GlobalExceptionHandler handler = new GlobalExceptionHandler();
+        
+        DataIntegrityViolationException duplicateUser = assertThrows(DataIntegrityViolationException.class,
+                () -> userRepository.saveAndFlush(user("alice")));
+        assertEquals(HttpStatus.INTERNAL_SERVER_ERROR, handler.handleDataIntegrityViolation(duplicateUser).getStatusCode());
+    }
+    
+    private User user(String userId) {
+        User user = new User();
+        user.setAccountName(userId);
+        user.setUserId(userId);
+        user.setCode("1234");
+        return userRepository.save(user);
+    }
+    
+    private Group group(String name, String joinCode) {
+        Group group = new Group();
+        group.setName(name);
+        group.setJoinCode(joinCode);
+        group.setCreator(alice);
+        group.getMembers().add(alice);
+        group.getMembers().add(bob);
+        group.getMembers().add(carol);
+        return groupRepository.save(group);
+    }
+    
+    private void pair(Group group, User debtor, User creditor, String amount) {
+        balanceLedgerRepository.save(entry(group, debtor, creditor, new BigDecimal(amount)));
+        balanceLedgerRepository.save(entry(group, creditor, debtor, new BigDecimal(amount).negate()));
+    }
+    
+    private BalanceLedgerEntry entry(Group group, User debtor, User creditor, BigDecimal amount) {
+        BalanceLedgerEntry entry = new BalanceLedgerEntry();
+        entry.setGroup(group);
+        entry.setDebtor(debtor);
+        entry.setCreditor(creditor);
+        entry.setAmount(amount);
+        return entry;
+    }
+}
@@ -0,0 +1,130 @@
+package com.splitsphere.repository;
+
+import com.splitsphere.model.AuditLog;
+import com.splitsphere.model.Expense;
+import com.splitsphere.model.Group;
+import com.splitsphere.model.Settlement;
+import com.splitsphere.model.User;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+
+import java.math.BigDecimal;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Expenses, their participant rows, settlements and audit logs are inserted in JDBC batches
+ * with ids from pooled sequences, so bulk writes cost a handful of statements.
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+class BatchInsertTest {
+    
+    private static final int EXPENSES = 200;
+    private static final int PARTICIPANTS = 4;
+    private static final int SETTLEMENTS = 100;
+    
+    @Autowired
+    private ExpenseRepository expenseRepository;
+    
+    @Autowired
+    private SettlementRepository settlementRepository;
+    
+    @Autowired
+    private AuditLogRepository auditLogRepository;
+    
+    @Autowired
+    private UserRepository userRepository;
+    
+    @Autowired
+    private GroupRepository groupRepository;
+    
+    @Autowired
+    private TestEntityManager entityManager;
+    
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    
+    private List<User> users;
+    private Group group;
+    
+    @BeforeEach
+    void setUp() {
+        users = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            User user = new User();
+            user.setUserId("user" + i);
+            user.setAccountName("User " + i);
+            user.setCode("1234");
+            users.add(userRepository.save(user));
+        }
+        
+        group = new Group();
+        group.setName("Trip");
+        group.setJoinCode("TRIP0001");
+        group.setCreator(users.get(0));
+        group.getMembers().addAll(users);
+        group = groupRepository.save(group);
+        entityManager.flush();
+    }
+    
+    @Test
+    void testBulkWritesAreBatched() {
+        Random random = new Random(5);
+        List<Expense> expenses = new ArrayList<>();
+        List<AuditLog> auditLogs = new ArrayList<>();
+        List<Settlement> settlements = new ArrayList<>();
+        for (int i = 0; i < EXPENSES; i++) {
+            Set<User> participants = new HashSet<>();
+            while (participants.size() < PARTICIPANTS) {
+                participants.add(users.get(random.nextInt(users.size())));
+            }
+            Expense expense = new Expense();
+            expense.setDescription("Expense " + i);
+            expense.setAmount(new BigDecimal("12.00"));
+            expense.setPayer(users.get(i % users.size()));
+            expense.setGroup(group);
+            expense.setParticipants(participants);
+            expenses.add(expense);
+            
+            AuditLog auditLog = new AuditLog();
+            auditLog.setAction("CREATE");
+            auditLog.setEntityType("Expense");
+            auditLog.setEntityId((long) i);
+            auditLog.setUser(expense.getPayer());
+            auditLogs.add(auditLog);
+        }
+        for (int i = 0; i < SETTLEMENTS; i++) {
+            Settlement settlement = new Settlement();
+            settlement.setGroup(group);
+            settlement.setPayer(users.get(1));
+            settlement.setPayee(users.get(0));
+            settlement.setAmount(new BigDecimal("1.00"));
+            settlements.add(settlement);
+        }
+        
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        expenseRepository.saveAll(expenses);
+        auditLogRepository.saveAll(auditLogs);
+        settlementRepository.saveAll(settlements);
+        entityManager.flush();
+        
+        // 1,300 rows: 10 id allocations (one per 50 ids) and 26 insert batches of up to 50 rows
+        assertEquals(EXPENSES + auditLogs.size() + SETTLEMENTS, statistics.getEntityInsertCount());
+        assertTrue(statistics.getPrepareStatementCount() <= 40,
+                "prepared " + statistics.getPrepareStatementCount() + " statements");
+        
+        entityManager.clear();
+        assertEquals(EXPENSES, expenseRepository.count());
+        assertEquals(EXPENSES * PARTICIPANTS, expenseRepository.findByGroup(group).stream()
+                .mapToInt(expense -> expense.getParticipants().size())
+                .sum());
+    }
+}
@@ -0,0 +1,125 @@
+package com.splitsphere.repository;
+
+import com.splitsphere.model.Expense;
+import com.splitsphere.model.Group;
+import com.splitsphere.model.Settlement;
+import com.splitsphere.model.User;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+class ExpenseRepositoryTest {
+    
+    private static final LocalDateTime START = LocalDateTime.of(1970, 1, 1, 0, 0);
+    private static final LocalDateTime END = LocalDateTime.of(9999, 12, 31, 0, 0);
+    
+    @Autowired
+    private ExpenseRepository expenseRepository;
+    
+    @Autowired
+    private SettlementRepository settlementRepository;
+    
+    @Autowired
+    private UserRepository userRepository;
+    
+    @Autowired
+    private GroupRepository groupRepository;
+    
+    @Autowired
+    private TestEntityManager entityManager;
+    
+    private User alice;
+    private User bob;
+    private User carol;
+    private Group group;
+    
+    @BeforeEach
+    void setUp() {
+        alice = user("alice");
+        bob = user("bob");
+        carol = user("carol");
+        
+        group = new Group();
+        group.setName("Trip");
+        group.setJoinCode("TRIP0001");
+        group.setCreator(alice);
+        group.getMembers().addAll(List.of(alice, bob, carol));
+        group = groupRepository.save(group);
+    }
+    
+    @Test
+    void testAggregateSharesGroupsIdenticalShares() {
+        // Two identical three-way 10.00 expenses paid by alice, one two-way 10.00 expense
+        expense(alice, "10.00", alice, bob, carol);
+        expense(alice, "10.00", alice, bob, carol);
+        expense(alice, "10.00", alice, bob);
+        entityManager.flush();
+        
+        Map<String, Long> shares = new HashMap<>();
+        for (Object[] row : expenseRepository.aggregateShares(group.getId(), START, END)) {
+            String key = ((Number) row[0]).longValue() + "->" + ((Number) row[1]).longValue()
+                    + "@" + ((BigDecimal) row[2]).toPlainString() + "/" + ((Number) row[3]).longValue();
+            shares.put(key, ((Number) row[4]).longValue());
+        }
+        
+        assertEquals(3, shares.size());
+        assertEquals(2L, shares.get(bob.getId() + "->" + alice.getId() + "@10.00/3"));
+        assertEquals(2L, shares.get(carol.getId() + "->" + alice.getId() + "@10.00/3"));
+        assertEquals(1L, shares.get(bob.getId() + "->" + alice.getId() + "@10.00/2"));
+    }
+    
+    @Test
+    void testAggregatesRespectWindow() {
+        expense(alice, "30.00", alice, bob);
+        settlement(bob, alice, "5.00");
+        settlement(bob, alice, "2.50");
+        entityManager.flush();
+        
+        LocalDateTime now = LocalDateTime.now();
+        assertTrue(expenseRepository.aggregateShares(group.getId(), now, END).isEmpty());
+        assertTrue(settlementRepository.aggregateSettlements(group.getId(), now, END).isEmpty());
+        
+        List<Object[]> settled = settlementRepository.aggregateSettlements(group.getId(), START, END);
+        assertEquals(1, settled.size());
+        assertEquals(bob.getId(), settled.get(0)[0]);
+        assertEquals(alice.getId(), settled.get(0)[1]);
+        assertEquals(0, ((BigDecimal) settled.get(0)[2]).compareTo(new BigDecimal("7.50")));
+        assertEquals(1, expenseRepository.countByGroupAndCreatedAtGreaterThanAndCreatedAtLessThanEqual(group, START, END));
+    }
+    
+    private User user(String userId) {
+        User user = new User();
+        user.setUserId(userId);
+        user.setAccountName(userId);
+        user.setCode("1234");
+        return userRepository.save(user);
+    }
+    
+    private void expense(User payer, String amount, User... participants) {
+        Expense expense = new Expense();
+        expense.setDescription("Expense");
+        expense.setAmount(new BigDecimal(amount));
+        expense.setPayer(payer);
+        expense.setGroup(group);
+        expense.setParticipants(new HashSet<>(Arrays.asList(participants)));
+        expenseRepository.save(expense);
+    }
+    
+    private void settlement(User payer, User payee, String amount) {
+        Settlement settlement = new Settlement();
+        settlement.setPayer(payer);
+        settlement.setPayee(payee);
+        settlement.setGroup(group);
+        settlement.setAmount(new BigDecimal(amount));
+        settlementRepository.save(settlement);
+    }
+}
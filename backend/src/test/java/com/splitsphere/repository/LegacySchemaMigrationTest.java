@@ -0,0 +1,100 @@
+package com.splitsphere.repository;
+
+import com.splitsphere.model.Expense;
+import com.splitsphere.model.Group;
+import com.splitsphere.model.User;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.init.ScriptUtils;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * A database created by Hibernate before Flyway managed the schema is baselined at V1 and must
+ * migrate from there: the later migrations create everything V1 does not have, the entities
+ * validate against the result, and the existing rows stay readable.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class LegacySchemaMigrationTest {
+    
+    private static final String URL = "jdbc:h2:mem:legacy;DB_CLOSE_DELAY=-1";
+    
+    @Autowired
+    private ExpenseRepository expenseRepository;
+    
+    @Autowired
+    private GroupRepository groupRepository;
+    
+    @Autowired
+    private BalanceLedgerRepository balanceLedgerRepository;
+    
+    @Autowired
+    private TestEntityManager entityManager;
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    @DynamicPropertySource
+    static void legacyDatabase(DynamicPropertyRegistry registry) throws SQLException {
+        try (Connection connection = DriverManager.getConnection(URL, "sa", "");
+             Statement statement = connection.createStatement()) {
+            ScriptUtils.executeSqlScript(connection, new ClassPathResource("db/legacy/hibernate-schema.sql"));
+            statement.execute("insert into users (id, user_id, account_name, code, created_at) values "
+                    + "(1, 'alice', 'Alice', '1234', now()), (2, 'bob', 'Bob', '1234', now())");
+            statement.execute("insert into groups (id, name, join_code, creator_id, closed, created_at) "
+                    + "values (1, 'Trip', 'TRIP0001', 1, false, now())");
+            statement.execute("insert into group_members (group_id, user_id) values (1, 1), (1, 2)");
+            statement.execute("insert into expenses (id, description, amount, payer_id, group_id, created_at) "
+                    + "values (7, 'Dinner', 30.00, 1, 1, now())");
+            statement.execute("insert into expense_participants (expense_id, user_id) values (7, 1), (7, 2)");
+        }
+        registry.add("spring.datasource.url", () -> URL);
+    }
+    
+    @Test
+    void testMigratesFromBaseline() {
+        List<String> versions = jdbcTemplate.queryForList(
+                "select \"version\" from \"flyway_schema_history\" where \"success\" and \"version\" is not null "
+                        + "order by \"installed_rank\"", String.class);
+        assertEquals(List.of("1", "1.1", "2", "3", "4", "5", "6", "7"), versions);
+        assertEquals("BASELINE", jdbcTemplate.queryForObject(
+                "select \"type\" from \"flyway_schema_history\" where \"version\" = '1'", String.class));
+        assertEquals(0, balanceLedgerRepository.count());
+    }
+    
+    @Test
+    void testExistingRowsStayUsable() {
+        Expense legacy = expenseRepository.findById(7L).orElseThrow();
+        assertEquals(0, new BigDecimal("30.00").compareTo(legacy.getAmount()));
+        assertEquals(2, legacy.getParticipants().size());
+        assertEquals(1, groupRepository.findVersionById(1L).orElseThrow());
+        
+        Group group = groupRepository.findById(1L).orElseThrow();
+        User alice = legacy.getPayer();
+        Expense expense = new Expense();
+        expense.setDescription("Taxi");
+        expense.setAmount(new BigDecimal("12.00"));
+        expense.setPayer(alice);
+        expense.setGroup(group);
+        expense.getParticipants().add(alice);
+        expense = expenseRepository.save(expense);
+        entityManager.flush();
+        
+        assertTrue(expense.getId() > 7);
+    }
+}
@@ -0,0 +1,189 @@
+package com.splitsphere.repository;
+
+import com.splitsphere.model.AuditLog;
+import com.splitsphere.model.Expense;
+import com.splitsphere.model.Group;
+import com.splitsphere.model.Settlement;
+import com.splitsphere.model.User;
+import com.splitsphere.service.AuditLogPartitionMaintenance;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIf;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.testcontainers.DockerClientFactory;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Applies the migrations of the "partitioned" profile to PostgreSQL and checks the entities still
+ * work against the partitioned tables. Their primary keys include the partition key, while the
+ * entities are looked up, updated and deleted by id alone: ids come from sequences and every
+ * partitioned table keeps an index on id, so those statements find exactly one row.
+ * Needs Docker; skipped without it, unless {@code -Dtestcontainers.required=true} (set in CI) makes
+ * a missing Docker fail the run instead.
+ */
+@DataJpaTest(properties = {
+        "spring.jpa.database-platform=org.hibernate.dialect.PostgreSQLDialect",
+        "audit.partitions.retention-months=12"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("partitioned")
+@EnabledIf("dockerAvailableOrRequired")
+@Testcontainers
+@Import(AuditLogPartitionMaintenance.class)
+class PartitionedSchemaTest {
+    
+    @Container
+    @ServiceConnection
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+    
+    @Autowired
+    private ExpenseRepository expenseRepository;
+    
+    @Autowired
+    private SettlementRepository settlementRepository;
+    
+    @Autowired
+    private AuditLogRepository auditLogRepository;
+    
+    @Autowired
+    private UserRepository userRepository;
+    
+    @Autowired
+    private GroupRepository groupRepository;
+    
+    @Autowired
+    private TestEntityManager entityManager;
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    @Autowired
+    private AuditLogPartitionMaintenance auditLogPartitionMaintenance;
+    
+    private User alice;
+    private User bob;
+    private Group group;
+    
+    static boolean dockerAvailableOrRequired() {
+        return Boolean.getBoolean("testcontainers.required") || DockerClientFactory.instance().isDockerAvailable();
+    }
+    
+    @BeforeEach
+    void setUp() {
+        alice = createUser("alice");
+        bob = createUser("bob");
+        
+        group = new Group();
+        group.setName("Trip");
+        group.setJoinCode("TRIP0001");
+        group.setCreator(alice);
+        group.getMembers().addAll(List.of(alice, bob));
+        group = groupRepository.save(group);
+    }
+    
+    @Test
+    void testTablesArePartitioned() {
+        assertEquals(16, partitionsOf("expenses").size());
+        assertEquals(16, partitionsOf("expense_participants").size());
+        assertEquals(16, partitionsOf("settlements").size());
+        assertTrue(partitionsOf("audit_logs").containsAll(List.of("audit_logs_default",
+                "audit_logs_" + YearMonth.now().format(DateTimeFormatter.ofPattern("yyyy_MM")),
+                "audit_logs_" + YearMonth.now().plusMonths(3).format(DateTimeFormatter.ofPattern("yyyy_MM")))));
+    }
+    
+    @Test
+    void testMaintenanceCreatesAheadAndDetachesExpiredPartitions() {
+        YearMonth old = YearMonth.now().minusMonths(14);
+        String oldPartition = "audit_logs_" + old.format(DateTimeFormatter.ofPattern("yyyy_MM"));
+        jdbcTemplate.queryForList("select create_audit_log_partitions(?, ?)", Date.valueOf(old.atDay(1)), 1);
+        assertTrue(partitionsOf("audit_logs").contains(oldPartition));
+        
+        auditLogPartitionMaintenance.maintain();
+        
+        List<String> partitions = partitionsOf("audit_logs");
+        assertFalse(partitions.contains(oldPartition));
+        assertTrue(partitions.contains(
+                "audit_logs_" + YearMonth.now().plusMonths(3).format(DateTimeFormatter.ofPattern("yyyy_MM"))));
+        // Detached, not dropped
+        assertEquals(1, jdbcTemplate.queryForObject(
+                "select count(*) from pg_class where relname = ?", Integer.class, oldPartition));
+    }
+    
+    @Test
+    void testEntitiesAreFoundUpdatedAndDeletedById() {
+        Expense expense = new Expense();
+        expense.setDescription("Dinner");
+        expense.setAmount(new BigDecimal("40.00"));
+        expense.setPayer(alice);
+        expense.setGroup(group);
+        expense.setParticipants(Set.of(alice, bob));
+        expense = expenseRepository.save(expense);
+        
+        Settlement settlement = new Settlement();
+        settlement.setGroup(group);
+        settlement.setPayer(bob);
+        settlement.setPayee(alice);
+        settlement.setAmount(new BigDecimal("20.00"));
+        settlement = settlementRepository.save(settlement);
+        
+        AuditLog auditLog = new AuditLog();
+        auditLog.setAction("CREATE");
+        auditLog.setEntityType("Expense");
+        auditLog.setEntityId(expense.getId());
+        auditLog.setUser(alice);
+        auditLog = auditLogRepository.save(auditLog);
+        entityManager.flush();
+        entityManager.clear();
+        
+        Expense found = expenseRepository.findById(expense.getId()).orElseThrow();
+        assertEquals(2, found.getParticipants().size());
+        found.setDescription("Dinner, day 1");
+        assertTrue(settlementRepository.findById(settlement.getId()).isPresent());
+        assertTrue(auditLogRepository.findById(auditLog.getId()).isPresent());
+        entityManager.flush();
+        entityManager.clear();
+        
+        assertEquals("Dinner, day 1", expenseRepository.findById(expense.getId()).orElseThrow().getDescription());
+        expenseRepository.deleteById(expense.getId());
+        settlementRepository.deleteById(settlement.getId());
+        entityManager.flush();
+        
+        assertEquals(0, expenseRepository.count());
+        assertEquals(0, settlementRepository.count());
+        assertEquals(0, jdbcTemplate.queryForObject("select count(*) from expense_participants", Integer.class));
+    }
+    
+    private List<String> partitionsOf(String table) {
+        return jdbcTemplate.queryForList(
+                "select c.relname from pg_inherits i " +
+                "join pg_class c on c.oid = i.inhrelid " +
+                "join pg_class p on p.oid = i.inhparent " +
+                "where p.relname = ?", String.class, table);
+    }
+    
+    private User createUser(String userId) {
+        User user = new User();
+        user.setUserId(userId);
+        user.setAccountName(userId);
+        user.setCode("1234");
+        return userRepository.save(user);
+    }
+}
@@ -0,0 +1,320 @@
+package com.splitsphere.repository;
+
+import org.flywaydb.core.Flyway;
+
+import java.math.BigDecimal;
+import java.sql.*;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Supplier;
+
+/**
+ * Shows the plans and timings of the hot repository queries on a generated dataset, first on
+ * the schema before the hot-path indexes (V1.1) and then after migrating to the latest version.
+ * Not part of the test suite; run against an in-memory H2 database with:
+ * <pre>
+ * mvn test-compile exec:exec -Dexec.executable=java -Dexec.classpathScope=test \
+ *     -Dexec.args="-cp %classpath com.splitsphere.repository.QueryPlanBenchmark"
+ * </pre>
+ * Pass a JDBC url, user and password as arguments to run it against an empty PostgreSQL database
+ * instead, and {@code -Dbenchmark.expenses=N} to change the dataset size.
+ * <p>
+ * H2 silently indexes every foreign key column, so on H2 only the composite indexes change the
+ * plans (the audit trail goes from a table scan to an index lookup, the windowed counts and
+ * aggregates stop filtering a whole group). PostgreSQL creates no foreign key indexes, so there
+ * every query below goes from a sequential scan to an index scan.
+ */
+public class QueryPlanBenchmark {
+    
+    private static final int USERS = 5_000;
+    private static final int GROUPS = 1_000;
+    private static final int MEMBERS_PER_GROUP = 8;
+    private static final int RUNS = 200;
+    private static final LocalDateTime START = LocalDateTime.of(2023, 1, 1, 0, 0);
+    
+    private final String url;
+    private final String user;
+    private final String password;
+    private final int expenseCount;
+    private final Random random = new Random(42);
+    
+    private QueryPlanBenchmark(String url, String user, String password, int expenseCount) {
+        this.url = url;
+        this.user = user;
+        this.password = password;
+        this.expenseCount = expenseCount;
+    }
+    
+    public static void main(String[] args) throws SQLException {
+        String url = args.length > 0 ? args[0] : "jdbc:h2:mem:plans;DB_CLOSE_DELAY=-1";
+        String user = args.length > 1 ? args[1] : "sa";
+        String password = args.length > 2 ? args[2] : "";
+        int expenseCount = Integer.getInteger("benchmark.expenses", 200_000);
+        
+        new QueryPlanBenchmark(url, user, password, expenseCount).run();
+    }
+    
+    private void run() throws SQLException {
+        migrate("1.1");
+        try (Connection connection = DriverManager.getConnection(url, user, password)) {
+            long start = System.nanoTime();
+            generate(connection);
+            System.out.printf("Generated %,d expenses in %,d ms%n", expenseCount, (System.nanoTime() - start) / 1_000_000);
+            
+            System.out.println("\n==== Before: V1.1 schema, no hot-path indexes ====");
+            measure(connection);
+            
+            migrate(null);
+            analyze(connection);
+            System.out.println("\n==== After: latest migration ====");
+            measure(connection);
+        }
+    }
+    
+    private void migrate(String target) {
+        var configuration = Flyway.configure().dataSource(url, user, password);
+        if (target != null) {
+            configuration.target(target);
+        }
+        configuration.load().migrate();
+    }
+    
+    private void generate(Connection connection) throws SQLException {
+        connection.setAutoCommit(false);
+        LocalDateTime now = LocalDateTime.now();
+        
+        try (PreparedStatement users = connection.prepareStatement(
+                "insert into users (id, user_id, account_name, code, created_at) values (?, ?, ?, ?, ?)")) {
+            for (int i = 1; i <= USERS; i++) {
+                users.setLong(1, i);
+                users.setString(2, "user" + i);
+                users.setString(3, "User " + i);
+                users.setString(4, "code");
+                users.setTimestamp(5, Timestamp.valueOf(now));
+                users.addBatch();
+            }
+            users.executeBatch();
+        }
+        
+        long[][] members = new long[GROUPS + 1][];
+        try (PreparedStatement groups = connection.prepareStatement(
+                "insert into groups (id, name, join_code, creator_id, closed, created_at) values (?, ?, ?, ?, false, ?)");
+             PreparedStatement groupMembers = connection.prepareStatement(
+                "insert into group_members (group_id, user_id) values (?, ?)");
+             PreparedStatement ledger = connection.prepareStatement(
+                "insert into balance_ledger (group_id, debtor_id, creditor_id, amount, updated_at) values (?, ?, ?, ?, ?)")) {
+            for (int g = 1; g <= GROUPS; g++) {
+                members[g] = distinctUsers(MEMBERS_PER_GROUP);
+                groups.setLong(1, g);
+                groups.setString(2, "Group " + g);
+                groups.setString(3, "JOIN" + g);
+                groups.setLong(4, members[g][0]);
+                groups.setTimestamp(5, Timestamp.valueOf(now));
+                groups.addBatch();
+                for (long member : members[g]) {
+                    groupMembers.setLong(1, g);
+                    groupMembers.setLong(2, member);
+                    groupMembers.addBatch();
+                }
+                for (int i = 1; i < members[g].length; i++) {
+                    addLedgerRow(ledger, g, members[g][i], members[g][0], 1000 + i, now);
+                    addLedgerRow(ledger, g, members[g][0], members[g][i], -(1000 + i), now);
+                }
+            }
+            groups.executeBatch();
+            groupMembers.executeBatch();
+            ledger.executeBatch();
+        }
+        
+        try (PreparedStatement expenses = connection.prepareStatement(
+                "insert into expenses (id, description, amount, payer_id, group_id, created_at) values (?, ?, ?, ?, ?, ?)");
+             PreparedStatement participants = connection.prepareStatement(
+                "insert into expense_participants (expense_id, user_id) values (?, ?)");
+             PreparedStatement audit = connection.prepareStatement(
+                "insert into audit_logs (entity_type, entity_id, action, user_id, details, timestamp) values ('EXPENSE', ?, 'CREATE', ?, ?, ?)")) {
+            for (int id = 1; id <= expenseCount; id++) {
+                int g = 1 + random.nextInt(GROUPS);
+                long payer = members[g][random.nextInt(MEMBERS_PER_GROUP)];
+                Timestamp createdAt = Timestamp.valueOf(START.plusSeconds(id * 60L));
+                expenses.setLong(1, id);
+                expenses.setString(2, "Expense " + id);
+                expenses.setBigDecimal(3, BigDecimal.valueOf(100 + random.nextInt(100_000), 2));
+                expenses.setLong(4, payer);
+                expenses.setLong(5, g);
+                expenses.setTimestamp(6, createdAt);
+                expenses.addBatch();
+                for (long member : members[g]) {
+                    if (member == payer || random.nextBoolean()) {
+                        participants.setLong(1, id);
+                        participants.setLong(2, member);
+                        participants.addBatch();
+                    }
+                }
+                audit.setLong(1, id);
+                audit.setLong(2, payer);
+                audit.setString(3, "Created expense " + id);
+                audit.setTimestamp(4, createdAt);
+                audit.addBatch();
+                
+                if (id % 5_000 == 0) {
+                    expenses.executeBatch();
+                    participants.executeBatch();
+                    audit.executeBatch();
+                    connection.commit();
+                }
+            }
+            expenses.executeBatch();
+            participants.executeBatch();
+            audit.executeBatch();
+        }
+        
+        try (PreparedStatement settlements = connection.prepareStatement(
+                "insert into settlements (group_id, payer_id, payee_id, amount, created_at) values (?, ?, ?, ?, ?)")) {
+            for (int i = 1; i <= expenseCount / 10; i++) {
+                int g = 1 + random.nextInt(GROUPS);
+                settlements.setLong(1, g);
+                settlements.setLong(2, members[g][1]);
+                settlements.setLong(3, members[g][0]);
+                settlements.setBigDecimal(4, BigDecimal.valueOf(500, 2));
+                settlements.setTimestamp(5, Timestamp.valueOf(START.plusSeconds(i * 600L)));
+                settlements.addBatch();
+            }
+            settlements.executeBatch();
+        }
+        
+        connection.commit();
+        connection.setAutoCommit(true);
+        analyze(connection);
+    }
+    
+    private void addLedgerRow(PreparedStatement ledger, long group, long debtor, long creditor, long cents,
+                              LocalDateTime now) throws SQLException {
+        ledger.setLong(1, group);
+        ledger.setLong(2, debtor);
+        ledger.setLong(3, creditor);
+        ledger.setBigDecimal(4, BigDecimal.valueOf(cents, 2));
+        ledger.setTimestamp(5, Timestamp.valueOf(now));
+        ledger.addBatch();
+    }
+    
+    private long[] distinctUsers(int count) {
+        long[] ids = new long[count];
+        for (int i = 0; i < count; i++) {
+            long candidate;
+            boolean duplicate;
+            do {
+                candidate = 1 + random.nextInt(USERS);
+                duplicate = false;
+                for (int j = 0; j < i; j++) {
+                    duplicate |= ids[j] == candidate;
+                }
+            } while (duplicate);
+            ids[i] = candidate;
+        }
+        return ids;
+    }
+    
+    private void analyze(Connection connection) throws SQLException {
+        // Refresh planner statistics (both H2 and PostgreSQL understand a bare ANALYZE)
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("analyze");
+        }
+    }
+    
+    private void measure(Connection connection) throws SQLException {
+        Timestamp windowFrom = Timestamp.valueOf(START.plusDays(30));
+        Timestamp windowTo = Timestamp.valueOf(START.plusDays(60));
+        
+        List<Query> queries = new ArrayList<>();
+        queries.add(new Query("Expense page (findFirstPage)",
+                "select * from expenses where group_id = ? order by created_at desc, id desc limit 51",
+                () -> new Object[]{randomGroup()}));
+        queries.add(new Query("Settlement page (findFirstPage)",
+                "select * from settlements where group_id = ? order by created_at desc, id desc limit 51",
+                () -> new Object[]{randomGroup()}));
+        queries.add(new Query("Expense window count (snapshot delta)",
+                "select count(*) from expenses where group_id = ? and created_at > ? and created_at <= ?",
+                () -> new Object[]{randomGroup(), windowFrom, windowTo}));
+        queries.add(new Query("Settlement aggregate (aggregateSettlements)",
+                "select payer_id, payee_id, sum(amount) from settlements "
+                        + "where group_id = ? and created_at > ? and created_at <= ? group by payer_id, payee_id",
+                () -> new Object[]{randomGroup(), windowFrom, windowTo}));
+        queries.add(new Query("Expenses a user takes part in",
+                "select expense_id from expense_participants where user_id = ?",
+                () -> new Object[]{randomUser()}));
+        queries.add(new Query("Groups of a user (findByMembersContaining)",
+                "select group_id from group_members where user_id = ?",
+                () -> new Object[]{randomUser()}));
+        queries.add(new Query("Balance summary (summarizeByGroup)",
+                "select group_id, sum(amount) from balance_ledger where debtor_id = ? group by group_id",
+                () -> new Object[]{randomUser()}));
+        queries.add(new Query("Audit trail of an entity",
+                "select * from audit_logs where entity_type = ? and entity_id = ? order by timestamp desc",
+                () -> new Object[]{"EXPENSE", (long) (1 + random.nextInt(expenseCount))}));
+        queries.add(new Query("Audit trail of a user",
+                "select * from audit_logs where user_id = ? order by timestamp desc",
+                () -> new Object[]{randomUser()}));
+        
+        for (Query query : queries) {
+            System.out.printf("%n-- %s%n", query.name());
+            for (String line : explain(connection, query)) {
+                System.out.println("   " + line);
+            }
+            System.out.printf("   avg %,d us over %d runs%n", time(connection, query), RUNS);
+        }
+    }
+    
+    private List<String> explain(Connection connection, Query query) throws SQLException {
+        List<String> plan = new ArrayList<>();
+        try (PreparedStatement statement = connection.prepareStatement("explain " + query.sql())) {
+            bind(statement, query.parameters().get());
+            try (ResultSet rows = statement.executeQuery()) {
+                while (rows.next()) {
+                    for (String line : rows.getString(1).split("\n")) {
+                        plan.add(line);
+                    }
+                }
+            }
+        }
+        return plan;
+    }
+    
+    private long time(Connection connection, Query query) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(query.sql())) {
+            long total = 0;
+            for (int i = 0; i < RUNS * 2; i++) {
+                bind(statement, query.parameters().get());
+                long start = System.nanoTime();
+                try (ResultSet rows = statement.executeQuery()) {
+                    while (rows.next()) {
+                        rows.getObject(1);
+                    }
+                }
+                // The first half warms up the JIT and the caches
+                if (i >= RUNS) {
+                    total += System.nanoTime() - start;
+                }
+            }
+            return total / RUNS / 1_000;
+        }
+    }
+    
+    private void bind(PreparedStatement statement, Object[] parameters) throws SQLException {
+        for (int i = 0; i < parameters.length; i++) {
+            statement.setObject(i + 1, parameters[i]);
+        }
+    }
+    
+    private long randomGroup() {
+        return 1 + random.nextInt(GROUPS);
+    }
+    
+    private long randomUser() {
+        return 1 + random.nextInt(USERS);
+    }
+    
+    private record Query(String name, String sql, Supplier<Object[]> parameters) {
+    }
+}
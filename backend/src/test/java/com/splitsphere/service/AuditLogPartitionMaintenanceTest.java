@@ -0,0 +1,27 @@
+package com.splitsphere.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.YearMonth;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AuditLogPartitionMaintenanceTest {
+    
+    private static final List<String> PARTITIONS = List.of(
+            "audit_logs_default", "audit_logs_2026_01", "audit_logs_2025_09", "audit_logs_2025_10",
+            "audit_logs_2025_11", "audit_logs_2027_01", "audit_logs_archive");
+    
+    @Test
+    void testExpiredPartitionsAreOlderThanRetention() {
+        assertEquals(List.of("audit_logs_2025_09", "audit_logs_2025_10"),
+                AuditLogPartitionMaintenance.expiredPartitions(PARTITIONS, YearMonth.of(2026, 11), 12));
+    }
+    
+    @Test
+    void testCurrentAndFutureMonthsAreKept() {
+        assertEquals(List.of("audit_logs_2025_09", "audit_logs_2025_10", "audit_logs_2025_11", "audit_logs_2026_01"),
+                AuditLogPartitionMaintenance.expiredPartitions(PARTITIONS, YearMonth.of(2026, 2), 0));
+    }
+}
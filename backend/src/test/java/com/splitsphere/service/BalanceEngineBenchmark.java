@@ -0,0 +1,170 @@
+package com.splitsphere.service;
+
+import com.splitsphere.model.Expense;
+import com.splitsphere.model.Group;
+import com.splitsphere.model.Settlement;
+import com.splitsphere.model.User;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the BigDecimal/HashMap balance replays BalanceService used to run with the
+ * cents-based {@link BalanceEngine}. Not part of the test suite; run with:
+ * <pre>
+ * mvn test-compile exec:exec -Dexec.executable=java -Dexec.classpathScope=test \
+ *     -Dexec.args="-cp %classpath com.splitsphere.service.BalanceEngineBenchmark"
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BalanceEngineBenchmark {
+    
+    @Param({"10", "50"})
+    private int members;
+    
+    @Param({"1000", "10000"})
+    private int expenseCount;
+    
+    private List<User> users;
+    private List<Expense> expenses;
+    private List<Settlement> settlements;
+    private User currentUser;
+    
+    @Setup
+    public void setUp() {
+        Random random = new Random(7);
+        users = new ArrayList<>();
+        for (int i = 0; i < members; i++) {
+            User user = new User();
+            user.setId((long) i + 1);
+            user.setUserId("user" + i);
+            user.setAccountName("User " + i);
+            user.setCode("$2a$10$" + Long.toHexString(random.nextLong()) + Long.toHexString(random.nextLong()));
+            users.add(user);
+        }
+        currentUser = users.get(0);
+        
+        Group group = new Group();
+        group.setId(1L);
+        group.getMembers().addAll(users);
+        
+        expenses = new ArrayList<>();
+        for (int i = 0; i < expenseCount; i++) {
+            Expense expense = new Expense();
+            expense.setGroup(group);
+            expense.setPayer(users.get(random.nextInt(members)));
+            expense.setAmount(BigDecimal.valueOf(100 + random.nextInt(100000), 2));
+            Set<User> participants = new HashSet<>();
+            int count = 2 + random.nextInt(Math.min(8, members - 1));
+            while (participants.size() < count) {
+                participants.add(users.get(random.nextInt(members)));
+            }
+            expense.setParticipants(participants);
+            expenses.add(expense);
+        }
+        
+        settlements = new ArrayList<>();
+        for (int i = 0; i < expenseCount / 10; i++) {
+            Settlement settlement = new Settlement();
+            settlement.setGroup(group);
+            int payer = random.nextInt(members);
+            settlement.setPayer(users.get(payer));
+            settlement.setPayee(users.get((payer + 1 + random.nextInt(members - 1)) % members));
+            settlement.setAmount(BigDecimal.valueOf(100 + random.nextInt(5000), 2));
+            settlements.add(settlement);
+        }
+    }
+    
+    /**
+     * The per-request loop from the original getGroupBalances (one member's view only).
+     */
+    @Benchmark
+    public Map<User, BigDecimal> bigDecimalUserReplay() {
+        Map<User, BigDecimal> balances = new HashMap<>();
+        for (Expense expense : expenses) {
+            User payer = expense.getPayer();
+            Set<User> participants = expense.getParticipants();
+            BigDecimal perPersonAmount = expense.getAmount()
+                    .divide(BigDecimal.valueOf(participants.size()), 2, RoundingMode.HALF_UP);
+            for (User participant : participants) {
+                if (!participant.equals(payer)) {
+                    if (participant.equals(currentUser)) {
+                        balances.merge(payer, perPersonAmount.negate(), BigDecimal::add);
+                    } else if (payer.equals(currentUser)) {
+                        balances.merge(participant, perPersonAmount, BigDecimal::add);
+                    }
+                }
+            }
+        }
+        for (Settlement settlement : settlements) {
+            if (settlement.getPayer().equals(currentUser)) {
+                balances.merge(settlement.getPayee(), settlement.getAmount(), BigDecimal::add);
+            } else if (settlement.getPayee().equals(currentUser)) {
+                balances.merge(settlement.getPayer(), settlement.getAmount().negate(), BigDecimal::add);
+            }
+        }
+        return balances;
+    }
+    
+    /**
+     * The pairwise BigDecimal replay the ledger rebuild started out with.
+     */
+    @Benchmark
+    public Map<User, Map<User, BigDecimal>> bigDecimalPairwiseReplay() {
+        Map<User, Map<User, BigDecimal>> owed = new HashMap<>();
+        for (Expense expense : expenses) {
+            User payer = expense.getPayer();
+            Set<User> participants = expense.getParticipants();
+            BigDecimal perPersonAmount = expense.getAmount()
+                    .divide(BigDecimal.valueOf(participants.size()), 2, RoundingMode.HALF_UP);
+            for (User participant : participants) {
+                if (!participant.equals(payer)) {
+                    owed.computeIfAbsent(participant, k -> new HashMap<>()).merge(payer, perPersonAmount, BigDecimal::add);
+                    owed.computeIfAbsent(payer, k -> new HashMap<>()).merge(participant, perPersonAmount.negate(), BigDecimal::add);
+                }
+            }
+        }
+        for (Settlement settlement : settlements) {
+            BigDecimal amount = settlement.getAmount();
+            owed.computeIfAbsent(settlement.getPayer(), k -> new HashMap<>()).merge(settlement.getPayee(), amount.negate(), BigDecimal::add);
+            owed.computeIfAbsent(settlement.getPayee(), k -> new HashMap<>()).merge(settlement.getPayer(), amount, BigDecimal::add);
+        }
+        return owed;
+    }
+    
+    /**
+     * Full pairwise replay through the engine, then one member's view converted to BigDecimal.
+     */
+    @Benchmark
+    public BigDecimal[] engineReplay() {
+        BalanceEngine engine = BalanceService.replayHistory(users, expenses, settlements);
+        int self = engine.indexOf(currentUser.getId());
+        BigDecimal[] balances = new BigDecimal[engine.size()];
+        for (int other = 0; other < engine.size(); other++) {
+            long cents = engine.owed(other, self);
+            if (cents != 0) {
+                balances[other] = BalanceEngine.toAmount(cents);
+            }
+        }
+        return balances;
+    }
+    
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(BalanceEngineBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
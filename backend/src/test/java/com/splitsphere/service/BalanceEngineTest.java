@@ -0,0 +1,82 @@
+package com.splitsphere.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BalanceEngineTest {
+    
+    @Test
+    void testPerPersonCentsMatchesBigDecimalHalfUp() {
+        Random random = new Random(1);
+        for (int i = 0; i < 10000; i++) {
+            long cents = 1 + random.nextInt(10_000_000);
+            int participants = 1 + random.nextInt(40);
+            BigDecimal expected = BigDecimal.valueOf(cents, 2)
+                    .divide(BigDecimal.valueOf(participants), 2, RoundingMode.HALF_UP);
+            
+            assertEquals(expected, BalanceEngine.toAmount(BalanceEngine.perPersonCents(cents, participants)));
+        }
+    }
+    
+    @Test
+    void testToCentsNeverRounds() {
+        assertEquals(1001, BalanceEngine.toCents(new BigDecimal("10.01")));
+        assertEquals(1000, BalanceEngine.toCents(new BigDecimal("10")));
+        assertThrows(ArithmeticException.class, () -> BalanceEngine.toCents(new BigDecimal("10.005")));
+    }
+    
+    @Test
+    void testExpenseAndSettlement() {
+        BalanceEngine engine = new BalanceEngine(new long[]{30L, 10L, 20L});
+        int a = engine.indexOf(10L);
+        int b = engine.indexOf(20L);
+        int c = engine.indexOf(30L);
+        
+        // a paid 100.00 for a, b and c: 33.33 each
+        engine.addExpense(a, new int[]{a, b, c}, 3, 10000);
+        // b paid back 20.00
+        engine.addSettlement(b, a, 2000);
+        
+        assertEquals(1333, engine.owed(b, a));
+        assertEquals(-1333, engine.owed(a, b));
+        assertEquals(3333, engine.owed(c, a));
+        assertEquals(0, engine.owed(b, c));
+        assertEquals(4666, engine.net(a));
+        assertEquals(-1333, engine.net(b));
+        assertEquals(2, engine.pairCount());
+        assertEquals(-1, engine.indexOf(40L));
+    }
+    
+    @Test
+    void testManyPairsGrowTable() {
+        int size = 200;
+        long[] ids = new long[size];
+        for (int i = 0; i < size; i++) {
+            ids[i] = i + 1;
+        }
+        BalanceEngine engine = new BalanceEngine(ids);
+        for (int i = 0; i < size; i++) {
+            for (int j = i + 1; j < size; j++) {
+                engine.addOwed(j, i, i + j);
+            }
+        }
+        
+        assertEquals(size * (size - 1) / 2, engine.pairCount());
+        assertEquals(150 + 7, engine.owed(150, 7));
+        assertEquals(-(150 + 7), engine.owed(7, 150));
+        
+        long[] total = new long[1];
+        engine.forEachPair((low, high, cents) -> total[0] += cents);
+        long netSum = 0;
+        for (int i = 0; i < size; i++) {
+            netSum += engine.net(i);
+        }
+        assertEquals(0, netSum);
+        assertTrue(total[0] < 0);
+    }
+}
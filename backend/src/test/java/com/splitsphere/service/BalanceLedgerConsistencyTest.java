@@ -0,0 +1,181 @@
+package com.splitsphere.service;
+
+import com.splitsphere.model.BalanceLedgerEntry;
+import com.splitsphere.model.BalanceSnapshot;
+import com.splitsphere.model.BalanceSnapshotPair;
+import com.splitsphere.model.Expense;
+import com.splitsphere.model.Group;
+import com.splitsphere.model.Settlement;
+import com.splitsphere.model.User;
+import com.splitsphere.repository.BalanceLedgerRepository;
+import com.splitsphere.repository.BalanceSnapshotRepository;
+import com.splitsphere.repository.ExpenseRepository;
+import com.splitsphere.repository.GroupRepository;
+import com.splitsphere.repository.SettlementRepository;
+import com.splitsphere.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The incrementally maintained ledger must be identical to one rebuilt from raw history,
+ * whether the rebuild starts from a snapshot or from scratch.
+ */
+@DataJpaTest
+@Import({BalanceService.class, BalanceCache.class})
+class BalanceLedgerConsistencyTest {
+    
+    @Autowired
+    private BalanceService balanceService;
+    
+    @Autowired
+    private UserRepository userRepository;
+    
+    @Autowired
+    private GroupRepository groupRepository;
+    
+    @Autowired
+    private ExpenseRepository expenseRepository;
+    
+    @Autowired
+    private SettlementRepository settlementRepository;
+    
+    @Autowired
+    private BalanceLedgerRepository balanceLedgerRepository;
+    
+    @Autowired
+    private BalanceSnapshotRepository balanceSnapshotRepository;
+    
+    @Autowired
+    private TestEntityManager entityManager;
+    
+    @MockBean
+    private UserService userService;
+    
+    @Test
+    void testIncrementalLedgerMatchesRebuild() {
+        Random random = new Random(42);
+        Group group = createGroup();
+        recordRandomHistory(random, group, 200);
+        entityManager.flush();
+        entityManager.clear();
+        
+        Map<String, BigDecimal> incremental = ledgerOf(group);
+        
+        balanceService.rebuildLedger(group.getId());
+        entityManager.flush();
+        entityManager.clear();
+        
+        Map<String, BigDecimal> rebuilt = ledgerOf(group);
+        
+        assertFalse(incremental.isEmpty());
+        assertEquals(incremental, rebuilt);
+    }
+    
+    @Test
+    void testSnapshotPlusDeltaMatchesFullReplay() throws InterruptedException {
+        Random random = new Random(7);
+        Group group = createGroup();
+        recordRandomHistory(random, group, 100);
+        entityManager.flush();
+        Thread.sleep(5);
+        BalanceSnapshot snapshot = balanceService.createSnapshot(group, LocalDateTime.now());
+        Thread.sleep(5);
+        recordRandomHistory(random, group, 100);
+        entityManager.flush();
+        entityManager.clear();
+        
+        Map<String, BigDecimal> incremental = ledgerOf(group);
+        
+        assertTrue(balanceService.verifySnapshot(group.getId()));
+        assertTrue(balanceService.verifyLedger(group.getId()));
+        
+        balanceService.rebuildLedger(group.getId());
+        entityManager.flush();
+        entityManager.clear();
+        assertEquals(incremental, ledgerOf(group));
+        
+        // A corrupted snapshot is detected, and dropping it falls back to the full history
+        BalanceSnapshot stored = balanceSnapshotRepository.findById(snapshot.getId()).orElseThrow();
+        BalanceSnapshotPair pair = stored.getPairs().get(0);
+        pair.setAmount(pair.getAmount().add(BigDecimal.ONE));
+        entityManager.flush();
+        entityManager.clear();
+        
+        assertFalse(balanceService.verifySnapshot(group.getId()));
+        assertFalse(balanceService.verifyLedger(group.getId()));
+        
+        assertEquals(1, balanceService.dropSnapshots(group.getId()));
+        entityManager.flush();
+        entityManager.clear();
+        assertTrue(balanceService.verifyLedger(group.getId()));
+    }
+    
+    private Group createGroup() {
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            User user = new User();
+            user.setAccountName("User " + i);
+            user.setUserId("user" + i);
+            user.setCode("1234");
+            users.add(userRepository.save(user));
+        }
+        
+        Group group = new Group();
+        group.setName("Trip");
+        group.setJoinCode("TRIP0001");
+        group.setCreator(users.get(0));
+        group.getMembers().addAll(users);
+        return groupRepository.save(group);
+    }
+    
+    private void recordRandomHistory(Random random, Group group, int operations) {
+        List<User> users = new ArrayList<>(group.getMembers());
+        users.sort(Comparator.comparing(User::getId));
+        for (int i = 0; i < operations; i++) {
+            User payer = users.get(random.nextInt(users.size()));
+            if (random.nextInt(4) == 0) {
+                User payee = users.get(random.nextInt(users.size()));
+                if (payee.equals(payer)) {
+                    continue;
+                }
+                Settlement settlement = new Settlement();
+                settlement.setPayer(payer);
+                settlement.setPayee(payee);
+                settlement.setGroup(group);
+                settlement.setAmount(BigDecimal.valueOf(1 + random.nextInt(5000), 2));
+                balanceService.recordSettlement(settlementRepository.save(settlement));
+            } else {
+                Set<User> participants = new HashSet<>();
+                int count = 1 + random.nextInt(users.size());
+                while (participants.size() < count) {
+                    participants.add(users.get(random.nextInt(users.size())));
+                }
+                Expense expense = new Expense();
+                expense.setDescription("Expense " + i);
+                expense.setAmount(BigDecimal.valueOf(1 + random.nextInt(100000), 2));
+                expense.setPayer(payer);
+                expense.setGroup(group);
+                expense.setParticipants(participants);
+                balanceService.recordExpense(expenseRepository.save(expense));
+            }
+        }
+    }
+    
+    private Map<String, BigDecimal> ledgerOf(Group group) {
+        Map<String, BigDecimal> ledger = new TreeMap<>();
+        for (BalanceLedgerEntry entry : balanceLedgerRepository.findByGroup(group)) {
+            ledger.put(entry.getDebtor().getUserId() + "->" + entry.getCreditor().getUserId(), entry.getAmount());
+        }
+        return ledger;
+    }
+}
@@ -1,24 +1,33 @@
 package com.splitsphere.service;
 
 import com.splitsphere.dto.BalanceResponse;
+import com.splitsphere.dto.TransferResponse;
+import com.splitsphere.model.BalanceLedgerEntry;
 import com.splitsphere.model.Expense;
 import com.splitsphere.model.Group;
 import com.splitsphere.model.Settlement;
 import com.splitsphere.model.User;
+import com.splitsphere.repository.BalanceLedgerRepository;
+import com.splitsphere.repository.BalanceSnapshotRepository;
 import com.splitsphere.repository.ExpenseRepository;
 import com.splitsphere.repository.GroupRepository;
 import com.splitsphere.repository.SettlementRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
 
 import java.math.BigDecimal;
 import java.util.*;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -33,12 +42,27 @@ class BalanceServiceTest {
     @Mock
     private SettlementRepository settlementRepository;
     
+    @Mock
+    private BalanceLedgerRepository balanceLedgerRepository;
+    
+    @Mock
+    private BalanceSnapshotRepository balanceSnapshotRepository;
+    
     @Mock
     private UserService userService;
     
+    @Spy
+    private BalanceCache balanceCache = new BalanceCache(100, 60);
+    
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+    
     @InjectMocks
     private BalanceService balanceService;
     
+    @Captor
+    private ArgumentCaptor<List<BalanceLedgerEntry>> savedEntries;
+    
     private User user1;
     private User user2;
     private User user3;
@@ -73,23 +97,11 @@ class BalanceServiceTest {
     }
     
     @Test
-    void testGetGroupBalances_WithExpensesOnly() {
+    void testGetGroupBalances_Owes() {
         when(userService.getUserByUserId("user1")).thenReturn(user1);
         when(groupRepository.findById(1L)).thenReturn(Optional.of(group));
-        
-        // User2 paid 300, split among user1, user2, user3 (100 each)
-        // So user1 owes user2 100, and user3 owes user2 100
-        Expense expense = new Expense();
-        expense.setPayer(user2);
-        expense.setAmount(new BigDecimal("300.00"));
-        Set<User> participants = new HashSet<>();
-        participants.add(user1);
-        participants.add(user2);
-        participants.add(user3);
-        expense.setParticipants(participants);
-        
-        when(expenseRepository.findByGroup(group)).thenReturn(Collections.singletonList(expense));
-        when(settlementRepository.findByGroupOrderByCreatedAtDesc(group)).thenReturn(Collections.emptyList());
+        when(balanceLedgerRepository.findByGroupAndDebtor(group, user1))
+                .thenReturn(Collections.singletonList(entry(user1, user2, "100.00")));
         
         List<BalanceResponse> balances = balanceService.getGroupBalances(1L, "user1");
         
@@ -100,148 +112,237 @@ class BalanceServiceTest {
     }
     
     @Test
-    void testGetGroupBalances_WithExpensesAndSettlements() {
+    void testGetGroupBalances_Owed() {
         when(userService.getUserByUserId("user1")).thenReturn(user1);
         when(groupRepository.findById(1L)).thenReturn(Optional.of(group));
-        
-        // User2 paid 300, split among user1, user2, user3 (100 each)
-        Expense expense = new Expense();
-        expense.setPayer(user2);
-        expense.setAmount(new BigDecimal("300.00"));
-        Set<User> participants = new HashSet<>();
-        participants.add(user1);
-        participants.add(user2);
-        participants.add(user3);
-        expense.setParticipants(participants);
-        
-        when(expenseRepository.findByGroup(group)).thenReturn(Collections.singletonList(expense));
-        
-        // User1 settled 60 with user2
-        Settlement settlement = new Settlement();
-        settlement.setPayer(user1);
-        settlement.setPayee(user2);
-        settlement.setAmount(new BigDecimal("60.00"));
-        settlement.setGroup(group);
-        
-        when(settlementRepository.findByGroupOrderByCreatedAtDesc(group))
-                .thenReturn(Collections.singletonList(settlement));
+        when(balanceLedgerRepository.findByGroupAndDebtor(group, user1))
+                .thenReturn(Collections.singletonList(entry(user1, user3, "-40.00")));
         
         List<BalanceResponse> balances = balanceService.getGroupBalances(1L, "user1");
         
-        // User1 owed 100, paid 60, so now owes 40
         assertEquals(1, balances.size());
-        assertEquals("user2", balances.get(0).getUserId());
+        assertEquals("user3", balances.get(0).getUserId());
         assertEquals(new BigDecimal("40.00"), balances.get(0).getBalance());
-        assertEquals("owes", balances.get(0).getStatus());
+        assertEquals("owed", balances.get(0).getStatus());
     }
     
     @Test
-    void testGetGroupBalances_FullySettled() {
+    void testGetGroupBalances_CachedUntilGroupChanges() {
         when(userService.getUserByUserId("user1")).thenReturn(user1);
         when(groupRepository.findById(1L)).thenReturn(Optional.of(group));
+        when(balanceLedgerRepository.findByGroupAndDebtor(group, user1))
+                .thenReturn(Collections.singletonList(entry(user1, user2, "100.00")));
         
-        // User2 paid 300, split among user1, user2, user3 (100 each)
-        Expense expense = new Expense();
-        expense.setPayer(user2);
-        expense.setAmount(new BigDecimal("300.00"));
-        Set<User> participants = new HashSet<>();
-        participants.add(user1);
-        participants.add(user2);
-        participants.add(user3);
-        expense.setParticipants(participants);
-        
-        when(expenseRepository.findByGroup(group)).thenReturn(Collections.singletonList(expense));
+        balanceService.getGroupBalances(1L, "user1");
+        balanceService.getGroupBalances(1L, "user1");
+        verify(balanceLedgerRepository, times(1)).findByGroupAndDebtor(group, user1);
         
-        // User1 settled full 100 with user2
-        Settlement settlement = new Settlement();
-        settlement.setPayer(user1);
-        settlement.setPayee(user2);
-        settlement.setAmount(new BigDecimal("100.00"));
-        settlement.setGroup(group);
-        
-        when(settlementRepository.findByGroupOrderByCreatedAtDesc(group))
-                .thenReturn(Collections.singletonList(settlement));
+        group.setVersion(1L);
+        balanceService.getGroupBalances(1L, "user1");
+        verify(balanceLedgerRepository, times(2)).findByGroupAndDebtor(group, user1);
+    }
+    
+    @Test
+    void testGetGroupBalances_FullySettled() {
+        when(userService.getUserByUserId("user1")).thenReturn(user1);
+        when(groupRepository.findById(1L)).thenReturn(Optional.of(group));
+        when(balanceLedgerRepository.findByGroupAndDebtor(group, user1))
+                .thenReturn(Collections.singletonList(entry(user1, user2, "0.00")));
         
         List<BalanceResponse> balances = balanceService.getGroupBalances(1L, "user1");
         
-        // User1 owed 100, paid 100, so now owes 0 (shouldn't appear in results)
+        // Settled pairs stay in the ledger but shouldn't appear in results
         assertEquals(0, balances.size());
     }
     
     @Test
-    void testCalculateBalanceBetweenUsers_WithExpenses() {
+    void testGetGroupBalances_NotMember() {
+        User outsider = new User();
+        outsider.setId(4L);
+        outsider.setUserId("user4");
+        outsider.setAccountName("User Four");
+        when(userService.getUserByUserId("user4")).thenReturn(outsider);
         when(groupRepository.findById(1L)).thenReturn(Optional.of(group));
         
-        // User2 paid 300, split among user1, user2, user3 (100 each)
-        Expense expense = new Expense();
-        expense.setPayer(user2);
-        expense.setAmount(new BigDecimal("300.00"));
-        Set<User> participants = new HashSet<>();
-        participants.add(user1);
-        participants.add(user2);
-        participants.add(user3);
-        expense.setParticipants(participants);
-        
-        when(expenseRepository.findByGroup(group)).thenReturn(Collections.singletonList(expense));
-        when(settlementRepository.findByGroupOrderByCreatedAtDesc(group)).thenReturn(Collections.emptyList());
+        assertThrows(IllegalArgumentException.class, () -> balanceService.getGroupBalances(1L, "user4"));
+        verify(balanceLedgerRepository, never()).findByGroupAndDebtor(any(), any());
+    }
+    
+    @Test
+    void testGetSimplifiedTransfers() {
+        when(userService.getUserByUserId("user1")).thenReturn(user1);
+        when(groupRepository.findById(1L)).thenReturn(Optional.of(group));
+        // user1 owes 100 overall, user3 owes 50, user2 is owed 150
+        when(balanceLedgerRepository.sumOwedByDebtor(group)).thenReturn(Arrays.asList(
+                new Object[]{1L, new BigDecimal("100.00")},
+                new Object[]{2L, new BigDecimal("-150.00")},
+                new Object[]{3L, new BigDecimal("50.00")}));
+        
+        List<TransferResponse> transfers = balanceService.getSimplifiedTransfers(1L, "user1");
+        
+        assertEquals(2, transfers.size());
+        assertEquals("user1", transfers.get(0).getFromUserId());
+        assertEquals("user2", transfers.get(0).getToUserId());
+        assertEquals(new BigDecimal("100.00"), transfers.get(0).getAmount());
+        assertEquals("user3", transfers.get(1).getFromUserId());
+        assertEquals(new BigDecimal("50.00"), transfers.get(1).getAmount());
+    }
+    
+    @Test
+    void testCalculateBalanceBetweenUsers_FromLedger() {
+        when(groupRepository.findVersionById(1L)).thenReturn(Optional.of(0L));
+        when(balanceLedgerRepository.findEntry(1L, user1, user2))
+                .thenReturn(Optional.of(entry(user1, user2, "40.00")));
         
-        BigDecimal balance = balanceService.calculateBalanceBetweenUsers(1L, user1, user2);
+        assertEquals(new BigDecimal("40.00"), balanceService.calculateBalanceBetweenUsers(1L, user1, user2));
+    }
+    
+    @Test
+    void testCalculateBalanceBetweenUsers_NoHistory() {
+        when(groupRepository.findVersionById(1L)).thenReturn(Optional.of(0L));
+        when(balanceLedgerRepository.findEntry(1L, user1, user2)).thenReturn(Optional.empty());
         
-        // User1 owes user2 100
-        assertEquals(new BigDecimal("100.00"), balance);
+        assertEquals(BigDecimal.ZERO, balanceService.calculateBalanceBetweenUsers(1L, user1, user2));
     }
     
     @Test
-    void testCalculateBalanceBetweenUsers_WithExpensesAndSettlements() {
-        when(groupRepository.findById(1L)).thenReturn(Optional.of(group));
+    void testRecordExpense_UpdatesBothDirections() {
+        when(balanceLedgerRepository.findEntriesForUpdate(eq(1L), any())).thenReturn(List.of());
         
         // User2 paid 300, split among user1, user2, user3 (100 each)
-        Expense expense = new Expense();
-        expense.setPayer(user2);
-        expense.setAmount(new BigDecimal("300.00"));
-        Set<User> participants = new HashSet<>();
-        participants.add(user1);
-        participants.add(user2);
-        participants.add(user3);
-        expense.setParticipants(participants);
+        balanceService.recordExpense(expense(user2, "300.00", user1, user2, user3));
         
-        when(expenseRepository.findByGroup(group)).thenReturn(Collections.singletonList(expense));
-        
-        // User1 settled 60 with user2
-        Settlement settlement = new Settlement();
-        settlement.setPayer(user1);
-        settlement.setPayee(user2);
-        settlement.setAmount(new BigDecimal("60.00"));
+        List<BalanceLedgerEntry> saved = captureSaved();
+        assertEquals(4, saved.size());
         
-        when(settlementRepository.findByGroupOrderByCreatedAtDesc(group))
-                .thenReturn(Collections.singletonList(settlement));
+        assertEquals(new BigDecimal("100.00"), find(saved, user1, user2));
+        assertEquals(new BigDecimal("-100.00"), find(saved, user2, user1));
+        assertEquals(new BigDecimal("100.00"), find(saved, user3, user2));
+        assertEquals(new BigDecimal("-100.00"), find(saved, user2, user3));
+    }
+    
+    @Test
+    void testRecordSettlement_ReducesDebt() {
+        BalanceLedgerEntry forward = entry(user1, user2, "100.00");
+        BalanceLedgerEntry reverse = entry(user2, user1, "-100.00");
+        when(balanceLedgerRepository.findEntryForUpdate(1L, user1, user2)).thenReturn(Optional.of(forward));
+        when(balanceLedgerRepository.findEntryForUpdate(1L, user2, user1)).thenReturn(Optional.of(reverse));
         
-        BigDecimal balance = balanceService.calculateBalanceBetweenUsers(1L, user1, user2);
+        balanceService.recordSettlement(settlement(user1, user2, "60.00"));
         
-        // User1 owed 100, paid 60, so owes 40
-        assertEquals(new BigDecimal("40.00"), balance);
+        assertEquals(new BigDecimal("40.00"), forward.getAmount());
+        assertEquals(new BigDecimal("-40.00"), reverse.getAmount());
+        verify(eventPublisher).publishEvent(new GroupChangedEvent(1L));
     }
     
     @Test
-    void testCalculateBalanceBetweenUsers_NegativeBalance() {
-        when(groupRepository.findById(1L)).thenReturn(Optional.of(group));
+    void testRebuildLedger_WithExpensesOnly() {
+        // User2 paid 300, split among user1, user2, user3 (100 each)
+        // So user1 owes user2 100, and user3 owes user2 100
+        List<BalanceLedgerEntry> ledger = rebuild(
+                Collections.singletonList(expense(user2, "300.00", user1, user2, user3)),
+                Collections.emptyList());
+        
+        assertEquals(4, ledger.size());
+        assertEquals(new BigDecimal("100.00"), find(ledger, user1, user2));
+        assertEquals(new BigDecimal("100.00"), find(ledger, user3, user2));
+        assertEquals(new BigDecimal("-100.00"), find(ledger, user2, user1));
+        verify(balanceLedgerRepository).deleteByGroup(group);
+        verify(groupRepository).incrementVersion(1L);
+    }
+    
+    @Test
+    void testRebuildLedger_WithExpensesAndSettlements() {
+        // User1 owed 100, paid 60, so now owes 40
+        List<BalanceLedgerEntry> ledger = rebuild(
+                Collections.singletonList(expense(user2, "300.00", user1, user2, user3)),
+                Collections.singletonList(settlement(user1, user2, "60.00")));
         
-        // User1 paid 300, split among user1, user2, user3 (100 each)
-        Expense expense = new Expense();
-        expense.setPayer(user1);
-        expense.setAmount(new BigDecimal("300.00"));
-        Set<User> participants = new HashSet<>();
-        participants.add(user1);
-        participants.add(user2);
-        participants.add(user3);
-        expense.setParticipants(participants);
+        assertEquals(new BigDecimal("40.00"), find(ledger, user1, user2));
+        assertEquals(new BigDecimal("-40.00"), find(ledger, user2, user1));
+    }
+    
+    @Test
+    void testRebuildLedger_FullySettled() {
+        List<BalanceLedgerEntry> ledger = rebuild(
+                Collections.singletonList(expense(user2, "300.00", user1, user2, user3)),
+                Collections.singletonList(settlement(user1, user2, "100.00")));
         
-        when(expenseRepository.findByGroup(group)).thenReturn(Collections.singletonList(expense));
-        when(settlementRepository.findByGroupOrderByCreatedAtDesc(group)).thenReturn(Collections.emptyList());
+        assertEquals(0, find(ledger, user1, user2).compareTo(BigDecimal.ZERO));
+    }
+    
+    @Test
+    void testRebuildLedger_RoundsPerPersonHalfUp() {
+        // 100 split three ways is 33.33 each, matching the expense listing
+        List<BalanceLedgerEntry> ledger = rebuild(
+                Collections.singletonList(expense(user1, "100.00", user1, user2, user3)),
+                Collections.emptyList());
+        
+        assertEquals(new BigDecimal("-33.33"), find(ledger, user1, user2));
+        assertEquals(new BigDecimal("33.33"), find(ledger, user3, user1));
+    }
+    
+    private List<BalanceLedgerEntry> rebuild(List<Expense> expenses, List<Settlement> settlements) {
+        // One aggregate row per share, as the GROUP BY queries would return without duplicates
+        List<Object[]> shares = new ArrayList<>();
+        for (Expense expense : expenses) {
+            for (User participant : expense.getParticipants()) {
+                if (!participant.equals(expense.getPayer())) {
+                    shares.add(new Object[]{participant.getId(), expense.getPayer().getId(), expense.getAmount(),
+                            (long) expense.getParticipants().size(), 1L});
+                }
+            }
+        }
+        List<Object[]> settled = new ArrayList<>();
+        for (Settlement settlement : settlements) {
+            settled.add(new Object[]{settlement.getPayer().getId(), settlement.getPayee().getId(), settlement.getAmount()});
+        }
+        when(groupRepository.findById(1L)).thenReturn(Optional.of(group));
+        when(expenseRepository.aggregateShares(eq(1L), any(), any())).thenReturn(shares);
+        when(settlementRepository.aggregateSettlements(eq(1L), any(), any())).thenReturn(settled);
         
-        BigDecimal balance = balanceService.calculateBalanceBetweenUsers(1L, user1, user2);
+        balanceService.rebuildLedger(1L);
         
-        // User2 owes user1 100, so from user1's perspective it's negative
-        assertEquals(new BigDecimal("-100.00"), balance);
+        return captureSaved();
+    }
+    
+    private List<BalanceLedgerEntry> captureSaved() {
+        verify(balanceLedgerRepository).saveAll(savedEntries.capture());
+        return savedEntries.getValue();
+    }
+    
+    private BigDecimal find(List<BalanceLedgerEntry> entries, User debtor, User creditor) {
+        return entries.stream()
+                .filter(e -> e.getDebtor().equals(debtor) && e.getCreditor().equals(creditor))
+                .map(BalanceLedgerEntry::getAmount)
+                .findFirst()
+                .orElseThrow();
+    }
+    
+    private BalanceLedgerEntry entry(User debtor, User creditor, String amount) {
+        BalanceLedgerEntry entry = new BalanceLedgerEntry();
+        entry.setGroup(group);
+        entry.setDebtor(debtor);
+        entry.setCreditor(creditor);
+        entry.setAmount(new BigDecimal(amount));
+        return entry;
+    }
+    
+    private Expense expense(User payer, String amount, User... participants) {
+        Expense expense = new Expense();
+        expense.setPayer(payer);
+        expense.setGroup(group);
+        expense.setAmount(new BigDecimal(amount));
+        expense.setParticipants(new HashSet<>(Arrays.asList(participants)));
+        return expense;
+    }
+    
+    private Settlement settlement(User payer, User payee, String amount) {
+        Settlement settlement = new Settlement();
+        settlement.setPayer(payer);
+        settlement.setPayee(payee);
+        settlement.setGroup(group);
+        settlement.setAmount(new BigDecimal(amount));
+        return settlement;
     }
 }
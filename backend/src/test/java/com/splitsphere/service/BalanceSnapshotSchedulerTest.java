@@ -0,0 +1,93 @@
+package com.splitsphere.service;
+
+import com.splitsphere.model.BalanceSnapshot;
+import com.splitsphere.model.Group;
+import com.splitsphere.model.User;
+import com.splitsphere.repository.BalanceSnapshotRepository;
+import com.splitsphere.repository.GroupRepository;
+import com.splitsphere.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.TestPropertySource;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Snapshots fall due by the writes counted in {@code groups.version}, not by anything kept in memory.
+ */
+@DataJpaTest
+@Import({BalanceService.class, BalanceCache.class, BalanceSnapshotScheduler.class})
+@TestPropertySource(properties = "balances.snapshot.interval=3")
+class BalanceSnapshotSchedulerTest {
+    
+    @Autowired
+    private BalanceSnapshotScheduler balanceSnapshotScheduler;
+    
+    @Autowired
+    private UserRepository userRepository;
+    
+    @Autowired
+    private GroupRepository groupRepository;
+    
+    @Autowired
+    private BalanceSnapshotRepository balanceSnapshotRepository;
+    
+    @Autowired
+    private TestEntityManager entityManager;
+    
+    @MockBean
+    private UserService userService;
+    
+    @Test
+    void testSnapshotsGroupsOnceEnoughWritesAccumulate() {
+        Group busy = createGroup("BUSY0001");
+        Group quiet = createGroup("QUIET001");
+        bumpVersion(busy, 3);
+        bumpVersion(quiet, 2);
+        
+        balanceSnapshotScheduler.snapshotBusyGroups();
+        
+        List<BalanceSnapshot> snapshots = balanceSnapshotRepository.findByGroup(busy);
+        assertEquals(1, snapshots.size());
+        assertEquals(3, snapshots.get(0).getGroupVersion());
+        assertTrue(balanceSnapshotRepository.findByGroup(quiet).isEmpty());
+        
+        // The next one counts from the version the last snapshot was taken at
+        bumpVersion(busy, 2);
+        balanceSnapshotScheduler.snapshotBusyGroups();
+        assertEquals(1, balanceSnapshotRepository.findByGroup(busy).size());
+        
+        bumpVersion(busy, 1);
+        balanceSnapshotScheduler.snapshotBusyGroups();
+        assertEquals(2, balanceSnapshotRepository.findByGroup(busy).size());
+    }
+    
+    private void bumpVersion(Group group, int writes) {
+        for (int i = 0; i < writes; i++) {
+            groupRepository.incrementVersion(group.getId());
+        }
+        entityManager.flush();
+        entityManager.clear();
+    }
+    
+    private Group createGroup(String joinCode) {
+        User user = new User();
+        user.setAccountName("User " + joinCode);
+        user.setUserId("user-" + joinCode);
+        user.setCode("1234");
+        user = userRepository.save(user);
+        
+        Group group = new Group();
+        group.setName("Group " + joinCode);
+        group.setJoinCode(joinCode);
+        group.setCreator(user);
+        group.getMembers().add(user);
+        return groupRepository.saveAndFlush(group);
+    }
+}
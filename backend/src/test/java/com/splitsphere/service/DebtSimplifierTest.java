@@ -0,0 +1,90 @@
+package com.splitsphere.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DebtSimplifierTest {
+    
+    private static final long NO_DEADLINE = Long.MAX_VALUE;
+    
+    @Test
+    void testExactBeatsGreedy() {
+        // Splitting into {8, -8} and {9, 9, -7, -3, -8} saves a transfer over greedy pairing
+        long[] net = {800, 900, 900, -800, -700, -300, -800};
+        
+        List<DebtSimplifier.Transfer> exact = DebtSimplifier.simplify(net, 16, NO_DEADLINE);
+        List<DebtSimplifier.Transfer> greedy = DebtSimplifier.simplify(net, 0, NO_DEADLINE);
+        
+        assertSettles(net, exact);
+        assertSettles(net, greedy);
+        assertEquals(5, exact.size());
+        assertEquals(6, greedy.size());
+    }
+    
+    @Test
+    void testExactNeverWorseThanGreedy() {
+        Random random = new Random(11);
+        for (int round = 0; round < 200; round++) {
+            long[] net = randomNet(random, 2 + random.nextInt(10));
+            
+            List<DebtSimplifier.Transfer> exact = DebtSimplifier.simplify(net, 16, NO_DEADLINE);
+            List<DebtSimplifier.Transfer> greedy = DebtSimplifier.simplify(net, 0, NO_DEADLINE);
+            
+            assertSettles(net, exact);
+            assertSettles(net, greedy);
+            assertTrue(exact.size() <= greedy.size());
+        }
+    }
+    
+    @Test
+    void testExpiredDeadlineFallsBackToGreedy() {
+        long[] net = randomNet(new Random(5), 16);
+        
+        List<DebtSimplifier.Transfer> transfers = DebtSimplifier.simplify(net, 16, System.nanoTime() - 1);
+        
+        assertSettles(net, transfers);
+    }
+    
+    @Test
+    void testLargeGroupUsesGreedy() {
+        long[] net = randomNet(new Random(9), 5000);
+        
+        long start = System.nanoTime();
+        List<DebtSimplifier.Transfer> transfers = DebtSimplifier.simplify(net, 16, start + 200_000_000L);
+        
+        assertSettles(net, transfers);
+        assertTrue(transfers.size() < net.length);
+    }
+    
+    @Test
+    void testAllSettled() {
+        assertTrue(DebtSimplifier.simplify(new long[]{0, 0, 0}, 16, NO_DEADLINE).isEmpty());
+    }
+    
+    private long[] randomNet(Random random, int size) {
+        long[] net = new long[size];
+        long total = 0;
+        for (int i = 0; i < size - 1; i++) {
+            net[i] = random.nextInt(20000) - 10000;
+            total += net[i];
+        }
+        net[size - 1] = -total;
+        return net;
+    }
+    
+    private void assertSettles(long[] net, List<DebtSimplifier.Transfer> transfers) {
+        long[] remaining = net.clone();
+        for (DebtSimplifier.Transfer transfer : transfers) {
+            assertTrue(transfer.cents() > 0);
+            remaining[transfer.from()] += transfer.cents();
+            remaining[transfer.to()] -= transfer.cents();
+        }
+        for (long value : remaining) {
+            assertEquals(0, value);
+        }
+    }
+}
@@ -0,0 +1,189 @@
+package com.splitsphere.service;
+
+import com.splitsphere.dto.ImportReport;
+import com.splitsphere.dto.ImportRowError;
+import com.splitsphere.model.Group;
+import com.splitsphere.model.User;
+import com.splitsphere.repository.*;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.autoconfigure.validation.ValidationAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.when;
+
+/**
+ * Imports commit chunk by chunk, so this runs without a test transaction and cleans up after itself.
+ */
+@DataJpaTest(properties = "expenses.import.chunk-size=2")
+@Import({ExpenseImportService.class, ExpenseService.class, BalanceService.class, BalanceCache.class, AuditService.class})
+@ImportAutoConfiguration({JacksonAutoConfiguration.class, ValidationAutoConfiguration.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ExpenseImportServiceTest {
+    
+    @Autowired
+    private ExpenseImportService expenseImportService;
+    
+    @Autowired
+    private BalanceService balanceService;
+    
+    @Autowired
+    private UserRepository userRepository;
+    
+    @Autowired
+    private GroupRepository groupRepository;
+    
+    @Autowired
+    private ExpenseRepository expenseRepository;
+    
+    @Autowired
+    private BalanceLedgerRepository balanceLedgerRepository;
+    
+    @Autowired
+    private AuditLogRepository auditLogRepository;
+    
+    @MockBean
+    private UserService userService;
+    
+    private User alice;
+    private User bob;
+    private User carol;
+    private Group group;
+    
+    @BeforeEach
+    void setUp() {
+        alice = createUser("alice");
+        bob = createUser("bob");
+        carol = createUser("carol");
+        createUser("dave");
+        
+        group = new Group();
+        group.setName("Trip");
+        group.setJoinCode("TRIP0001");
+        group.setCreator(alice);
+        group.getMembers().addAll(List.of(alice, bob, carol));
+        group = groupRepository.save(group);
+    }
+    
+    @AfterEach
+    void tearDown() {
+        auditLogRepository.deleteAll();
+        balanceLedgerRepository.deleteAll();
+        expenseRepository.deleteAll();
+        groupRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+    
+    @Test
+    void testCsvImportReportsBadRowsAndImportsTheRest() throws IOException {
+        String csv = """
+                description,amount,payerUserId,participantUserIds
+                "Dinner, day 1",90.00,,alice;bob;carol
+                Taxi,abc,bob,alice;bob
+                Hotel,300.00,alice,alice;bob;carol
+                
+                Museum,30.00,,carol;dave
+                Snacks,12.00,bob,alice
+                Lunch,,alice,alice;bob
+                Boat,20.00,,
+                Coffee,6.00,,alice;eve
+                Tea,6.00,,alice;bob
+                """;
+        
+        ImportReport report = importCsv(csv);
+        
+        assertEquals(3, report.getImported());
+        assertEquals(6, report.getFailed());
+        assertEquals(List.of(
+                new ImportRowError(3, "Invalid amount: abc"),
+                new ImportRowError(6, "Participant dave is not a member of this group"),
+                new ImportRowError(7, "Only expenses paid by you can be imported, not by bob"),
+                new ImportRowError(8, "Amount is required"),
+                new ImportRowError(9, "At least one participant is required"),
+                new ImportRowError(10, "User not found: eve")), report.getErrors());
+        
+        assertEquals(3, expenseRepository.count());
+        assertTrue(expenseRepository.findAll().stream().allMatch(expense -> expense.getPayer().getId().equals(alice.getId())));
+        // Dinner: bob and carol owe alice 30.00 each; hotel: 100.00 each; tea: bob owes alice 3.00
+        assertEquals(new BigDecimal("-133.00"), balanceService.calculateBalanceBetweenUsers(group.getId(), alice, bob));
+        assertEquals(BigDecimal.ZERO, balanceService.calculateBalanceBetweenUsers(group.getId(), carol, bob));
+        assertEquals(new BigDecimal("130.00"), balanceService.calculateBalanceBetweenUsers(group.getId(), carol, alice));
+        assertTrue(balanceService.verifyLedger(group.getId()));
+        // One audit row per chunk that imported something (chunks of two rows)
+        assertEquals(3, auditLogRepository.findByEntityTypeAndEntityIdOrderByTimestampDesc("Group", group.getId()).size());
+    }
+    
+    @Test
+    void testNdjsonImport() throws IOException {
+        String ndjson = """
+                {"description": "Dinner", "amount": 90.00, "participantUserIds": ["alice", "bob", "carol"]}
+                {"description": "Taxi", "amount": 20.00, "payerUserId": "alice", "participantUserIds": ["alice", "bob"]}
+                {"description": "Broken",
+                {"description": "", "amount": 0, "participantUserIds": ["alice"]}
+                {"description": "Tip", "amount": 10.005, "participantUserIds": ["alice", "bob"]}
+                {"description": "Taxi back", "amount": 20.00, "payerUserId": "bob", "participantUserIds": ["alice", "bob"]}
+                """;
+        
+        ImportReport report = expenseImportService.importExpenses(group.getId(),
+                new ByteArrayInputStream(ndjson.getBytes(StandardCharsets.UTF_8)), ExpenseImportService.NDJSON, "alice");
+        
+        assertEquals(2, report.getImported());
+        assertEquals(List.of(3L, 4L, 5L, 6L), report.getErrors().stream().map(ImportRowError::getRow).toList());
+        assertTrue(report.getErrors().get(0).getMessage().startsWith("Invalid JSON"));
+        assertEquals("Amount must be greater than 0; Description is required", report.getErrors().get(1).getMessage());
+        assertEquals("Amount can have at most 2 decimal places", report.getErrors().get(2).getMessage());
+        assertEquals("Only expenses paid by you can be imported, not by bob", report.getErrors().get(3).getMessage());
+        // Dinner: bob owes alice 30.00; taxi: bob owes alice 10.00
+        assertEquals(new BigDecimal("-40.00"), balanceService.calculateBalanceBetweenUsers(group.getId(), alice, bob));
+        assertTrue(balanceService.verifyLedger(group.getId()));
+    }
+    
+    @Test
+    void testRejectsClosedGroupAndMissingColumns() {
+        assertThrows(IllegalArgumentException.class, () -> importCsv("description,amount\nTaxi,10.00\n"));
+        
+        group.setClosed(true);
+        groupRepository.save(group);
+        
+        assertThrows(IllegalArgumentException.class,
+                () -> importCsv("description,amount,participantUserIds\nTaxi,10.00,alice;bob\n"));
+        assertEquals(0, expenseRepository.count());
+    }
+    
+    @Test
+    void testSplitCsvHandlesQuotes() {
+        assertEquals(List.of("a", "b, c", "say \"hi\"", ""), ExpenseImportService.splitCsv("a,\"b, c\",\"say \"\"hi\"\"\","));
+        assertThrows(IllegalArgumentException.class, () -> ExpenseImportService.splitCsv("a,\"b"));
+    }
+    
+    private ImportReport importCsv(String csv) throws IOException {
+        return expenseImportService.importExpenses(group.getId(),
+                new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)), ExpenseImportService.CSV, "alice");
+    }
+    
+    private User createUser(String userId) {
+        User user = new User();
+        user.setUserId(userId);
+        user.setAccountName(userId);
+        user.setCode("1234");
+        // Reload so timestamps carry the database precision, as UserService would return them
+        user = userRepository.findById(userRepository.save(user).getId()).orElseThrow();
+        when(userService.getUserByUserId(userId)).thenReturn(user);
+        return user;
+    }
+}
@@ -0,0 +1,155 @@
+package com.splitsphere.service;
+
+import com.splitsphere.dto.ExpenseRequest;
+import com.splitsphere.dto.ExpenseResponse;
+import com.splitsphere.model.Group;
+import com.splitsphere.model.User;
+import com.splitsphere.repository.*;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs without a test transaction so every service call commits (and flushes) on its own.
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@Import({ExpenseService.class, BalanceService.class, BalanceCache.class, AuditService.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ExpenseServiceTest {
+    
+    @Autowired
+    private ExpenseService expenseService;
+    
+    @Autowired
+    private BalanceService balanceService;
+    
+    @Autowired
+    private UserRepository userRepository;
+    
+    @Autowired
+    private GroupRepository groupRepository;
+    
+    @Autowired
+    private ExpenseRepository expenseRepository;
+    
+    @Autowired
+    private BalanceLedgerRepository balanceLedgerRepository;
+    
+    @Autowired
+    private AuditLogRepository auditLogRepository;
+    
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    
+    @MockBean
+    private UserService userService;
+    
+    private List<User> users;
+    private Group group;
+    
+    @BeforeEach
+    void setUp() {
+        users = new ArrayList<>();
+        for (int i = 0; i < 21; i++) {
+            User user = new User();
+            user.setUserId("user" + i);
+            user.setAccountName("User " + i);
+            user.setCode("1234");
+            users.add(userRepository.save(user));
+        }
+        
+        group = new Group();
+        group.setName("Trip");
+        group.setJoinCode("TRIP0001");
+        group.setCreator(users.get(0));
+        group.getMembers().addAll(users.subList(0, 20));
+        group = groupRepository.save(group);
+    }
+    
+    @AfterEach
+    void tearDown() {
+        auditLogRepository.deleteAll();
+        balanceLedgerRepository.deleteAll();
+        expenseRepository.deleteAll();
+        groupRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+    
+    @Test
+    void testStatementsDoNotGrowWithParticipants() {
+        // Create the ledger rows first, so both measured expenses only update them
+        expenseService.createExpense(request("20.00", 20), "user0");
+        
+        long two = statements(() -> expenseService.createExpense(request("20.00", 2), "user0"));
+        long twenty = statements(() -> expenseService.createExpense(request("20.00", 20), "user0"));
+        
+        assertEquals(two, twenty);
+        assertTrue(balanceService.verifyLedger(group.getId()));
+    }
+    
+    @Test
+    void testCreateExpensesInOneTransaction() {
+        List<ExpenseResponse> created = expenseService.createExpenses(
+                List.of(request("30.00", 3), request("10.00", 2), request("45.00", 20)), "user1");
+        
+        assertEquals(3, created.size());
+        assertEquals(3, expenseRepository.count());
+        // user0 owes user1 10.00 + 5.00 + 2.25
+        assertEquals(new BigDecimal("17.25"), balanceService.calculateBalanceBetweenUsers(group.getId(), users.get(0), users.get(1)));
+        assertTrue(balanceService.verifyLedger(group.getId()));
+    }
+    
+    @Test
+    void testBatchIsAllOrNothing() {
+        ExpenseRequest outsider = request("12.00", 2);
+        outsider.setParticipantUserIds(List.of("user0", "user20"));
+        
+        IllegalArgumentException error = assertThrows(IllegalArgumentException.class,
+                () -> expenseService.createExpenses(List.of(request("30.00", 3), outsider), "user0"));
+        
+        assertEquals("Expense 2: Participant user20 is not a member of this group", error.getMessage());
+        assertEquals(0, expenseRepository.count());
+        assertEquals(0, balanceLedgerRepository.count());
+    }
+    
+    @Test
+    void testUnknownParticipant() {
+        ExpenseRequest request = request("12.00", 2);
+        request.setParticipantUserIds(List.of("user0", "nobody"));
+        
+        IllegalArgumentException error = assertThrows(IllegalArgumentException.class,
+                () -> expenseService.createExpense(request, "user0"));
+        
+        assertEquals("User not found: nobody", error.getMessage());
+    }
+    
+    private ExpenseRequest request(String amount, int participants) {
+        List<String> participantUserIds = new ArrayList<>();
+        for (int i = 0; i < participants; i++) {
+            participantUserIds.add("user" + i);
+        }
+        return new ExpenseRequest("Dinner", new BigDecimal(amount), group.getId(), participantUserIds);
+    }
+    
+    private long statements(Runnable call) {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        call.run();
+        return statistics.getPrepareStatementCount();
+    }
+}
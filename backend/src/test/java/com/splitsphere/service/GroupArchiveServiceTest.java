@@ -0,0 +1,221 @@
+package com.splitsphere.service;
+
+import com.splitsphere.dto.*;
+import com.splitsphere.model.Group;
+import com.splitsphere.model.User;
+import com.splitsphere.repository.*;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.when;
+
+/**
+ * Runs without a test transaction so closing a group commits its archive like in production.
+ * H2 gives up waiting for a row lock after one second by default, too soon to show closing waits.
+ */
+@DataJpaTest(properties = "spring.datasource.url=jdbc:h2:mem:archives;DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=10000")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({GroupService.class, GroupArchiveService.class, ExpenseService.class, SettlementService.class,
+        TransactionService.class, BalanceService.class, BalanceCache.class, AuditService.class})
+@ImportAutoConfiguration(JacksonAutoConfiguration.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class GroupArchiveServiceTest {
+    
+    @Autowired
+    private GroupService groupService;
+    
+    @Autowired
+    private GroupArchiveService groupArchiveService;
+    
+    @Autowired
+    private ExpenseService expenseService;
+    
+    @Autowired
+    private SettlementService settlementService;
+    
+    @Autowired
+    private TransactionService transactionService;
+    
+    @Autowired
+    private BalanceService balanceService;
+    
+    @Autowired
+    private UserRepository userRepository;
+    
+    @Autowired
+    private GroupRepository groupRepository;
+    
+    @Autowired
+    private ExpenseRepository expenseRepository;
+    
+    @Autowired
+    private SettlementRepository settlementRepository;
+    
+    @Autowired
+    private BalanceLedgerRepository balanceLedgerRepository;
+    
+    @Autowired
+    private BalanceSnapshotRepository balanceSnapshotRepository;
+    
+    @Autowired
+    private ClosedGroupArchiveRepository closedGroupArchiveRepository;
+    
+    @Autowired
+    private AuditLogRepository auditLogRepository;
+    
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    
+    @MockBean
+    private UserService userService;
+    
+    private Group group;
+    
+    @BeforeEach
+    void setUp() {
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            User user = new User();
+            user.setUserId("user" + i);
+            user.setAccountName("User " + i);
+            user.setCode("1234");
+            users.add(userRepository.save(user));
+        }
+        when(userService.getUserByUserId(anyString())).thenAnswer(invocation ->
+                userRepository.findByUserId(invocation.getArgument(0)).orElseThrow());
+        
+        group = new Group();
+        group.setName("Trip");
+        group.setJoinCode("TRIP0001");
+        group.setCreator(users.get(0));
+        group.getMembers().addAll(users.subList(0, 4));
+        group = groupRepository.save(group);
+        
+        for (int i = 0; i < 12; i++) {
+            List<String> participants = List.of("user0", "user1", "user2", "user3").subList(0, 2 + i % 3);
+            expenseService.createExpense(new ExpenseRequest("Expense " + i, new BigDecimal(10 + i),
+                    group.getId(), participants), "user" + (i % 4));
+        }
+        SettlementRequest settlement = new SettlementRequest();
+        settlement.setGroupId(group.getId());
+        settlement.setPayeeUserId("user1");
+        settlement.setAmount(new BigDecimal("2.00"));
+        settlementService.createSettlement(settlement, "user0");
+    }
+    
+    @AfterEach
+    void tearDown() {
+        closedGroupArchiveRepository.deleteAll();
+        auditLogRepository.deleteAll();
+        balanceSnapshotRepository.deleteAll();
+        balanceLedgerRepository.deleteAll();
+        settlementRepository.deleteAll();
+        expenseRepository.deleteAll();
+        groupRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+    
+    @Test
+    void testClosedGroupIsServedFromItsArchive() {
+        assertTrue(groupArchiveService.find(group.getId()).isEmpty());
+        
+        List<BalanceResponse> balances = balanceService.getGroupBalances(group.getId(), "user1");
+        List<TransferResponse> transfers = balanceService.getSimplifiedTransfers(group.getId(), "user1");
+        List<TransactionResponse> transactions = transactionService.getGroupTransactions(group.getId());
+        groupService.closeGroup(group.getId(), "user0");
+        
+        Optional<GroupArchive> archive = groupArchiveService.find(group.getId());
+        assertTrue(archive.isPresent());
+        assertTrue(archive.get().getGroup().getClosed());
+        assertEquals(balances, groupArchiveService.balances(archive.get(), "user1"));
+        assertEquals(transfers, groupArchiveService.transfers(archive.get(), "user1"));
+        assertEquals(transactions, groupArchiveService.transactions(archive.get()));
+        assertEquals(expenseService.getGroupExpenses(group.getId()), archive.get().getExpenses());
+    }
+    
+    @Test
+    void testArchivedPagesMatchLivePages() {
+        groupService.closeGroup(group.getId(), "user0");
+        GroupArchive archive = groupArchiveService.find(group.getId()).orElseThrow();
+        
+        String liveCursor = null;
+        String archivedCursor = null;
+        do {
+            CursorPage<TransactionResponse> live = transactionService.getGroupTransactionsPage(group.getId(), liveCursor, 5);
+            CursorPage<TransactionResponse> archived = groupArchiveService.transactionsPage(archive, archivedCursor, 5);
+            assertEquals(live, archived);
+            liveCursor = live.getNextCursor();
+            archivedCursor = archived.getNextCursor();
+        } while (liveCursor != null);
+        
+        assertEquals(expenseService.getGroupExpensesPage(group.getId(), null, 4),
+                groupArchiveService.expensesPage(archive, null, 4));
+    }
+    
+    @Test
+    void testClosingWaitsForWritesInFlight() throws Exception {
+        CountDownLatch written = new CountDownLatch(1);
+        CountDownLatch commit = new CountDownLatch(1);
+        CompletableFuture<Void> writer = CompletableFuture.runAsync(() ->
+                new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+                    expenseService.createExpense(new ExpenseRequest("Late", new BigDecimal("9.00"),
+                            group.getId(), List.of("user0", "user1")), "user1");
+                    written.countDown();
+                    await(commit);
+                }));
+        assertTrue(written.await(5, TimeUnit.SECONDS));
+        
+        CompletableFuture<GroupResponse> closing = CompletableFuture.supplyAsync(() ->
+                groupService.closeGroup(group.getId(), "user0"));
+        Thread.sleep(1000);
+        assertFalse(closing.isDone());
+        
+        commit.countDown();
+        writer.get(5, TimeUnit.SECONDS);
+        closing.get(5, TimeUnit.SECONDS);
+        
+        GroupArchive archive = groupArchiveService.find(group.getId()).orElseThrow();
+        assertEquals(13, archive.getExpenses().size());
+        assertEquals(expenseService.getGroupExpenses(group.getId()), archive.getExpenses());
+    }
+    
+    @Test
+    void testNonMemberIsRejected() {
+        groupService.closeGroup(group.getId(), "user0");
+        GroupArchive archive = groupArchiveService.find(group.getId()).orElseThrow();
+        
+        IllegalArgumentException error = assertThrows(IllegalArgumentException.class,
+                () -> groupArchiveService.balances(archive, "user4"));
+        assertEquals("User is not a member of this group", error.getMessage());
+    }
+    
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package com.splitsphere.service;
+
+import com.splitsphere.dto.ExpenseRequest;
+import com.splitsphere.dto.ExpenseResponse;
+import com.splitsphere.dto.GroupRequest;
+import com.splitsphere.dto.GroupResponse;
+import com.splitsphere.dto.UserRegistrationRequest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+
+import java.math.BigDecimal;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Streams are read over real HTTP, so the async response and its security checks are covered too.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "spring.datasource.url=jdbc:h2:mem:group-events;DB_CLOSE_DELAY=-1",
+        "groups.events.max-connections=1"
+})
+class GroupEventBroadcasterTest {
+    
+    @Autowired
+    private UserService userService;
+    
+    @Autowired
+    private GroupService groupService;
+    
+    @Autowired
+    private ExpenseService expenseService;
+    
+    @Autowired
+    private GroupEventBroadcaster groupEventBroadcaster;
+    
+    @LocalServerPort
+    private int port;
+    
+    private final HttpClient httpClient = HttpClient.newHttpClient();
+    private final ExecutorService reader = Executors.newSingleThreadExecutor();
+    private String aliceToken;
+    private String bobToken;
+    private GroupResponse group;
+    
+    @BeforeEach
+    void setUp() {
+        String suffix = Long.toString(System.nanoTime());
+        aliceToken = userService.registerUser(new UserRegistrationRequest("Alice", "alice" + suffix, "1234")).getToken();
+        bobToken = userService.registerUser(new UserRegistrationRequest("Bob", "bob" + suffix, "1234")).getToken();
+        group = groupService.createGroup(new GroupRequest("Trip"), "alice" + suffix);
+        groupService.joinGroup(group.getJoinCode(), "bob" + suffix);
+    }
+    
+    @Test
+    void testCommittedExpenseIsPushedToMembers() throws Exception {
+        HttpResponse<Stream<String>> response = open(bobToken);
+        assertEquals(200, response.statusCode());
+        assertTrue(response.headers().firstValue("Content-Type").orElseThrow().startsWith("text/event-stream"));
+        Iterator<String> lines = response.body().iterator();
+        assertEquals(":connected", nextLine(lines));
+        
+        ExpenseResponse expense = expenseService.createExpense(new ExpenseRequest("Dinner", new BigDecimal("20.00"),
+                group.getId(), List.of(group.getMembers().get(0).getUserId())), group.getMembers().get(0).getUserId());
+        
+        String line;
+        do {
+            line = nextLine(lines);
+        } while (line.isEmpty() || line.startsWith(":"));
+        assertEquals("event:expense", line);
+        String data = nextLine(lines);
+        assertTrue(data.contains("\"groupId\":" + group.getId()), data);
+        assertTrue(data.contains("\"id\":" + expense.getId()), data);
+        
+        // The only slot of this instance is taken
+        assertEquals(503, open(aliceToken).statusCode());
+        
+        response.body().close();
+        reader.shutdownNow();
+    }
+    
+    @Test
+    void testNonMembersAreRejected() throws Exception {
+        String carolToken = userService.registerUser(
+                new UserRegistrationRequest("Carol", "carol" + System.nanoTime(), "1234")).getToken();
+        
+        int open = groupEventBroadcaster.connectionCount();
+        
+        assertEquals(400, open(carolToken).statusCode());
+        assertEquals(open, groupEventBroadcaster.connectionCount());
+    }
+    
+    private HttpResponse<Stream<String>> open(String token) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/groups/" + group.getId() + "/events"))
+                .header("Authorization", "Bearer " + token)
+                .header("Accept", "text/event-stream, application/json")
+                .build();
+        return httpClient.send(request, HttpResponse.BodyHandlers.ofLines());
+    }
+    
+    private String nextLine(Iterator<String> lines) throws Exception {
+        Future<String> line = reader.submit(lines::next);
+        return line.get(Duration.ofSeconds(10).toMillis(), TimeUnit.MILLISECONDS);
+    }
+}
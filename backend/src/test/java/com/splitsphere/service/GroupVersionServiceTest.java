@@ -0,0 +1,130 @@
+package com.splitsphere.service;
+
+import com.splitsphere.dto.*;
+import com.splitsphere.model.GroupChange;
+import com.splitsphere.repository.GroupChangeRepository;
+import com.splitsphere.repository.GroupRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:group-versions;DB_CLOSE_DELAY=-1")
+@AutoConfigureMockMvc
+class GroupVersionServiceTest {
+    
+    @Autowired
+    private MockMvc mockMvc;
+    
+    @Autowired
+    private UserService userService;
+    
+    @Autowired
+    private GroupService groupService;
+    
+    @Autowired
+    private ExpenseService expenseService;
+    
+    @Autowired
+    private GroupRepository groupRepository;
+    
+    @Autowired
+    private GroupChangeRepository groupChangeRepository;
+    
+    private String userId;
+    private String token;
+    private GroupResponse group;
+    
+    @BeforeEach
+    void setUp() {
+        userId = "alice" + System.nanoTime();
+        token = userService.registerUser(new UserRegistrationRequest("Alice", userId, "1234")).getToken();
+        group = groupService.createGroup(new GroupRequest("Trip"), userId);
+    }
+    
+    @Test
+    void testUnchangedGroupIsNotModified() throws Exception {
+        for (String path : List.of("/api/groups/", "/api/balances/group/", "/api/expenses/group/",
+                "/api/settlements/group/", "/api/transactions/group/")) {
+            String etag = mockMvc.perform(get(path + group.getId()).header("Authorization", "Bearer " + token))
+                    .andExpect(status().isOk())
+                    .andReturn().getResponse().getHeader("ETag");
+            assertNotNull(etag, path);
+            
+            mockMvc.perform(get(path + group.getId())
+                            .header("Authorization", "Bearer " + token)
+                            .header("If-None-Match", etag))
+                    .andExpect(status().isNotModified());
+        }
+    }
+    
+    @Test
+    void testWritesChangeTheETag() throws Exception {
+        String etag = mockMvc.perform(get("/api/balances/group/" + group.getId()).header("Authorization", "Bearer " + token))
+                .andReturn().getResponse().getHeader("ETag");
+        
+        expenseService.createExpense(new ExpenseRequest("Dinner", new BigDecimal("10.00"), group.getId(), List.of(userId)), userId);
+        assertEquals(1L, groupRepository.findVersionById(group.getId()).orElseThrow());
+        
+        String changed = mockMvc.perform(get("/api/balances/group/" + group.getId())
+                        .header("Authorization", "Bearer " + token)
+                        .header("If-None-Match", etag))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader("ETag");
+        assertNotEquals(etag, changed);
+        
+        groupService.closeGroup(group.getId(), userId);
+        assertEquals(2L, groupRepository.findVersionById(group.getId()).orElseThrow());
+        mockMvc.perform(get("/api/balances/group/" + group.getId())
+                        .header("Authorization", "Bearer " + token)
+                        .header("If-None-Match", changed))
+                .andExpect(status().isOk());
+    }
+    
+    @Test
+    void testChangesSinceVersion() throws Exception {
+        GroupChanges initial = groupService.getGroupChanges(group.getId(), userId, 0);
+        assertEquals(0L, initial.getVersion());
+        assertTrue(initial.getExpenses().isEmpty());
+        
+        ExpenseResponse first = expenseService.createExpense(
+                new ExpenseRequest("Dinner", new BigDecimal("10.00"), group.getId(), List.of(userId)), userId);
+        List<ExpenseResponse> batch = expenseService.createExpenses(List.of(
+                new ExpenseRequest("Taxi", new BigDecimal("5.00"), group.getId(), List.of(userId)),
+                new ExpenseRequest("Museum", new BigDecimal("8.00"), group.getId(), List.of(userId))), userId);
+        
+        GroupChanges all = groupService.getGroupChanges(group.getId(), userId, 0);
+        assertEquals(2L, all.getVersion());
+        assertEquals(3, all.getExpenses().size());
+        assertNull(all.getGroup());
+        
+        // Only what came after the first expense, and then nothing
+        GroupChanges delta = groupService.getGroupChanges(group.getId(), userId, 1);
+        assertEquals(batch.stream().map(ExpenseResponse::getId).sorted().toList(),
+                delta.getExpenses().stream().map(ExpenseResponse::getId).sorted().toList());
+        assertTrue(groupService.getGroupChanges(group.getId(), userId, 2).getExpenses().isEmpty());
+        
+        // A later removal of the first expense supersedes its addition
+        groupService.closeGroup(group.getId(), userId);
+        groupChangeRepository.save(new GroupChange(null, group.getId(), 3, GroupChange.EXPENSE, first.getId(), true));
+        mockMvc.perform(get("/api/groups/" + group.getId() + "/changes")
+                        .param("since", "0")
+                        .header("Authorization", "Bearer " + token))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.version").value(3))
+                .andExpect(jsonPath("$.group.closed").value(true))
+                .andExpect(jsonPath("$.expenses.length()").value(2))
+                .andExpect(jsonPath("$.deleted[0].type").value("expense"))
+                .andExpect(jsonPath("$.deleted[0].id").value(first.getId()));
+    }
+}
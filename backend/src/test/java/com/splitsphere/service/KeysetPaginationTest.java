@@ -0,0 +1,209 @@
+package com.splitsphere.service;
+
+import com.splitsphere.dto.CursorPage;
+import com.splitsphere.dto.ExpenseResponse;
+import com.splitsphere.dto.TransactionResponse;
+import com.splitsphere.model.Expense;
+import com.splitsphere.model.Group;
+import com.splitsphere.model.Settlement;
+import com.splitsphere.model.User;
+import com.splitsphere.repository.ExpenseRepository;
+import com.splitsphere.repository.GroupRepository;
+import com.splitsphere.repository.SettlementRepository;
+import com.splitsphere.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Walking every page must return each row exactly once and in feed order, including rows
+ * that share a timestamp across expenses and settlements.
+ */
+@DataJpaTest
+@Import({ExpenseService.class, TransactionService.class, BalanceService.class, BalanceCache.class, AuditService.class})
+class KeysetPaginationTest {
+    
+    @Autowired
+    private ExpenseService expenseService;
+    
+    @Autowired
+    private TransactionService transactionService;
+    
+    @Autowired
+    private UserRepository userRepository;
+    
+    @Autowired
+    private GroupRepository groupRepository;
+    
+    @Autowired
+    private ExpenseRepository expenseRepository;
+    
+    @Autowired
+    private SettlementRepository settlementRepository;
+    
+    @Autowired
+    private TestEntityManager entityManager;
+    
+    @MockBean
+    private UserService userService;
+    
+    private Group group;
+    
+    @BeforeEach
+    void setUp() {
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            User user = new User();
+            user.setUserId("user" + i);
+            user.setAccountName("User " + i);
+            user.setCode("1234");
+            users.add(userRepository.save(user));
+        }
+        
+        group = new Group();
+        group.setName("Trip");
+        group.setJoinCode("TRIP0001");
+        group.setCreator(users.get(0));
+        group.getMembers().addAll(users);
+        group = groupRepository.save(group);
+        
+        for (int i = 0; i < 23; i++) {
+            Expense expense = new Expense();
+            expense.setDescription("Expense " + i);
+            expense.setAmount(new BigDecimal("9.00"));
+            expense.setPayer(users.get(i % 3));
+            expense.setGroup(group);
+            expense.setParticipants(new HashSet<>(users));
+            expenseRepository.save(expense);
+        }
+        for (int i = 0; i < 11; i++) {
+            Settlement settlement = new Settlement();
+            settlement.setPayer(users.get(1));
+            settlement.setPayee(users.get(0));
+            settlement.setGroup(group);
+            settlement.setAmount(new BigDecimal("1.00"));
+            settlementRepository.save(settlement);
+        }
+        entityManager.flush();
+        
+        // Spread rows over four instants so pages have to break inside runs of equal timestamps
+        LocalDateTime base = LocalDateTime.of(2024, 1, 1, 12, 0);
+        entityManager.getEntityManager()
+                .createQuery("UPDATE Expense e SET e.createdAt = :base")
+                .setParameter("base", base)
+                .executeUpdate();
+        entityManager.getEntityManager()
+                .createQuery("UPDATE Expense e SET e.createdAt = :later WHERE MOD(e.id, 3) = 0")
+                .setParameter("later", base.plusMinutes(1))
+                .executeUpdate();
+        entityManager.getEntityManager()
+                .createQuery("UPDATE Settlement s SET s.createdAt = :base")
+                .setParameter("base", base)
+                .executeUpdate();
+        entityManager.getEntityManager()
+                .createQuery("UPDATE Settlement s SET s.createdAt = :later WHERE MOD(s.id, 2) = 0")
+                .setParameter("later", base.plusMinutes(2))
+                .executeUpdate();
+        entityManager.clear();
+    }
+    
+    @Test
+    void testExpensePagesCoverEveryRowOnce() {
+        List<ExpenseResponse> all = new ArrayList<>();
+        String cursor = null;
+        int pages = 0;
+        do {
+            CursorPage<ExpenseResponse> page = expenseService.getGroupExpensesPage(group.getId(), cursor, 5);
+            assertTrue(page.getItems().size() <= 5);
+            all.addAll(page.getItems());
+            cursor = page.getNextCursor();
+            pages++;
+        } while (cursor != null);
+        
+        assertEquals(5, pages);
+        assertEquals(23, all.size());
+        assertEquals(23, all.stream().map(ExpenseResponse::getId).distinct().count());
+        for (int i = 1; i < all.size(); i++) {
+            ExpenseResponse previous = all.get(i - 1);
+            ExpenseResponse current = all.get(i);
+            assertTrue(previous.getCreatedAt().isAfter(current.getCreatedAt())
+                    || (previous.getCreatedAt().equals(current.getCreatedAt()) && previous.getId() > current.getId()));
+        }
+        assertEquals(3, all.get(0).getParticipantNames().size());
+    }
+    
+    @Test
+    void testTransactionPagesMergeBothFeeds() {
+        for (int limit : new int[]{1, 4, 7, 34, 200}) {
+            List<TransactionResponse> all = new ArrayList<>();
+            String cursor = null;
+            do {
+                CursorPage<TransactionResponse> page = transactionService.getGroupTransactionsPage(group.getId(), cursor, limit);
+                all.addAll(page.getItems());
+                cursor = page.getNextCursor();
+            } while (cursor != null);
+            
+            assertEquals(34, all.size());
+            Set<String> seen = new HashSet<>();
+            for (TransactionResponse transaction : all) {
+                assertTrue(seen.add(transaction.getType() + transaction.getId()));
+            }
+            for (int i = 1; i < all.size(); i++) {
+                assertFalse(all.get(i - 1).getCreatedAt().isBefore(all.get(i).getCreatedAt()));
+            }
+        }
+    }
+    
+    @Test
+    void testFullFeedReadsInChunksInFeedOrder() {
+        // Enough older expenses that the expense side spans several chunks
+        Group managed = groupRepository.findById(group.getId()).orElseThrow();
+        for (int i = 0; i < 2 * PageCursor.MAX_LIMIT + 13; i++) {
+            Expense expense = new Expense();
+            expense.setDescription("Old expense " + i);
+            expense.setAmount(new BigDecimal("3.00"));
+            expense.setPayer(managed.getCreator());
+            expense.setGroup(managed);
+            expense.setParticipants(new HashSet<>(managed.getMembers()));
+            expenseRepository.save(expense);
+        }
+        entityManager.flush();
+        entityManager.getEntityManager()
+                .createQuery("UPDATE Expense e SET e.createdAt = :earlier WHERE e.description LIKE 'Old%'")
+                .setParameter("earlier", LocalDateTime.of(2023, 6, 1, 0, 0))
+                .executeUpdate();
+        entityManager.clear();
+        
+        List<TransactionResponse> paged = new ArrayList<>();
+        String cursor = null;
+        do {
+            CursorPage<TransactionResponse> page = transactionService.getGroupTransactionsPage(group.getId(), cursor, 50);
+            paged.addAll(page.getItems());
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+        
+        List<TransactionResponse> all = transactionService.getGroupTransactions(group.getId());
+        assertEquals(34 + 2 * PageCursor.MAX_LIMIT + 13, all.size());
+        assertEquals(paged, all);
+    }
+    
+    @Test
+    void testInvalidCursorAndLimit() {
+        assertThrows(IllegalArgumentException.class,
+                () -> transactionService.getGroupTransactionsPage(group.getId(), "not-a-cursor", 10));
+        assertThrows(IllegalArgumentException.class,
+                () -> expenseService.getGroupExpensesPage(group.getId(), null, 0));
+        assertThrows(IllegalArgumentException.class,
+                () -> expenseService.getGroupExpensesPage(group.getId(), null, PageCursor.MAX_LIMIT + 1));
+    }
+}
@@ -0,0 +1,154 @@
+package com.splitsphere.service;
+
+import com.splitsphere.model.Expense;
+import com.splitsphere.model.Group;
+import com.splitsphere.model.Settlement;
+import com.splitsphere.model.User;
+import com.splitsphere.repository.ExpenseRepository;
+import com.splitsphere.repository.GroupRepository;
+import com.splitsphere.repository.SettlementRepository;
+import com.splitsphere.repository.UserRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+
+import java.math.BigDecimal;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.when;
+
+/**
+ * Listing endpoints must load with a fixed number of SQL statements, however many rows,
+ * members and participants the group has.
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@Import({ExpenseService.class, TransactionService.class, GroupService.class, SettlementService.class,
+        GroupArchiveService.class, BalanceService.class, BalanceCache.class, AuditService.class})
+@ImportAutoConfiguration(JacksonAutoConfiguration.class)
+class ListingQueryCountTest {
+    
+    @Autowired
+    private ExpenseService expenseService;
+    
+    @Autowired
+    private TransactionService transactionService;
+    
+    @Autowired
+    private GroupService groupService;
+    
+    @Autowired
+    private UserRepository userRepository;
+    
+    @Autowired
+    private GroupRepository groupRepository;
+    
+    @Autowired
+    private ExpenseRepository expenseRepository;
+    
+    @Autowired
+    private SettlementRepository settlementRepository;
+    
+    @Autowired
+    private TestEntityManager entityManager;
+    
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    
+    @MockBean
+    private UserService userService;
+    
+    private List<User> users;
+    private Group group;
+    
+    @BeforeEach
+    void setUp() {
+        Random random = new Random(3);
+        users = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            User user = new User();
+            user.setUserId("user" + i);
+            user.setAccountName("User " + i);
+            user.setCode("1234");
+            users.add(userRepository.save(user));
+        }
+        
+        for (int g = 0; g < 5; g++) {
+            Group other = new Group();
+            other.setName("Group " + g);
+            other.setJoinCode("GROUP00" + g);
+            other.setCreator(users.get(g));
+            other.getMembers().addAll(users);
+            other = groupRepository.save(other);
+            if (g == 0) {
+                group = other;
+            }
+        }
+        
+        for (int i = 0; i < 50; i++) {
+            Set<User> participants = new HashSet<>();
+            while (participants.size() < 4) {
+                participants.add(users.get(random.nextInt(users.size())));
+            }
+            Expense expense = new Expense();
+            expense.setDescription("Expense " + i);
+            expense.setAmount(new BigDecimal("12.00"));
+            expense.setPayer(users.get(random.nextInt(users.size())));
+            expense.setGroup(group);
+            expense.setParticipants(participants);
+            expenseRepository.save(expense);
+        }
+        
+        for (int i = 0; i < 10; i++) {
+            Settlement settlement = new Settlement();
+            settlement.setPayer(users.get(i));
+            settlement.setPayee(users.get(i + 10));
+            settlement.setGroup(group);
+            settlement.setAmount(new BigDecimal("1.00"));
+            settlementRepository.save(settlement);
+        }
+        
+        entityManager.flush();
+        entityManager.clear();
+    }
+    
+    @Test
+    void testGroupExpenses() {
+        assertEquals(2, statements(() -> assertEquals(50, expenseService.getGroupExpenses(group.getId()).size())));
+    }
+    
+    @Test
+    void testGroupTransactions() {
+        // Group, expense chunk, its participants in one batch, settlement chunk
+        assertEquals(4, statements(() -> assertEquals(60, transactionService.getGroupTransactions(group.getId()).size())));
+    }
+    
+    @Test
+    void testUserGroups() {
+        when(userService.getUserByUserId("user0")).thenReturn(users.get(0));
+        
+        assertEquals(1, statements(() -> groupService.getUserGroups("user0")
+                .forEach(response -> assertEquals(20, response.getMembers().size()))));
+    }
+    
+    @Test
+    void testGroup() {
+        assertEquals(1, statements(() -> assertEquals(20, groupService.getGroup(group.getId()).getMembers().size())));
+    }
+    
+    private long statements(Runnable call) {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        call.run();
+        return statistics.getPrepareStatementCount();
+    }
+}
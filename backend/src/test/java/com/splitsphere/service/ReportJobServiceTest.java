@@ -0,0 +1,166 @@
+package com.splitsphere.service;
+
+import com.splitsphere.dto.*;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:report-jobs;DB_CLOSE_DELAY=-1",
+        "reports.jobs.max-per-user=1"
+})
+@AutoConfigureMockMvc
+class ReportJobServiceTest {
+    
+    @Autowired
+    private MockMvc mockMvc;
+    
+    @Autowired
+    private ReportJobService reportJobService;
+    
+    @SpyBean
+    private ReportService reportService;
+    
+    @Autowired
+    private UserService userService;
+    
+    @Autowired
+    private GroupService groupService;
+    
+    @Autowired
+    private ExpenseService expenseService;
+    
+    private String alice;
+    private String bob;
+    private String aliceToken;
+    private GroupResponse group;
+    
+    @BeforeEach
+    void setUp() {
+        String suffix = Long.toString(System.nanoTime());
+        alice = "alice" + suffix;
+        bob = "bob" + suffix;
+        aliceToken = userService.registerUser(new UserRegistrationRequest("Alice", alice, "1234")).getToken();
+        userService.registerUser(new UserRegistrationRequest("Bob", bob, "1234"));
+        group = groupService.createGroup(new GroupRequest("Trip"), alice);
+        groupService.joinGroup(group.getJoinCode(), bob);
+        expenseService.createExpense(new ExpenseRequest("Dinner", new BigDecimal("30.00"), group.getId(), List.of(alice, bob)), alice);
+    }
+    
+    @Test
+    void testNoTransactionIsOpenWhileTheReportIsWritten() throws Exception {
+        boolean[] writtenInTransaction = {false};
+        int[] written = {0};
+        OutputStream out = new OutputStream() {
+            @Override
+            public void write(int b) {
+                writtenInTransaction[0] |= TransactionSynchronizationManager.isActualTransactionActive();
+                written[0]++;
+            }
+        };
+        
+        reportService.writePdfReport(group.getId(), out);
+        
+        assertTrue(written[0] > 0);
+        assertFalse(writtenInTransaction[0]);
+    }
+    
+    @Test
+    void testStreamedReportIsForMembersOnly() throws Exception {
+        MvcResult streaming = mockMvc.perform(get("/api/reports/group/" + group.getId() + "/pdf")
+                        .header("Authorization", "Bearer " + aliceToken))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(streaming))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Type", ReportJobService.Format.PDF.getContentType()))
+                .andExpect(result -> assertTrue(result.getResponse().getContentAsByteArray().length > 0));
+        
+        String carol = "carol" + System.nanoTime();
+        String carolToken = userService.registerUser(new UserRegistrationRequest("Carol", carol, "1234")).getToken();
+        mockMvc.perform(get("/api/reports/group/" + group.getId() + "/excel").header("Authorization", "Bearer " + carolToken))
+                .andExpect(status().isBadRequest());
+        verify(reportService, never()).writeExcelReport(eq(group.getId()), any());
+    }
+    
+    @Test
+    void testUnchangedGroupIsServedFromCache() throws Exception {
+        mockMvc.perform(post("/api/reports/group/" + group.getId() + "/excel").header("Authorization", "Bearer " + aliceToken))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.format").value("excel"));
+        ReportJobResponse first = reportJobService.submit(group.getId(), "excel", alice);
+        awaitDone(first.getId(), alice);
+        
+        mockMvc.perform(get("/api/reports/jobs/" + first.getId() + "/download").header("Authorization", "Bearer " + aliceToken))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Type", ReportJobService.Format.EXCEL.getContentType()))
+                .andExpect(result -> assertTrue(result.getResponse().getContentAsByteArray().length > 0));
+        
+        // Same version: done right away, from the same rendering
+        assertEquals(ReportJobService.DONE, reportJobService.submit(group.getId(), "excel", bob).getStatus());
+        verify(reportService, times(1)).writeExcelReport(eq(group.getId()), any());
+        
+        expenseService.createExpense(new ExpenseRequest("Taxi", new BigDecimal("12.00"), group.getId(), List.of(alice, bob)), bob);
+        awaitDone(reportJobService.submit(group.getId(), "excel", alice).getId(), alice);
+        verify(reportService, times(2)).writeExcelReport(eq(group.getId()), any());
+        
+        // Jobs are private to whoever submitted them
+        assertThrows(IllegalArgumentException.class, () -> reportJobService.getJob(first.getId(), bob));
+    }
+    
+    @Test
+    void testUsersAreLimitedToTheirRunningReports() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            release.await();
+            return invocation.callRealMethod();
+        }).when(reportService).writePdfReport(eq(group.getId()), any());
+        
+        ReportJobResponse pdf = reportJobService.submit(group.getId(), "pdf", alice);
+        assertEquals(ReportJobService.PENDING, pdf.getStatus());
+        mockMvc.perform(get("/api/reports/jobs/" + pdf.getId() + "/download").header("Authorization", "Bearer " + aliceToken))
+                .andExpect(status().isConflict());
+        mockMvc.perform(post("/api/reports/group/" + group.getId() + "/excel").header("Authorization", "Bearer " + aliceToken))
+                .andExpect(status().isTooManyRequests());
+        // Other users have their own allowance
+        ReportJobResponse bobs = reportJobService.submit(group.getId(), "excel", bob);
+        
+        release.countDown();
+        awaitDone(pdf.getId(), alice);
+        awaitDone(bobs.getId(), bob);
+        assertEquals(0, reportJobService.runningCount(alice));
+        assertDoesNotThrow(() -> reportJobService.submit(group.getId(), "excel", alice));
+    }
+    
+    private void awaitDone(String jobId, String userId) throws InterruptedException {
+        for (int i = 0; i < 200; i++) {
+            String status = reportJobService.getJob(jobId, userId).getStatus();
+            if (!ReportJobService.PENDING.equals(status)) {
+                assertEquals(ReportJobService.DONE, status);
+                return;
+            }
+            Thread.sleep(50);
+        }
+        fail("Report job " + jobId + " didn't finish");
+    }
+}
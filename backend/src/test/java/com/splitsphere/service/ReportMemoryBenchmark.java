@@ -0,0 +1,191 @@
+package com.splitsphere.service;
+
+import com.itextpdf.kernel.pdf.PdfDocument;
+import com.itextpdf.kernel.pdf.PdfWriter;
+import com.itextpdf.layout.Document;
+import com.itextpdf.layout.element.Cell;
+import com.itextpdf.layout.element.Paragraph;
+import com.itextpdf.layout.element.Table;
+import com.splitsphere.dto.TransactionResponse;
+import com.sun.management.GarbageCollectionNotificationInfo;
+import com.sun.management.GcInfo;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+
+import javax.management.NotificationEmitter;
+import javax.management.openmbean.CompositeData;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryUsage;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Peak live heap and time to first byte of the Excel and PDF reports, built the way ReportService
+ * used to (the whole transaction list, a complete workbook or table, a byte array) and streamed
+ * by {@link ReportService#writeExcel} and {@link ReportService#writePdf}, fed the same rows the
+ * way the transaction feed hands them out. Live heap is what each garbage collection during the
+ * run left behind, so garbage doesn't count. Not part of the test suite; run with:
+ * <pre>
+ * mvn test-compile exec:exec -Dexec.executable=java -Dexec.classpathScope=test \
+ *     -Dexec.args="-Xmx2g -cp %classpath com.splitsphere.service.ReportMemoryBenchmark 10000 30000"
+ * </pre>
+ */
+public class ReportMemoryBenchmark {
+    
+    private static final AtomicLong peakLive = new AtomicLong();
+    
+    public static void main(String[] args) throws Exception {
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            ((NotificationEmitter) collector).addNotificationListener((notification, handback) -> {
+                if (GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION.equals(notification.getType())) {
+                    GcInfo info = GarbageCollectionNotificationInfo.from((CompositeData) notification.getUserData()).getGcInfo();
+                    long live = info.getMemoryUsageAfterGc().values().stream().mapToLong(MemoryUsage::getUsed).sum();
+                    peakLive.accumulateAndGet(live, Math::max);
+                }
+            }, null, null);
+        }
+        
+        String[] rowCounts = args.length > 0 ? args : new String[]{"10000", "30000"};
+        // Warm up every path
+        CountingOutputStream warmUp = new CountingOutputStream();
+        excelInMemory(1_000, warmUp);
+        ReportService.writeExcel("Benchmark", transactions(1_000), warmUp);
+        pdfInMemory(1_000, warmUp);
+        ReportService.writePdf("Benchmark", transactions(1_000), warmUp);
+        
+        for (String rowCount : rowCounts) {
+            int rows = Integer.parseInt(rowCount);
+            measure("Excel in memory, " + rows + " rows", out -> excelInMemory(rows, out));
+            measure("Excel streaming, " + rows + " rows", out -> ReportService.writeExcel("Benchmark", transactions(rows), out));
+            measure("PDF in memory, " + rows + " rows", out -> pdfInMemory(rows, out));
+            measure("PDF streaming, " + rows + " rows", out -> ReportService.writePdf("Benchmark", transactions(rows), out));
+        }
+    }
+    
+    private static void measure(String name, Run run) throws Exception {
+        System.gc();
+        Thread.sleep(100);
+        long baseline = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+        peakLive.set(baseline);
+        
+        CountingOutputStream out = new CountingOutputStream();
+        long start = System.nanoTime();
+        run.run(out);
+        long millis = (System.nanoTime() - start) / 1_000_000;
+        // Let notifications of collections during the run arrive
+        Thread.sleep(100);
+        
+        System.out.printf("%-32s peak live heap %,6d MB above baseline  first byte %,6d ms  total %,6d ms  %,11d bytes%n",
+                name, (peakLive.get() - baseline) >> 20, (out.firstWrite - start) / 1_000_000, millis, out.count);
+    }
+    
+    private static void excelInMemory(int rows, OutputStream target) throws IOException {
+        List<TransactionResponse> transactions = new ArrayList<>();
+        transactions(rows).accept(transactions::add);
+        
+        try (Workbook workbook = new XSSFWorkbook(); ByteArrayOutputStream out = new ByteArrayOutputStream()) {
+            Sheet sheet = workbook.createSheet("Transactions");
+            sheet.createRow(0).createCell(0).setCellValue("Transaction Report: Benchmark");
+            Row headerRow = sheet.createRow(2);
+            String[] columns = {"Date", "Type", "Description", "Amount", "Payer", "Details"};
+            for (int i = 0; i < columns.length; i++) {
+                headerRow.createCell(i).setCellValue(columns[i]);
+            }
+            int rowNum = 3;
+            for (TransactionResponse transaction : transactions) {
+                Row row = sheet.createRow(rowNum++);
+                row.createCell(0).setCellValue(transaction.getCreatedAt().toString());
+                row.createCell(1).setCellValue(transaction.getType());
+                row.createCell(2).setCellValue(transaction.getDescription());
+                row.createCell(3).setCellValue(transaction.getAmount().doubleValue());
+                row.createCell(4).setCellValue(transaction.getPayerName());
+                row.createCell(5).setCellValue("Split: " + transaction.getParticipantNames());
+            }
+            for (int i = 0; i < columns.length; i++) {
+                sheet.autoSizeColumn(i);
+            }
+            workbook.write(out);
+            target.write(out.toByteArray());
+        }
+    }
+    
+    private static void pdfInMemory(int rows, OutputStream target) throws IOException {
+        List<TransactionResponse> transactions = new ArrayList<>();
+        transactions(rows).accept(transactions::add);
+        
+        try (ByteArrayOutputStream out = new ByteArrayOutputStream()) {
+            Document document = new Document(new PdfDocument(new PdfWriter(out)));
+            document.add(new Paragraph("Transaction Report"));
+            Table table = new Table(new float[]{15, 10, 25, 10, 15, 25});
+            table.setWidth(550);
+            for (String column : new String[]{"Date", "Type", "Description", "Amount", "Payer", "Details"}) {
+                table.addHeaderCell(new Cell().add(new Paragraph(column).setBold()));
+            }
+            for (TransactionResponse transaction : transactions) {
+                table.addCell(new Cell().add(new Paragraph(transaction.getCreatedAt().toString())));
+                table.addCell(new Cell().add(new Paragraph(transaction.getType())));
+                table.addCell(new Cell().add(new Paragraph(transaction.getDescription())));
+                table.addCell(new Cell().add(new Paragraph("$" + transaction.getAmount())));
+                table.addCell(new Cell().add(new Paragraph(transaction.getPayerName())));
+                table.addCell(new Cell().add(new Paragraph("Split: " + transaction.getParticipantNames())));
+            }
+            document.add(table);
+            document.close();
+            target.write(out.toByteArray());
+        }
+    }
+    
+    private static Consumer<Consumer<TransactionResponse>> transactions(int rows) {
+        LocalDateTime now = LocalDateTime.now();
+        return action -> {
+            for (int i = 0; i < rows; i++) {
+                TransactionResponse transaction = new TransactionResponse();
+                transaction.setId((long) i);
+                transaction.setType("EXPENSE");
+                transaction.setDescription("Expense number " + i);
+                transaction.setAmount(new BigDecimal("42.00"));
+                transaction.setPayerName("Member " + i % 10);
+                transaction.setParticipantNames("Member 0, Member 1, Member 2, Member 3");
+                transaction.setPerPersonAmount(new BigDecimal("10.50"));
+                transaction.setCreatedAt(now.minusSeconds(i));
+                action.accept(transaction);
+            }
+        };
+    }
+    
+    private interface Run {
+        void run(OutputStream out) throws Exception;
+    }
+    
+    /**
+     * Stands in for the servlet output stream.
+     */
+    private static final class CountingOutputStream extends OutputStream {
+        
+        private long count;
+        private long firstWrite;
+        
+        @Override
+        public void write(int b) {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+        
+        @Override
+        public void write(byte[] b, int off, int len) {
+            if (count == 0 && len > 0) {
+                firstWrite = System.nanoTime();
+            }
+            count += len;
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.splitsphere.service;
+
+import com.itextpdf.kernel.pdf.PdfDocument;
+import com.itextpdf.kernel.pdf.PdfReader;
+import com.itextpdf.kernel.pdf.canvas.parser.PdfTextExtractor;
+import com.splitsphere.dto.TransactionResponse;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReportServiceTest {
+    
+    @Test
+    void testExcelReportIsStreamedBeyondTheRowWindow() throws Exception {
+        int count = ReportService.EXCEL_ROW_WINDOW * 3 + 7;
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ReportService.writeExcel("Trip", transactions(count), out);
+        
+        try (Workbook workbook = new XSSFWorkbook(new ByteArrayInputStream(out.toByteArray()))) {
+            Sheet sheet = workbook.getSheet("Transactions");
+            assertEquals("Transaction Report: Trip", sheet.getRow(0).getCell(0).getStringCellValue());
+            assertEquals("Details", sheet.getRow(2).getCell(5).getStringCellValue());
+            assertEquals(3 + count - 1, sheet.getLastRowNum());
+            
+            // Rows long flushed to the temp file are intact
+            assertEquals("Expense 0", sheet.getRow(3).getCell(2).getStringCellValue());
+            assertEquals(12.5, sheet.getRow(3).getCell(3).getNumericCellValue());
+            assertEquals("Paid to: Bob - thanks", sheet.getRow(4).getCell(5).getStringCellValue());
+            assertEquals("Expense " + (count - 1), sheet.getRow(3 + count - 1).getCell(2).getStringCellValue());
+            
+            // Sized to the longest value: "Expense 306" plus padding, and "Split: Alice, Bob ($6.25 each)"
+            assertEquals(13 * 256, sheet.getColumnWidth(2));
+            assertEquals(32 * 256, sheet.getColumnWidth(5));
+        }
+    }
+    
+    @Test
+    void testPdfPagesAreWrittenWhileRowsAreRead() throws Exception {
+        int count = ReportService.PDF_FLUSH_ROWS * 10;
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        int[] writtenBeforeLastRow = {0};
+        Consumer<Consumer<TransactionResponse>> rows = transactions(count);
+        ReportService.writePdf("Trip", action -> rows.accept(transaction -> {
+            if (transaction.getId() == count - 1) {
+                writtenBeforeLastRow[0] = out.size();
+            }
+            action.accept(transaction);
+        }), out);
+        
+        assertTrue(writtenBeforeLastRow[0] > 0);
+        try (PdfDocument pdf = new PdfDocument(new PdfReader(new ByteArrayInputStream(out.toByteArray())))) {
+            assertTrue(pdf.getNumberOfPages() > 1);
+            String firstPage = PdfTextExtractor.getTextFromPage(pdf.getFirstPage());
+            assertTrue(firstPage.contains("Group: Trip"), firstPage);
+            assertTrue(firstPage.contains("Expense 0"), firstPage);
+            String lastPage = PdfTextExtractor.getTextFromPage(pdf.getLastPage());
+            // The header is repeated on every page
+            assertTrue(lastPage.contains("Description"), lastPage);
+            assertTrue(lastPage.contains("Payment " + (count - 1)), lastPage);
+        }
+    }
+    
+    private static Consumer<Consumer<TransactionResponse>> transactions(int count) {
+        return action -> {
+            for (int i = 0; i < count; i++) {
+                TransactionResponse transaction = new TransactionResponse();
+                transaction.setId((long) i);
+                transaction.setType(i % 2 == 0 ? "EXPENSE" : "SETTLEMENT");
+                transaction.setDescription((i % 2 == 0 ? "Expense " : "Payment ") + i);
+                transaction.setAmount(new BigDecimal("12.50"));
+                transaction.setPayerName("Alice");
+                transaction.setPayeeName("Bob");
+                transaction.setParticipantNames("Alice, Bob");
+                transaction.setPerPersonAmount(new BigDecimal("6.25"));
+                transaction.setNote("thanks");
+                transaction.setCreatedAt(LocalDateTime.of(2024, 1, 1, 12, 0).minusMinutes(i));
+                action.accept(transaction);
+            }
+        };
+    }
+}
@@ -0,0 +1,202 @@
+package com.splitsphere.service;
+
+import com.splitsphere.dto.SettlementRequest;
+import com.splitsphere.model.Expense;
+import com.splitsphere.model.Group;
+import com.splitsphere.model.User;
+import com.splitsphere.repository.*;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.when;
+
+/**
+ * Settlements validate against the locked ledger row of the pair, so concurrent requests
+ * cannot settle more than is owed and validation cost does not grow with group history.
+ * Runs without a test transaction so every service call commits on its own.
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@Import({SettlementService.class, BalanceService.class, BalanceCache.class, AuditService.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class SettlementConcurrencyTest {
+    
+    @Autowired
+    private SettlementService settlementService;
+    
+    @Autowired
+    private BalanceService balanceService;
+    
+    @Autowired
+    private UserRepository userRepository;
+    
+    @Autowired
+    private GroupRepository groupRepository;
+    
+    @Autowired
+    private ExpenseRepository expenseRepository;
+    
+    @Autowired
+    private SettlementRepository settlementRepository;
+    
+    @Autowired
+    private BalanceLedgerRepository balanceLedgerRepository;
+    
+    @Autowired
+    private AuditLogRepository auditLogRepository;
+    
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    
+    @MockBean
+    private UserService userService;
+    
+    private User alice;
+    private User bob;
+    private List<User> others;
+    private Group group;
+    
+    @BeforeEach
+    void setUp() {
+        alice = createUser("alice");
+        bob = createUser("bob");
+        others = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            others.add(createUser("member" + i));
+        }
+        
+        group = new Group();
+        group.setName("Flat");
+        group.setJoinCode("FLAT0001");
+        group.setCreator(alice);
+        group.getMembers().add(alice);
+        group.getMembers().add(bob);
+        group.getMembers().addAll(others);
+        group = groupRepository.save(group);
+    }
+    
+    @AfterEach
+    void tearDown() {
+        auditLogRepository.deleteAll();
+        balanceLedgerRepository.deleteAll();
+        settlementRepository.deleteAll();
+        expenseRepository.deleteAll();
+        groupRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+    
+    @Test
+    void testConcurrentSettlementsNeverOverSettle() throws Exception {
+        // Bob owes Alice 50.00
+        addExpense(alice, "100.00");
+        
+        int threads = 10;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger rejected = new AtomicInteger();
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                try {
+                    settlementService.createSettlement(request("10.00"), "bob");
+                } catch (IllegalArgumentException | ConcurrencyFailureException e) {
+                    rejected.incrementAndGet();
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(30, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+        
+        BigDecimal settled = settlementRepository.findAll().stream()
+                .map(s -> s.getAmount())
+                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        int accepted = threads - rejected.get();
+        
+        assertTrue(accepted > 0);
+        assertTrue(settled.compareTo(new BigDecimal("50.00")) <= 0);
+        assertEquals(new BigDecimal("10.00").multiply(BigDecimal.valueOf(accepted)), settled);
+        assertEquals(new BigDecimal("50.00").subtract(settled), balanceService.calculateBalanceBetweenUsers(group.getId(), bob, alice));
+        assertTrue(balanceService.verifyLedger(group.getId()));
+    }
+    
+    @Test
+    void testValidationCostIndependentOfHistory() {
+        addExpense(alice, "100.00");
+        long[] shortHistory = costOfSettlement();
+        
+        // Debts between every pair of the eight members; settling still only touches alice and bob
+        Random random = new Random(11);
+        List<User> members = new ArrayList<>(group.getMembers());
+        for (int i = 0; i < 300; i++) {
+            addExpense(i % 2 == 0 ? alice : bob, "10.00");
+            User payer = members.get(random.nextInt(members.size()));
+            User participant = members.get(random.nextInt(members.size()));
+            addExpense(payer, "8.00", payer, participant);
+        }
+        assertTrue(balanceLedgerRepository.count() > 40);
+        long[] longHistory = costOfSettlement();
+        
+        assertArrayEquals(shortHistory, longHistory, "statements and entities loaded");
+    }
+    
+    private long[] costOfSettlement() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        settlementService.createSettlement(request("1.00"), "bob");
+        return new long[]{statistics.getPrepareStatementCount(), statistics.getEntityLoadCount()};
+    }
+    
+    private User createUser(String userId) {
+        User user = new User();
+        user.setUserId(userId);
+        user.setAccountName(userId);
+        user.setCode("1234");
+        // Reload so timestamps carry the database precision, as UserService would return them
+        user = userRepository.findById(userRepository.save(user).getId()).orElseThrow();
+        when(userService.getUserByUserId(userId)).thenReturn(user);
+        return user;
+    }
+    
+    private void addExpense(User payer, String amount) {
+        addExpense(payer, amount, alice, bob);
+    }
+    
+    private void addExpense(User payer, String amount, User... participants) {
+        Expense expense = new Expense();
+        expense.setDescription("Groceries");
+        expense.setAmount(new BigDecimal(amount));
+        expense.setPayer(payer);
+        expense.setGroup(group);
+        expense.setParticipants(new HashSet<>(List.of(participants)));
+        balanceService.recordExpense(expenseRepository.save(expense));
+    }
+    
+    private SettlementRequest request(String amount) {
+        SettlementRequest request = new SettlementRequest();
+        request.setGroupId(group.getId());
+        request.setPayeeUserId("alice");
+        request.setAmount(new BigDecimal(amount));
+        return request;
+    }
+}
@@ -13,6 +13,7 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
 
 import java.math.BigDecimal;
 import java.util.HashSet;
@@ -41,6 +42,9 @@ class SettlementServiceTest {
     @Mock
     private BalanceService balanceService;
     
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+    
     @InjectMocks
     private SettlementService settlementService;
     
@@ -82,8 +86,8 @@ class SettlementServiceTest {
     void testCreateSettlement_Success() {
         when(userService.getUserByUserId("user1")).thenReturn(payer);
         when(userService.getUserByUserId("user2")).thenReturn(payee);
-        when(groupRepository.findById(1L)).thenReturn(Optional.of(group));
-        when(balanceService.calculateBalanceBetweenUsers(1L, payer, payee))
+        when(groupRepository.findForUpdateById(1L)).thenReturn(Optional.of(group));
+        when(balanceService.lockBalanceBetweenUsers(1L, payer, payee))
                 .thenReturn(new BigDecimal("100.00"));
         
         Settlement settlement = new Settlement();
@@ -105,6 +109,7 @@ class SettlementServiceTest {
         assertEquals(new BigDecimal("50.00"), response.getAmount());
         
         verify(settlementRepository).save(any(Settlement.class));
+        verify(balanceService).recordSettlement(settlement);
         verify(auditService).log(eq("CREATE"), eq("Settlement"), any(), any(), anyString());
     }
     
@@ -112,8 +117,8 @@ class SettlementServiceTest {
     void testCreateSettlement_ExceedsBalance() {
         when(userService.getUserByUserId("user1")).thenReturn(payer);
         when(userService.getUserByUserId("user2")).thenReturn(payee);
-        when(groupRepository.findById(1L)).thenReturn(Optional.of(group));
-        when(balanceService.calculateBalanceBetweenUsers(1L, payer, payee))
+        when(groupRepository.findForUpdateById(1L)).thenReturn(Optional.of(group));
+        when(balanceService.lockBalanceBetweenUsers(1L, payer, payee))
                 .thenReturn(new BigDecimal("30.00"));
         
         settlementRequest.setAmount(new BigDecimal("50.00"));
@@ -129,8 +134,8 @@ class SettlementServiceTest {
     void testCreateSettlement_NoDebt() {
         when(userService.getUserByUserId("user1")).thenReturn(payer);
         when(userService.getUserByUserId("user2")).thenReturn(payee);
-        when(groupRepository.findById(1L)).thenReturn(Optional.of(group));
-        when(balanceService.calculateBalanceBetweenUsers(1L, payer, payee))
+        when(groupRepository.findForUpdateById(1L)).thenReturn(Optional.of(group));
+        when(balanceService.lockBalanceBetweenUsers(1L, payer, payee))
                 .thenReturn(BigDecimal.ZERO);
         
         assertThrows(IllegalArgumentException.class, () -> {
@@ -144,9 +149,9 @@ class SettlementServiceTest {
     void testCreateSettlement_PayeeOwesPayerInstead() {
         when(userService.getUserByUserId("user1")).thenReturn(payer);
         when(userService.getUserByUserId("user2")).thenReturn(payee);
-        when(groupRepository.findById(1L)).thenReturn(Optional.of(group));
+        when(groupRepository.findForUpdateById(1L)).thenReturn(Optional.of(group));
         // Negative balance means payee owes payer, not the other way around
-        when(balanceService.calculateBalanceBetweenUsers(1L, payer, payee))
+        when(balanceService.lockBalanceBetweenUsers(1L, payer, payee))
                 .thenReturn(new BigDecimal("-50.00"));
         
         assertThrows(IllegalArgumentException.class, () -> {
@@ -162,7 +167,7 @@ class SettlementServiceTest {
         
         when(userService.getUserByUserId("user1")).thenReturn(payer);
         when(userService.getUserByUserId("user2")).thenReturn(payee);
-        when(groupRepository.findById(1L)).thenReturn(Optional.of(group));
+        when(groupRepository.findForUpdateById(1L)).thenReturn(Optional.of(group));
         
         assertThrows(IllegalArgumentException.class, () -> {
             settlementService.createSettlement(settlementRequest, "user1");
@@ -179,7 +184,7 @@ class SettlementServiceTest {
         
         when(userService.getUserByUserId("user1")).thenReturn(payer);
         when(userService.getUserByUserId("user2")).thenReturn(payee);
-        when(groupRepository.findById(1L)).thenReturn(Optional.of(group));
+        when(groupRepository.findForUpdateById(1L)).thenReturn(Optional.of(group));
         
         assertThrows(IllegalArgumentException.class, () -> {
             settlementService.createSettlement(settlementRequest, "user1");
@@ -192,7 +197,7 @@ class SettlementServiceTest {
     void testCreateSettlement_SamePayerAndPayee() {
         when(userService.getUserByUserId("user1")).thenReturn(payer);
         when(userService.getUserByUserId("user1")).thenReturn(payer);
-        when(groupRepository.findById(1L)).thenReturn(Optional.of(group));
+        when(groupRepository.findForUpdateById(1L)).thenReturn(Optional.of(group));
         
         settlementRequest.setPayeeUserId("user1");
         
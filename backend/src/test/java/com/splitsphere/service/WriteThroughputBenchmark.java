@@ -0,0 +1,133 @@
+package com.splitsphere.service;
+
+import com.splitsphere.SplitSphereApplication;
+import com.splitsphere.dto.ExpenseRequest;
+import com.splitsphere.dto.GroupRequest;
+import com.splitsphere.dto.GroupResponse;
+import com.splitsphere.dto.SettlementRequest;
+import com.splitsphere.dto.UserRegistrationRequest;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Write throughput of expense and settlement creation with JDBC batching off (batch size 1, which
+ * is what identity ids forced on every insert) and on. Each batch size boots the application
+ * against its own in-memory database. Not part of the test suite; run with:
+ * <pre>
+ * mvn test-compile exec:exec -Dexec.executable=java -Dexec.classpathScope=test \
+ *     -Dexec.args="-cp %classpath com.splitsphere.service.WriteThroughputBenchmark 1 50"
+ * </pre>
+ */
+public class WriteThroughputBenchmark {
+    
+    private static final int MEMBERS = 10;
+    private static final int SINGLE_EXPENSES = 1_000;
+    private static final int BULK_EXPENSES = 2_000;
+    private static final int BULK_SETTLEMENTS = 1_000;
+    private static final int CHUNK = 100;
+    
+    public static void main(String[] args) {
+        String[] batchSizes = args.length > 0 ? args : new String[]{"1", "50"};
+        for (String batchSize : batchSizes) {
+            try (ConfigurableApplicationContext context = start(batchSize)) {
+                System.out.printf("%n==== hibernate.jdbc.batch_size=%s ====%n", batchSize);
+                new WriteThroughputBenchmark(context).run();
+            }
+        }
+    }
+    
+    private static ConfigurableApplicationContext start(String batchSize) {
+        return new SpringApplicationBuilder(SplitSphereApplication.class)
+                .web(WebApplicationType.NONE)
+                .run("--spring.datasource.url=jdbc:h2:mem:writes" + batchSize,
+                        "--spring.jpa.show-sql=false",
+                        "--spring.jpa.properties.hibernate.generate_statistics=true",
+                        "--spring.jpa.properties.hibernate.jdbc.batch_size=" + batchSize,
+                        "--logging.level.root=WARN",
+                        "--logging.level.com.splitsphere=WARN",
+                        "--logging.level.org.springframework.security=WARN",
+                        "--logging.level.org.hibernate.engine.internal.StatisticalLoggingSessionEventListener=OFF");
+    }
+    
+    private final ExpenseService expenseService;
+    private final SettlementService settlementService;
+    private final UserService userService;
+    private final GroupService groupService;
+    private final TransactionTemplate transactionTemplate;
+    private final Statistics statistics;
+    
+    private WriteThroughputBenchmark(ConfigurableApplicationContext context) {
+        expenseService = context.getBean(ExpenseService.class);
+        settlementService = context.getBean(SettlementService.class);
+        userService = context.getBean(UserService.class);
+        groupService = context.getBean(GroupService.class);
+        transactionTemplate = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+        statistics = context.getBean(EntityManagerFactory.class).unwrap(SessionFactory.class).getStatistics();
+    }
+    
+    private void run() {
+        List<String> members = new ArrayList<>();
+        for (int i = 0; i < MEMBERS; i++) {
+            members.add("member" + i);
+            userService.registerUser(new UserRegistrationRequest("Member " + i, "member" + i, "1234"));
+        }
+        GroupRequest groupRequest = new GroupRequest();
+        groupRequest.setName("Benchmark");
+        GroupResponse group = groupService.createGroup(groupRequest, members.get(0));
+        for (String member : members.subList(1, MEMBERS)) {
+            groupService.joinGroup(group.getJoinCode(), member);
+        }
+        
+        ExpenseRequest expense = new ExpenseRequest();
+        expense.setDescription("Dinner");
+        expense.setAmount(new BigDecimal("100.00"));
+        expense.setGroupId(group.getId());
+        expense.setParticipantUserIds(members);
+        
+        SettlementRequest settlement = new SettlementRequest();
+        settlement.setGroupId(group.getId());
+        settlement.setPayeeUserId(members.get(0));
+        settlement.setAmount(new BigDecimal("0.01"));
+        
+        // Warm up the JIT and the connection pool on the same paths
+        measure("warm-up", SINGLE_EXPENSES, 1, () -> expenseService.createExpense(expense, members.get(0)));
+        
+        measure("Expenses, one transaction each", SINGLE_EXPENSES, 1,
+                () -> expenseService.createExpense(expense, members.get(0)));
+        measure("Expenses, " + CHUNK + " per transaction", BULK_EXPENSES, CHUNK,
+                () -> expenseService.createExpense(expense, members.get(0)));
+        measure("Settlements, " + CHUNK + " per transaction", BULK_SETTLEMENTS, CHUNK,
+                () -> settlementService.createSettlement(settlement, members.get(1)));
+    }
+    
+    private void measure(String name, int operations, int chunk, Runnable operation) {
+        statistics.clear();
+        long start = System.nanoTime();
+        for (int done = 0; done < operations; done += chunk) {
+            int count = Math.min(chunk, operations - done);
+            transactionTemplate.executeWithoutResult(status -> {
+                for (int i = 0; i < count; i++) {
+                    operation.run();
+                }
+            });
+        }
+        long nanos = System.nanoTime() - start;
+        
+        if (!name.equals("warm-up")) {
+            System.out.printf("%-40s %,8.0f ops/s  %6.2f statements/op  (%,d ms)%n", name,
+                    operations * 1e9 / nanos,
+                    (double) statistics.getPrepareStatementCount() / operations,
+                    nanos / 1_000_000);
+        }
+    }
+}
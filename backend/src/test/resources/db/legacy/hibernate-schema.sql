@@ -0,0 +1,121 @@
+-- Schema Hibernate generated (ddl-auto, H2 dialect) from the entity mappings before Flyway managed it,
+-- i.e. what a database created by that version holds. LegacySchemaMigrationTest migrates it.
+
+create table audit_logs (
+    entity_id bigint not null,
+    id bigint generated by default as identity,
+    timestamp timestamp(6) not null,
+    user_id bigint,
+    action varchar(255) not null,
+    details TEXT,
+    entity_type varchar(255) not null,
+    primary key (id)
+);
+
+create table expense_participants (
+    expense_id bigint not null,
+    user_id bigint not null,
+    primary key (expense_id, user_id)
+);
+
+create table expenses (
+    amount numeric(19,2) not null,
+    created_at timestamp(6) not null,
+    group_id bigint not null,
+    id bigint generated by default as identity,
+    payer_id bigint not null,
+    description varchar(255) not null,
+    primary key (id)
+);
+
+create table group_members (
+    group_id bigint not null,
+    user_id bigint not null,
+    primary key (group_id, user_id)
+);
+
+create table groups (
+    closed boolean not null,
+    closed_at timestamp(6),
+    created_at timestamp(6) not null,
+    creator_id bigint not null,
+    id bigint generated by default as identity,
+    join_code varchar(255) not null unique,
+    name varchar(255) not null,
+    primary key (id)
+);
+
+create table settlements (
+    amount numeric(19,2) not null,
+    created_at timestamp(6) not null,
+    group_id bigint not null,
+    id bigint generated by default as identity,
+    payee_id bigint not null,
+    payer_id bigint not null,
+    note varchar(500),
+    primary key (id)
+);
+
+create table users (
+    created_at timestamp(6) not null,
+    id bigint generated by default as identity,
+    account_name varchar(255) not null,
+    code varchar(255) not null,
+    user_id varchar(255) not null unique,
+    primary key (id)
+);
+
+alter table if exists audit_logs 
+   add constraint FKjs4iimve3y0xssbtve5ysyef0 
+   foreign key (user_id) 
+   references users;
+
+alter table if exists expense_participants 
+   add constraint FKbt1naml92d64c1w07hjec43sv 
+   foreign key (user_id) 
+   references users;
+
+alter table if exists expense_participants 
+   add constraint FKc65ugmdfhjd6lxjx871fjkjxp 
+   foreign key (expense_id) 
+   references expenses;
+
+alter table if exists expenses 
+   add constraint FKne4jfgy6h5e1gv78elj8bypb5 
+   foreign key (group_id) 
+   references groups;
+
+alter table if exists expenses 
+   add constraint FKp2j9bd9avgsllmn3q7ssmdku 
+   foreign key (payer_id) 
+   references users;
+
+alter table if exists group_members 
+   add constraint FKnr9qg33qt2ovmv29g4vc3gtdx 
+   foreign key (user_id) 
+   references users;
+
+alter table if exists group_members 
+   add constraint FKkv9vlrye4rmhqjq4qohy2n5a6 
+   foreign key (group_id) 
+   references groups;
+
+alter table if exists groups 
+   add constraint FKjq37pdrj0mtih03a22mc7noun 
+   foreign key (creator_id) 
+   references users;
+
+alter table if exists settlements 
+   add constraint FKkr0ruc91qde8t7yjqeowe5re5 
+   foreign key (group_id) 
+   references groups;
+
+alter table if exists settlements 
+   add constraint FKq0h48ikvagucwtb377ima563n 
+   foreign key (payee_id) 
+   references users;
+
+alter table if exists settlements 
+   add constraint FKi6fvdyvpp8slwmjx9e87lujdo 
+   foreign key (payer_id) 
+   references users;
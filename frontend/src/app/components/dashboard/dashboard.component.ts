@@ -1,7 +1,8 @@
-import { Component, OnInit } from '@angular/core';
+import { Component, OnDestroy, OnInit } from '@angular/core';
 import { CommonModule } from '@angular/common';
 import { FormsModule } from '@angular/forms';
 import { Router } from '@angular/router';
+import { Subscription } from 'rxjs';
 import { AuthService } from '../../services/auth.service';
 import { GroupService } from '../../services/group.service';
 import { ExpenseService } from '../../services/expense.service';
@@ -9,7 +10,7 @@ import { BalanceService } from '../../services/balance.service';
 import { SettlementService } from '../../services/settlement.service';
 import { TransactionService } from '../../services/transaction.service';
 import { ReportService } from '../../services/report.service';
-import { Group, Expense, Balance, Transaction } from '../../models/models';
+import { Group, GroupEvent, Expense, Balance, Transaction } from '../../models/models';
 
 @Component({
   selector: 'app-dashboard',
@@ -18,7 +19,7 @@ import { Group, Expense, Balance, Transaction } from '../../models/models';
   templateUrl: './dashboard.component.html',
   styleUrl: './dashboard.component.css'
 })
-export class DashboardComponent implements OnInit {
+export class DashboardComponent implements OnInit, OnDestroy {
   currentUser: string = '';
   currentUserId: string = '';
   groups: Group[] = [];
@@ -26,6 +27,11 @@ export class DashboardComponent implements OnInit {
   expenses: Expense[] = [];
   balances: Balance[] = [];
   transactions: Transaction[] = [];
+  transactionsCursor: string | null = null;
+  loadingTransactions = false;
+  private transactionsRequest = 0;
+  private readonly transactionPageSize = 50;
+  private groupEvents?: Subscription;
   
   // Forms
   showCreateGroup = false;
@@ -73,6 +79,10 @@ export class DashboardComponent implements OnInit {
     this.loadGroups();
   }
 
+  ngOnDestroy(): void {
+    this.groupEvents?.unsubscribe();
+  }
+
   loadGroups(): void {
     this.groupService.getUserGroups().subscribe({
       next: (groups) => {
@@ -90,6 +100,59 @@ export class DashboardComponent implements OnInit {
     this.loadGroupBalances();
     this.loadGroupTransactions();
     this.resetForms();
+    this.followGroupEvents(group);
+  }
+
+  // Reload only what an event says changed, instead of polling
+  private followGroupEvents(group: Group): void {
+    this.groupEvents?.unsubscribe();
+    this.groupEvents = undefined;
+    if (group.closed) {
+      return;
+    }
+    this.groupEvents = this.groupService.getGroupEvents(group.id).subscribe(event => this.onGroupEvent(event));
+  }
+
+  private onGroupEvent(event: GroupEvent): void {
+    if (this.selectedGroup?.id !== event.groupId) {
+      return;
+    }
+    switch (event.type) {
+      case 'expense':
+      case 'expenses':
+        this.loadGroupExpenses();
+        this.loadGroupBalances();
+        this.loadGroupTransactions();
+        break;
+      case 'settlement':
+        this.loadGroupBalances();
+        this.loadGroupTransactions();
+        break;
+      case 'member-joined':
+      case 'closed':
+      case 'resync':
+        this.groupService.getGroup(event.groupId).subscribe({
+          next: (group) => {
+            const index = this.groups.findIndex(g => g.id === group.id);
+            if (index !== -1) {
+              this.groups[index] = group;
+            }
+            if (this.selectedGroup?.id === group.id) {
+              this.selectedGroup = group;
+              this.loadGroupExpenses();
+              this.loadGroupBalances();
+              this.loadGroupTransactions();
+              if (group.closed) {
+                this.groupEvents?.unsubscribe();
+              }
+            }
+          },
+          error: (error) => {
+            console.error('Error reloading group:', error);
+          }
+        });
+        break;
+    }
   }
 
   loadGroupExpenses(): void {
@@ -119,16 +182,47 @@ export class DashboardComponent implements OnInit {
   }
 
   loadGroupTransactions(): void {
-    if (this.selectedGroup) {
-      this.transactionService.getGroupTransactions(this.selectedGroup.id).subscribe({
-        next: (transactions) => {
-          this.transactions = transactions;
-        },
-        error: (error) => {
-          console.error('Error loading transactions:', error);
-        }
-      });
+    this.transactions = [];
+    this.transactionsCursor = null;
+    this.loadTransactionsPage(true);
+  }
+
+  loadMoreTransactions(): void {
+    if (this.transactionsCursor && !this.loadingTransactions) {
+      this.loadTransactionsPage(false);
+    }
+  }
+
+  onTransactionsScroll(event: Event): void {
+    const list = event.target as HTMLElement;
+    if (list.scrollTop + list.clientHeight >= list.scrollHeight - 100) {
+      this.loadMoreTransactions();
+    }
+  }
+
+  private loadTransactionsPage(first: boolean): void {
+    if (!this.selectedGroup) {
+      return;
     }
+    // Responses for a previous group or an earlier refresh are ignored
+    const request = ++this.transactionsRequest;
+    this.loadingTransactions = true;
+    this.transactionService.getGroupTransactionsPage(this.selectedGroup.id, this.transactionPageSize,
+        first ? undefined : this.transactionsCursor ?? undefined).subscribe({
+      next: (page) => {
+        if (request === this.transactionsRequest) {
+          this.transactions = first ? page.items : this.transactions.concat(page.items);
+          this.transactionsCursor = page.nextCursor;
+          this.loadingTransactions = false;
+        }
+      },
+      error: (error) => {
+        if (request === this.transactionsRequest) {
+          this.loadingTransactions = false;
+        }
+        console.error('Error loading transactions:', error);
+      }
+    });
   }
 
   createGroup(): void {
@@ -295,6 +389,7 @@ export class DashboardComponent implements OnInit {
     this.groupService.closeGroup(this.selectedGroup.id).subscribe({
       next: (group) => {
         this.selectedGroup = group;
+        this.groupEvents?.unsubscribe();
         // Update the group in the list
         const index = this.groups.findIndex(g => g.id === group.id);
         if (index !== -1) {
@@ -38,6 +38,12 @@ export interface Group {
   createdAt: string;
 }
 
+export interface GroupEvent {
+  groupId: number;
+  type: 'expense' | 'expenses' | 'settlement' | 'member-joined' | 'closed' | 'resync';
+  id: number | null;
+}
+
 export interface GroupRequest {
   name: string;
 }
@@ -67,6 +73,30 @@ export interface Balance {
   status: string;
 }
 
+export interface GroupBalanceSummary {
+  groupId: number;
+  groupName: string;
+  closed: boolean;
+  owed: number;
+  owes: number;
+  net: number;
+}
+
+export interface BalanceSummary {
+  totalOwed: number;
+  totalOwes: number;
+  net: number;
+  groups: GroupBalanceSummary[];
+}
+
+export interface Transfer {
+  fromUserId: string;
+  fromUserName: string;
+  toUserId: string;
+  toUserName: string;
+  amount: number;
+}
+
 export interface Settlement {
   id?: number;
   payerUserId: string;
@@ -99,3 +129,32 @@ export interface Transaction {
   note?: string;
   createdAt: string;
 }
+
+export interface Page<T> {
+  items: T[];
+  nextCursor: string | null;
+}
+
+export interface Tombstone {
+  type: 'expense' | 'settlement';
+  id: number;
+  version: number;
+}
+
+export interface GroupChanges {
+  groupId: number;
+  version: number;
+  group: Group | null;
+  expenses: Expense[];
+  settlements: Settlement[];
+  deleted: Tombstone[];
+}
+
+export interface ReportJob {
+  id: string;
+  groupId: number;
+  format: 'excel' | 'pdf';
+  status: 'PENDING' | 'DONE' | 'FAILED';
+  error: string | null;
+  createdAt: string;
+}
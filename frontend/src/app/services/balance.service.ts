@@ -1,7 +1,7 @@
 import { Injectable } from '@angular/core';
 import { HttpClient } from '@angular/common/http';
 import { Observable } from 'rxjs';
-import { Balance } from '../models/models';
+import { Balance, BalanceSummary, Transfer } from '../models/models';
 import { environment } from '../../environments/environment';
 
 @Injectable({
@@ -15,4 +15,12 @@ export class BalanceService {
   getGroupBalances(groupId: number): Observable<Balance[]> {
     return this.http.get<Balance[]>(`${this.apiUrl}/group/${groupId}`);
   }
+
+  getMyBalances(): Observable<BalanceSummary> {
+    return this.http.get<BalanceSummary>(`${this.apiUrl}/me`);
+  }
+
+  getSimplifiedTransfers(groupId: number): Observable<Transfer[]> {
+    return this.http.get<Transfer[]>(`${this.apiUrl}/group/${groupId}/simplified`);
+  }
 }
@@ -1,8 +1,9 @@
 import { Injectable } from '@angular/core';
 import { HttpClient } from '@angular/common/http';
 import { Observable } from 'rxjs';
-import { Group, GroupRequest } from '../models/models';
+import { Group, GroupChanges, GroupEvent, GroupRequest } from '../models/models';
 import { environment } from '../../environments/environment';
+import { AuthService } from './auth.service';
 
 @Injectable({
   providedIn: 'root'
@@ -10,7 +11,9 @@ import { environment } from '../../environments/environment';
 export class GroupService {
   private apiUrl = `${environment.apiUrl}/groups`;
 
-  constructor(private http: HttpClient) { }
+  private readonly eventsRetryMs = 5000;
+
+  constructor(private http: HttpClient, private authService: AuthService) { }
 
   createGroup(groupRequest: GroupRequest): Observable<Group> {
     return this.http.post<Group>(this.apiUrl, groupRequest);
@@ -28,7 +31,80 @@ export class GroupService {
     return this.http.get<Group>(`${this.apiUrl}/${groupId}`);
   }
 
+  /**
+   * What was committed to the group after the given version (0 for everything). Pass the
+   * returned version as since next time.
+   */
+  getGroupChanges(groupId: number, since: number): Observable<GroupChanges> {
+    return this.http.get<GroupChanges>(`${this.apiUrl}/${groupId}/changes`, { params: { since } });
+  }
+
   closeGroup(groupId: number): Observable<Group> {
     return this.http.put<Group>(`${this.apiUrl}/${groupId}/close`, {});
   }
+
+  /**
+   * Changes to a group as they are committed, reconnecting when the stream drops. Events that
+   * may have been missed while disconnected are reported as a 'resync'. EventSource can't send
+   * the Authorization header, so the stream is read with fetch.
+   */
+  getGroupEvents(groupId: number): Observable<GroupEvent> {
+    return new Observable<GroupEvent>(subscriber => {
+      const abort = new AbortController();
+      let retry: ReturnType<typeof setTimeout> | undefined;
+      let connected = false;
+
+      const connect = () => {
+        fetch(`${this.apiUrl}/${groupId}/events`, {
+          headers: {
+            Authorization: `Bearer ${this.authService.getToken()}`,
+            Accept: 'text/event-stream, application/json'
+          },
+          signal: abort.signal
+        }).then(async response => {
+          if (!response.ok || !response.body) {
+            throw new Error(`Group event stream returned ${response.status}`);
+          }
+          if (connected) {
+            subscriber.next({ groupId, type: 'resync', id: null });
+          }
+          connected = true;
+          const reader = response.body.pipeThrough(new TextDecoderStream()).getReader();
+          let buffer = '';
+          for (;;) {
+            const { value, done } = await reader.read();
+            if (done) {
+              return;
+            }
+            buffer += value;
+            let end: number;
+            while ((end = buffer.indexOf('\n\n')) >= 0) {
+              const data = buffer.slice(0, end).split('\n')
+                .filter(line => line.startsWith('data:'))
+                .map(line => line.slice(5))
+                .join('\n');
+              buffer = buffer.slice(end + 2);
+              if (data) {
+                subscriber.next(JSON.parse(data));
+              }
+            }
+          }
+        }).catch(error => {
+          if (!abort.signal.aborted) {
+            console.error('Group event stream failed:', error);
+          }
+        }).finally(() => {
+          if (!abort.signal.aborted) {
+            retry = setTimeout(connect, this.eventsRetryMs);
+          }
+        });
+      };
+
+      connect();
+      return () => {
+        abort.abort();
+        clearTimeout(retry);
+      };
+    });
+  }
 }
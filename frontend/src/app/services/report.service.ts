@@ -1,6 +1,7 @@
 import { Injectable } from '@angular/core';
 import { HttpClient } from '@angular/common/http';
-import { Observable } from 'rxjs';
+import { Observable, first, switchMap, throwError, timer } from 'rxjs';
+import { ReportJob } from '../models/models';
 import { environment } from '../../environments/environment';
 
 @Injectable({
@@ -9,17 +10,32 @@ import { environment } from '../../environments/environment';
 export class ReportService {
   private apiUrl = `${environment.apiUrl}/reports`;
 
+  private readonly jobPollMs = 1000;
+
   constructor(private http: HttpClient) {}
 
   downloadExcelReport(groupId: number): Observable<Blob> {
-    return this.http.get(`${this.apiUrl}/group/${groupId}/excel`, {
-      responseType: 'blob'
-    });
+    return this.runReportJob(groupId, 'excel');
   }
 
   downloadPdfReport(groupId: number): Observable<Blob> {
-    return this.http.get(`${this.apiUrl}/group/${groupId}/pdf`, {
-      responseType: 'blob'
-    });
+    return this.runReportJob(groupId, 'pdf');
+  }
+
+  /**
+   * Reports are generated in the background: submit a job, poll it until it is done, then
+   * download the file. A report of an unchanged group comes back done right away.
+   */
+  private runReportJob(groupId: number, format: 'excel' | 'pdf'): Observable<Blob> {
+    return this.http.post<ReportJob>(`${this.apiUrl}/group/${groupId}/${format}`, {}).pipe(
+      switchMap(job => job.status !== 'PENDING'
+        ? [job]
+        : timer(this.jobPollMs, this.jobPollMs).pipe(
+            switchMap(() => this.http.get<ReportJob>(`${this.apiUrl}/jobs/${job.id}`)),
+            first(polled => polled.status !== 'PENDING'))),
+      switchMap(job => job.status === 'DONE'
+        ? this.http.get(`${this.apiUrl}/jobs/${job.id}/download`, { responseType: 'blob' })
+        : throwError(() => new Error(job.error ?? 'The report could not be generated')))
+    );
   }
 }
@@ -1,8 +1,8 @@
 import { Injectable } from '@angular/core';
-import { HttpClient } from '@angular/common/http';
-import { Observable } from 'rxjs';
+import { HttpClient, HttpParams } from '@angular/common/http';
+import { Observable, map } from 'rxjs';
 import { environment } from '../../environments/environment';
-import { Transaction } from '../models/models';
+import { Page, Transaction } from '../models/models';
 
 @Injectable({
   providedIn: 'root'
@@ -15,4 +15,17 @@ export class TransactionService {
   getGroupTransactions(groupId: number): Observable<Transaction[]> {
     return this.http.get<Transaction[]>(`${this.apiUrl}/group/${groupId}`);
   }
+
+  getGroupTransactionsPage(groupId: number, limit: number, cursor?: string): Observable<Page<Transaction>> {
+    let params = new HttpParams().set('limit', limit);
+    if (cursor) {
+      params = params.set('cursor', cursor);
+    }
+    return this.http.get<Transaction[]>(`${this.apiUrl}/group/${groupId}`, { params, observe: 'response' }).pipe(
+      map(response => ({
+        items: response.body ?? [],
+        nextCursor: response.headers.get('X-Next-Cursor')
+      }))
+    );
+  }
 }